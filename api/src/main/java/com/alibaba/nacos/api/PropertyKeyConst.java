@@ -58,12 +58,18 @@ public class PropertyKeyConst {
 
     public final static String ENABLE_REMOTE_SYNC_CONFIG = "enableRemoteSyncConfig";
 
+    public final static String CONFIG_LISTENER_BINARY = "configListenerBinary";
+
+    public final static String CONFIG_LISTENER_SESSION = "configListenerSession";
+
     public final static String NAMING_LOAD_CACHE_AT_START = "namingLoadCacheAtStart";
 
     public final static String NAMING_CLIENT_BEAT_THREAD_COUNT = "namingClientBeatThreadCount";
 
     public final static String NAMING_POLLING_THREAD_COUNT = "namingPollingThreadCount";
 
+    public final static String NAMING_CLIENT_BATCH_BEAT_ENABLED = "namingClientBatchBeatEnabled";
+
     /**
      * Get the key value of some variable value from the system property
      */
@@ -50,6 +50,11 @@ public class ServiceInfo {
 
     private String checksum = "";
 
+    /**
+     * checksum of the hosts, used by the server to send only the changed hosts
+     */
+    private String hostsChecksum = "";
+
     private volatile boolean allIPs = false;
 
     public ServiceInfo() {
@@ -224,6 +229,21 @@ public class ServiceInfo {
         this.checksum = checksum;
     }
 
+    public String getHostsChecksum() {
+        return hostsChecksum;
+    }
+
+    public void setHostsChecksum(String hostsChecksum) {
+        this.hostsChecksum = hostsChecksum;
+    }
+
+    /**
+     * Key of a host within the hosts, the same as the one used by the server for the changed hosts
+     */
+    public static String getHostKey(Instance host) {
+        return host.getIp() + ":" + host.getPort() + ":" + host.getClusterName();
+    }
+
     private static boolean isEmpty(String str) {
         return str == null || str.length() == 0;
     }
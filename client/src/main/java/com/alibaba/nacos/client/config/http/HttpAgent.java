@@ -60,6 +60,21 @@ public interface HttpAgent {
      */
     HttpResult httpPost(String path, List<String> headers, List<String> paramValues, String encoding, long readTimeoutMs) throws IOException;
 
+    /**
+     * invoke http post method with a raw request body, paramValues are sent in the url
+     * @param path http path
+     * @param headers http headers
+     * @param paramValues http paramValues http
+     * @param body http request body
+     * @param contentType content type of the body
+     * @param encoding http encode
+     * @param readTimeoutMs http timeout
+     * @return HttpResult http response
+     * @throws IOException If an input or output exception occurred
+     */
+    HttpResult httpPost(String path, List<String> headers, List<String> paramValues, byte[] body, String contentType,
+                        String encoding, long readTimeoutMs) throws IOException;
+
     /**
      * invoke http delete method
      * @param path http path
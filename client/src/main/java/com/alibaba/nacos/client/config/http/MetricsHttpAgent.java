@@ -72,6 +72,23 @@ public class MetricsHttpAgent implements HttpAgent {
         return result;
     }
 
+    @Override
+    public HttpResult httpPost(String path, List<String> headers, List<String> paramValues, byte[] body,
+                               String contentType, String encoding, long readTimeoutMs) throws IOException {
+        Histogram.Timer timer = MetricsMonitor.getConfigRequestMonitor("POST", path, "NA");
+        HttpResult result = null;
+        try {
+            result = httpAgent.httpPost(path, headers, paramValues, body, contentType, encoding, readTimeoutMs);
+        } catch (IOException e) {
+            throw e;
+        } finally {
+            timer.observeDuration();
+            timer.close();
+        }
+
+        return result;
+    }
+
     @Override
     public HttpResult httpDelete(String path, List<String> headers, List<String> paramValues, String encoding, long readTimeoutMs) throws IOException {
         Histogram.Timer timer = MetricsMonitor.getConfigRequestMonitor("DELETE", path, "NA");
@@ -123,6 +123,12 @@ public class ServerHttpAgent implements HttpAgent {
     @Override
     public HttpResult httpPost(String path, List<String> headers, List<String> paramValues, String encoding,
                                long readTimeoutMs) throws IOException {
+        return httpPost(path, headers, paramValues, null, null, encoding, readTimeoutMs);
+    }
+
+    @Override
+    public HttpResult httpPost(String path, List<String> headers, List<String> paramValues, byte[] body,
+                               String contentType, String encoding, long readTimeoutMs) throws IOException {
         final long endTime = System.currentTimeMillis() + readTimeoutMs;
         boolean isSSL = false;
         injectSecurityInfo(paramValues);
@@ -137,9 +143,11 @@ public class ServerHttpAgent implements HttpAgent {
                     newHeaders.addAll(headers);
                 }
 
-                HttpResult result = HttpSimpleClient.httpPost(
-                    getUrl(currentServerAddr, path), newHeaders, paramValues, encoding,
-                    readTimeoutMs, isSSL);
+                HttpResult result = null == body
+                    ? HttpSimpleClient.httpPost(getUrl(currentServerAddr, path), newHeaders, paramValues, encoding,
+                    readTimeoutMs, isSSL)
+                    : HttpSimpleClient.httpPost(getUrl(currentServerAddr, path), newHeaders, paramValues, body,
+                    contentType, encoding, readTimeoutMs);
                 if (result.code == HttpURLConnection.HTTP_INTERNAL_ERROR
                     || result.code == HttpURLConnection.HTTP_BAD_GATEWAY
                     || result.code == HttpURLConnection.HTTP_UNAVAILABLE) {
@@ -30,6 +30,7 @@ import com.alibaba.nacos.client.monitor.MetricsMonitor;
 import com.alibaba.nacos.client.naming.utils.CollectionUtils;
 import com.alibaba.nacos.client.utils.ParamUtil;
 import com.alibaba.nacos.client.utils.TenantUtil;
+import com.alibaba.nacos.common.utils.BinaryListenerCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
@@ -64,6 +65,8 @@ public class ClientWorker {
                 Constants.CONFIG_LONG_POLL_TIMEOUT), Constants.MIN_CONFIG_LONG_POLL_TIMEOUT);
         taskPenaltyTime = NumberUtils.toInt(properties.getProperty(PropertyKeyConst.CONFIG_RETRY_TIME), Constants.CONFIG_RETRY_TIME);
         enableRemoteSyncConfig = Boolean.parseBoolean(properties.getProperty(PropertyKeyConst.ENABLE_REMOTE_SYNC_CONFIG));
+        enableBinaryListener = Boolean.parseBoolean(properties.getProperty(PropertyKeyConst.CONFIG_LISTENER_BINARY, "true"));
+        enableListenerSession = Boolean.parseBoolean(properties.getProperty(PropertyKeyConst.CONFIG_LISTENER_SESSION, "true"));
 
         executor = Executors.newScheduledThreadPool(1, runnable -> {
             Thread t = new Thread(runnable);
@@ -362,16 +365,46 @@ public class ClientWorker {
      * 获取服务端已更新的Nacos配置坐标（dataId + group + namespace）
      */
     List<String> checkUpdateDataIds(List<CacheData> localCacheDatas, List<String> inInitializingCacheList) throws IOException {
+        return checkUpdateDataIds(localCacheDatas, inInitializingCacheList, null);
+    }
+
+    /**
+     * 获取服务端已更新的Nacos配置坐标，session不为null时使用监听会话，只上报与上次不同的监听列表
+     */
+    List<String> checkUpdateDataIds(List<CacheData> localCacheDatas, List<String> inInitializingCacheList,
+                                    ListenerSession session) throws IOException {
+        // 服务端声明支持二进制协议后，使用长度前缀的二进制格式，避免拼接和URL编码大字符串
+        final boolean binary = enableBinaryListener && binaryListenerSupported;
+        final boolean useSession = binary && enableListenerSession && session != null;
+        final boolean isDelta = useSession && session.id != null;
         StringBuilder cacheDataStr = new StringBuilder();
+        BinaryListenerCodec.Encoder encoder = binary ? new BinaryListenerCodec.Encoder(localCacheDatas.size()) : null;
+        Map<String, String[]> listening = useSession ? new HashMap<String, String[]>(localCacheDatas.size()) : null;
+        final int initializingCount = inInitializingCacheList.size();
+        int listeningCount = 0;
         for (CacheData cacheData : localCacheDatas) {
             if (!cacheData.isUseLocalConfigInfo()) { //缓存配置不使用本地文件配置缓存,及JVM配置缓存与本地文件缓存不一致
-                cacheDataStr.append(cacheData.dataId).append(WORD_SEPARATOR);
-                cacheDataStr.append(cacheData.group).append(WORD_SEPARATOR);
-                if (StringUtils.isBlank(cacheData.tenant)) {
-                    cacheDataStr.append(cacheData.getMd5()).append(LINE_SEPARATOR);
+                listeningCount++;
+                if (binary) {
+                    String md5 = cacheData.getMd5();
+                    if (useSession) {
+                        String groupKey = GroupKey.getKeyTenant(cacheData.dataId, cacheData.group, cacheData.tenant);
+                        listening.put(groupKey, new String[] {cacheData.dataId, cacheData.group, cacheData.tenant, md5});
+                        String[] sent = isDelta ? session.sent.get(groupKey) : null;
+                        if (sent != null && StringUtils.equals(sent[3], md5)) {
+                            continue;
+                        }
+                    }
+                    encoder.add(cacheData.dataId, cacheData.group, cacheData.tenant, md5);
                 } else {
-                    cacheDataStr.append(cacheData.getMd5()).append(WORD_SEPARATOR);
-                    cacheDataStr.append(cacheData.getTenant()).append(LINE_SEPARATOR);
+                    cacheDataStr.append(cacheData.dataId).append(WORD_SEPARATOR);
+                    cacheDataStr.append(cacheData.group).append(WORD_SEPARATOR);
+                    if (StringUtils.isBlank(cacheData.tenant)) {
+                        cacheDataStr.append(cacheData.getMd5()).append(LINE_SEPARATOR);
+                    } else {
+                        cacheDataStr.append(cacheData.getMd5()).append(WORD_SEPARATOR);
+                        cacheDataStr.append(cacheData.getTenant()).append(LINE_SEPARATOR);
+                    }
                 }
 
                 // 获取已初始化的缓存GroupKey列表
@@ -382,14 +415,25 @@ public class ClientWorker {
         }
 
         //不存在不一致配置缓存直接返回，不进一步进行缓存校验
-        if (StringUtils.isBlank(cacheDataStr.toString())) {
+        if (listeningCount == 0) {
             return Collections.emptyList();
         }
+        if (isDelta) {
+            // 上次上报但已不再监听的配置
+            for (Map.Entry<String, String[]> entry : session.sent.entrySet()) {
+                if (!listening.containsKey(entry.getKey())) {
+                    String[] sent = entry.getValue();
+                    encoder.remove(sent[0], sent[1], sent[2]);
+                }
+            }
+        }
 
         // 本地配置缓存与NACOS配置数据比较
         List<String> requestParams = new ArrayList<>(2);
-        requestParams.add(Constants.PROBE_MODIFY_REQUEST);
-        requestParams.add(cacheDataStr.toString());
+        if (!binary) {
+            requestParams.add(Constants.PROBE_MODIFY_REQUEST);
+            requestParams.add(cacheDataStr.toString());
+        }
 
         List<String> headers = new ArrayList<>(2);
         headers.add("Long-Pulling-Timeout"); //设置长轮询超时时间
@@ -401,12 +445,49 @@ public class ClientWorker {
             headers.add("Long-Pulling-Timeout-No-Hangup");
             headers.add("true");
         }
+        if (useSession) {
+            headers.add(BinaryListenerCodec.SESSION_HEADER);
+            headers.add(isDelta ? session.id : BinaryListenerCodec.SESSION_OPEN);
+        }
 
         try {
             // In order to prevent the server from handling the delay of the client's long task,
             // increase the client's read timeout to avoid this problem.
             long readTimeoutMs = timeout + (long) Math.round(timeout >> 1); //读取timeout超时比长轮询时长稍长，预防网络问题导致读取超时，服务端响应稍短
-            HttpResult result = httpAgent.httpPost(Constants.CONFIG_CONTROLLER_PATH + "/listener", headers, requestParams, httpAgent.getEncode(), readTimeoutMs);
+            HttpResult result = binary
+                ? httpAgent.httpPost(Constants.CONFIG_CONTROLLER_PATH + "/listener", headers, requestParams,
+                encoder.toByteArray(), BinaryListenerCodec.CONTENT_TYPE, httpAgent.getEncode(), readTimeoutMs)
+                : httpAgent.httpPost(Constants.CONFIG_CONTROLLER_PATH + "/listener", headers, requestParams,
+                httpAgent.getEncode(), readTimeoutMs);
+            if (binary && HttpURLConnection.HTTP_BAD_REQUEST == result.code) {
+                // 服务端无法解析二进制请求，回退到文本协议，退避期内不再尝试二进制，并立即以文本协议重新发起本次请求
+                binaryListenerSupported = false;
+                binaryListenerRetryTime = System.currentTimeMillis() + BINARY_LISTENER_RETRY_INTERVAL;
+                log.warn("[{}] [check-update] binary listener request rejected, fall back to text", httpAgent.getName());
+                if (useSession) {
+                    session.reset();
+                }
+                inInitializingCacheList.subList(initializingCount, inInitializingCacheList.size()).clear();
+                return checkUpdateDataIds(localCacheDatas, inInitializingCacheList, session);
+            }
+            // 退避期内即使文本响应声明支持二进制协议也不切换，避免与400回退交替出现
+            binaryListenerSupported = BinaryListenerCodec.PROTOCOL_BINARY.equals(
+                getHeader(result, BinaryListenerCodec.PROTOCOL_HEADER))
+                && System.currentTimeMillis() >= binaryListenerRetryTime;
+            if (useSession) {
+                // 只有请求成功时服务端的监听列表才与本次上报一致，否则下次重新上报全量
+                String sessionId = getHeader(result, BinaryListenerCodec.SESSION_HEADER);
+                if (HttpURLConnection.HTTP_OK == result.code && sessionId != null) {
+                    session.id = sessionId;
+                    session.sent = listening;
+                } else {
+                    session.reset();
+                }
+                if (isDelta && HttpURLConnection.HTTP_PRECON_FAILED == result.code) {
+                    log.info("[{}] [check-update] listener session expired, register all configs again", httpAgent.getName());
+                    return Collections.emptyList();
+                }
+            }
             if (HttpURLConnection.HTTP_OK == result.code) {
                 setHealthServer(true);
                 String response = result.content; //获取nacos已更新的配置信息：dataId + group + namespace （格式）
@@ -445,6 +526,9 @@ public class ClientWorker {
                 log.error("[{}] [check-update] get changed dataId error, code: {}", httpAgent.getName(), result.code);
             }
         } catch (IOException e) {
+            if (useSession) {
+                session.reset();
+            }
             setHealthServer(false);
             log.error("[" + httpAgent.getName() + "] [check-update] get changed dataId exception", e);
             throw e;
@@ -452,6 +536,18 @@ public class ClientWorker {
         return Collections.emptyList();
     }
 
+    private String getHeader(HttpResult result, String name) {
+        if (result.headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> entry : result.headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
     public boolean isHealthServer() {
         return isHealthServer;
     }
@@ -478,6 +574,28 @@ public class ClientWorker {
     private double currentLongingTaskCount = 0;
     private final int taskPenaltyTime;
     private boolean enableRemoteSyncConfig = false;
+    private final boolean enableBinaryListener;
+    /** 服务端是否支持二进制监听协议，由响应头Listener-Protocol告知 **/
+    private volatile boolean binaryListenerSupported = false;
+    /** 二进制请求被拒绝后重新尝试二进制协议的间隔 **/
+    private static final long BINARY_LISTENER_RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+    /** 二进制请求被服务端拒绝后，在此时间之前只使用文本协议 **/
+    private volatile long binaryListenerRetryTime = 0L;
+    private final boolean enableListenerSession;
+
+    /**
+     * 长轮询任务的监听会话，记录上次成功上报给服务端的监听列表
+     */
+    static class ListenerSession {
+        String id;
+        /** groupKey -> [dataId, group, tenant, md5] **/
+        Map<String, String[]> sent = Collections.emptyMap();
+
+        void reset() {
+            id = null;
+            sent = Collections.emptyMap();
+        }
+    }
 
     /**
      * 长轮询检查nacos配置数据
@@ -485,6 +603,7 @@ public class ClientWorker {
     private class LongPollingRunnable implements Runnable {
 
         private final int taskId;
+        private final ListenerSession session = new ListenerSession();
         public LongPollingRunnable(int taskId) {
             this.taskId = taskId;
         }
@@ -513,7 +632,7 @@ public class ClientWorker {
                 }
 
                 // check server config： 比较本地缓存MD5与服务器缓存，再次确认已经变更的缓存坐标: shared.properties+DEFAULT_GROUP+dev
-                List<String> changedGroupKeys = checkUpdateDataIds(localCacheDataList, inInitializingCacheList);
+                List<String> changedGroupKeys = checkUpdateDataIds(localCacheDataList, inInitializingCacheList, session);
                 log.info("get changedGroupKeys ===> {}", changedGroupKeys);
 
                 //从nacos服务器获取变更的配置信息
@@ -25,6 +25,7 @@ import com.alibaba.nacos.common.utils.UuidUtils;
 import com.alibaba.nacos.common.utils.VersionUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -33,6 +34,8 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Http tool
@@ -41,6 +44,10 @@ import java.util.Map;
  */
 public class HttpSimpleClient {
 
+    private static final String ENCODING_GZIP = "gzip";
+
+    private static final String ENCODING_DEFLATE = "deflate";
+
     static public HttpResult httpGet(String url, List<String> headers, List<String> paramValues, String encoding, long readTimeoutMs, boolean isSSL) throws IOException {
         String encodedContent = encodingParams(paramValues, encoding);
         url += (null == encodedContent) ? "" : ("?" + encodedContent);
@@ -62,13 +69,7 @@ public class HttpSimpleClient {
             conn.connect();
 
             int respCode = conn.getResponseCode();
-            String resp = null;
-
-            if (HttpURLConnection.HTTP_OK == respCode) {
-                resp = IoUtils.toString(conn.getInputStream(), encoding);
-            } else {
-                resp = IoUtils.toString(conn.getErrorStream(), encoding);
-            }
+            String resp = readResponse(conn, respCode, encoding);
             return new HttpResult(respCode, conn.getHeaderFields(), resp);
         } finally {
             IoUtils.closeQuietly(conn);
@@ -118,13 +119,7 @@ public class HttpSimpleClient {
             conn.getOutputStream().write(encodedContent.getBytes(encoding));
 
             int respCode = conn.getResponseCode();
-            String resp = null;
-
-            if (HttpURLConnection.HTTP_OK == respCode) {
-                resp = IoUtils.toString(conn.getInputStream(), encoding);
-            } else {
-                resp = IoUtils.toString(conn.getErrorStream(), encoding);
-            }
+            String resp = readResponse(conn, respCode, encoding);
             return new HttpResult(respCode, conn.getHeaderFields(), resp);
         } finally {
             IoUtils.closeQuietly(conn);
@@ -147,6 +142,46 @@ public class HttpSimpleClient {
         return httpPost(url, headers, paramValues, encoding, readTimeoutMs, false);
     }
 
+    /**
+     * 发送请求体为二进制内容的POST请求，参数放在URL中。
+     *
+     * @param url
+     * @param headers       请求Header，可以为null
+     * @param paramValues   URL参数，可以为null
+     * @param body          请求体
+     * @param contentType   请求体类型
+     * @param encoding      URL编码使用的字符集
+     * @param readTimeoutMs 响应超时
+     * @return
+     * @throws IOException
+     */
+    static public HttpResult httpPost(String url, List<String> headers, List<String> paramValues, byte[] body,
+                                      String contentType, String encoding, long readTimeoutMs) throws IOException {
+        String encodedContent = encodingParams(paramValues, encoding);
+        url += (null == encodedContent) ? "" : ("?" + encodedContent);
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setRequestMethod("POST");
+            conn.setConnectTimeout(ParamUtil.getConnectTimeout() > 3000 ? ParamUtil.getConnectTimeout() : 3000);
+            conn.setReadTimeout((int) readTimeoutMs);
+            conn.setDoOutput(true);
+            conn.setDoInput(true);
+            List<String> newHeaders = getHeaders(url, headers, paramValues);
+            setHeaders(conn, newHeaders, encoding);
+            conn.setRequestProperty("Content-Type", contentType);
+            conn.setFixedLengthStreamingMode(body.length);
+
+            conn.getOutputStream().write(body);
+
+            int respCode = conn.getResponseCode();
+            String resp = readResponse(conn, respCode, encoding);
+            return new HttpResult(respCode, conn.getHeaderFields(), resp);
+        } finally {
+            IoUtils.closeQuietly(conn);
+        }
+    }
+
     static public HttpResult httpDelete(String url, List<String> headers, List<String> paramValues,
                                         String encoding, long readTimeoutMs, boolean isSSL) throws IOException {
         String encodedContent = encodingParams(paramValues, encoding);
@@ -170,13 +205,7 @@ public class HttpSimpleClient {
             conn.connect();
 
             int respCode = conn.getResponseCode();
-            String resp = null;
-
-            if (HttpURLConnection.HTTP_OK == respCode) {
-                resp = IoUtils.toString(conn.getInputStream(), encoding);
-            } else {
-                resp = IoUtils.toString(conn.getErrorStream(), encoding);
-            }
+            String resp = readResponse(conn, respCode, encoding);
             return new HttpResult(respCode, conn.getHeaderFields(), resp);
         } finally {
             IoUtils.closeQuietly(conn);
@@ -188,6 +217,22 @@ public class HttpSimpleClient {
         return httpGet(url, headers, paramValues, encoding, readTimeoutMs, false);
     }
 
+    /**
+     * 读取响应内容，按Content-Encoding解压
+     */
+    static private String readResponse(HttpURLConnection conn, int respCode, String encoding) throws IOException {
+        InputStream inputStream = HttpURLConnection.HTTP_OK == respCode ? conn.getInputStream() : conn.getErrorStream();
+        String contentEncoding = conn.getContentEncoding();
+        if (inputStream != null && contentEncoding != null) {
+            if (ENCODING_GZIP.equalsIgnoreCase(contentEncoding.trim())) {
+                inputStream = new GZIPInputStream(inputStream);
+            } else if (ENCODING_DEFLATE.equalsIgnoreCase(contentEncoding.trim())) {
+                inputStream = new InflaterInputStream(inputStream);
+            }
+        }
+        return IoUtils.toString(inputStream, encoding);
+    }
+
     static private void setHeaders(HttpURLConnection conn, List<String> headers, String encoding) {
         if (null != headers) {
             for (Iterator<String> iter = headers.iterator(); iter.hasNext(); ) {
@@ -196,6 +241,7 @@ public class HttpSimpleClient {
         }
         conn.addRequestProperty(CommonConstants.CLIENT_VERSION_HEADER, VersionUtils.VERSION);
         conn.addRequestProperty("Content-Type", "application/x-www-form-urlencoded;charset=" + encoding);
+        conn.addRequestProperty("Accept-Encoding", ENCODING_GZIP + "," + ENCODING_DEFLATE);
 
         String ts = String.valueOf(System.currentTimeMillis());
         String token = MD5.getInstance().getMD5String(ts + ParamUtil.getAppKey());
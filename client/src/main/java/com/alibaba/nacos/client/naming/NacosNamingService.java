@@ -91,7 +91,7 @@ public class NacosNamingService implements NamingService {
 
         eventDispatcher = new EventDispatcher();
         serverProxy = new NamingProxy(namespace, endpoint, serverList, properties);
-        beatReactor = new BeatReactor(serverProxy, initClientBeatThreadCount(properties));
+        beatReactor = new BeatReactor(serverProxy, initClientBeatThreadCount(properties), isBatchBeatEnabled(properties));
         hostReactor = new HostReactor(eventDispatcher, serverProxy, cacheDir, isLoadCacheAtStart(properties), initPollingThreadCount(properties));
     }
 
@@ -104,6 +104,11 @@ public class NacosNamingService implements NamingService {
             UtilAndComs.DEFAULT_CLIENT_BEAT_THREAD_COUNT);
     }
 
+    private boolean isBatchBeatEnabled(Properties properties) {
+        return properties != null
+            && BooleanUtils.toBoolean(properties.getProperty(PropertyKeyConst.NAMING_CLIENT_BATCH_BEAT_ENABLED));
+    }
+
     private int initPollingThreadCount(Properties properties) {
         if (properties == null) {
 
@@ -16,6 +16,7 @@
 package com.alibaba.nacos.client.naming.beat;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.annotation.JSONField;
 
 import java.util.Map;
 
@@ -52,6 +53,9 @@ public class BeatInfo {
     /** 心跳是否停止 **/
     private volatile boolean stopped;
 
+    /** 下次心跳时间，批量心跳时使用 **/
+    private volatile long nextBeatTime;
+
     @Override
     public String toString() {
         return JSON.toJSONString(this);
@@ -128,4 +132,13 @@ public class BeatInfo {
     public void setStopped(boolean stopped) {
         this.stopped = stopped;
     }
+
+    @JSONField(serialize = false)
+    public long getNextBeatTime() {
+        return nextBeatTime;
+    }
+
+    public void setNextBeatTime(long nextBeatTime) {
+        this.nextBeatTime = nextBeatTime;
+    }
 }
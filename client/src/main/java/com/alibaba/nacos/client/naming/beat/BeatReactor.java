@@ -16,6 +16,7 @@
 package com.alibaba.nacos.client.naming.beat;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.common.Constants;
 import com.alibaba.nacos.api.exception.NacosException;
@@ -28,6 +29,8 @@ import com.alibaba.nacos.client.naming.net.NamingProxy;
 import com.alibaba.nacos.client.naming.utils.UtilAndComs;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
@@ -38,17 +41,35 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * 服务心跳反应器
+ * <p>
+ * 开启批量心跳时，由一个任务每秒检查一次到期的心跳，并将到期及半个周期内将到期的心跳合并为一个请求发送，
+ * 服务端不支持批量心跳（或无权使用批量接口）时退回为每个实例单独发送心跳，并定期重新尝试批量心跳，
+ * 以便服务端升级后恢复
  * @author harold
  */
 @Slf4j
 public class BeatReactor {
 
+    /** 批量心跳的检查周期 **/
+    private static final long BATCH_BEAT_TICK = 1000L;
+
+    /** 每个批量心跳请求携带的最大心跳数 **/
+    private static final int MAX_BATCH_BEAT_COUNT = 500;
+
+    /** 退回单独发送心跳后，重新尝试批量心跳的间隔 **/
+    private static final long BATCH_BEAT_RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
     private final ScheduledExecutorService executorService;
 
     private final NamingProxy serverProxy;
 
     private boolean lightBeatEnabled = false;
 
+    private volatile boolean batchBeatEnabled;
+
+    /** 退回单独发送心跳后，下次尝试批量心跳的时间 **/
+    private volatile long batchBeatRetryTime;
+
     /** 缓存心跳信息 **/
     public final Map<String, BeatInfo> dom2Beat = new ConcurrentHashMap<>();
 
@@ -57,13 +78,23 @@ public class BeatReactor {
     }
 
     public BeatReactor(NamingProxy serverProxy, int threadCount) {
+        this(serverProxy, threadCount, false);
+    }
+
+    public BeatReactor(NamingProxy serverProxy, int threadCount, boolean batchBeatEnabled) {
         this.serverProxy = serverProxy;
+        this.batchBeatEnabled = batchBeatEnabled;
         executorService = new ScheduledThreadPoolExecutor(threadCount, runnable -> {
             Thread thread = new Thread(runnable);
             thread.setDaemon(true);
             thread.setName("com.alibaba.nacos.naming.beat.sender");
             return thread;
         });
+        if (batchBeatEnabled) {
+            batchBeatRetryTime = Long.MAX_VALUE;
+            executorService.scheduleWithFixedDelay(new BatchBeatTask(), BATCH_BEAT_TICK, BATCH_BEAT_TICK,
+                TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
@@ -79,8 +110,14 @@ public class BeatReactor {
         if ((existBeat = dom2Beat.remove(key)) != null) {
             existBeat.setStopped(true);
         }
-        dom2Beat.put(key, beatInfo);
-        executorService.schedule(new BeatTask(beatInfo), beatInfo.getPeriod(), TimeUnit.MILLISECONDS);
+        beatInfo.setNextBeatTime(System.currentTimeMillis() + beatInfo.getPeriod());
+        // 与关闭批量心跳互斥：关闭时遍历dom2Beat调度的心跳，要么包含该心跳，要么在此处看到开关已关闭
+        synchronized (dom2Beat) {
+            dom2Beat.put(key, beatInfo);
+            if (!batchBeatEnabled) {
+                scheduleBeatTask(beatInfo, beatInfo.getPeriod());
+            }
+        }
         MetricsMonitor.getDom2BeatSizeMonitor().set(dom2Beat.size());
     }
 
@@ -100,10 +137,66 @@ public class BeatReactor {
         MetricsMonitor.getDom2BeatSizeMonitor().set(dom2Beat.size());
     }
 
+    public boolean isBatchBeatEnabled() {
+        return batchBeatEnabled;
+    }
+
     private String buildKey(String serviceName, String ip, int port) {
         return serviceName + Constants.NAMING_INSTANCE_ID_SPLITTER + ip + Constants.NAMING_INSTANCE_ID_SPLITTER + port;
     }
 
+    /**
+     * 调度单个实例的心跳任务，每个心跳只调度一次
+     */
+    private void scheduleBeatTask(BeatInfo beatInfo, long delay) {
+        synchronized (beatInfo) {
+            if (beatInfo.isScheduled()) {
+                return;
+            }
+            beatInfo.setScheduled(true);
+        }
+        executorService.schedule(new BeatTask(beatInfo), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 处理心跳结果
+     * @return 下次心跳的间隔
+     */
+    private long handleBeatResult(BeatInfo beatInfo, JSONObject result) {
+        long nextTime = beatInfo.getPeriod();
+        long interval = result.getIntValue("clientBeatInterval");
+        boolean lightBeatEnabled = false;
+        if (result.containsKey(CommonParams.LIGHT_BEAT_ENABLED)) {
+            lightBeatEnabled = result.getBooleanValue(CommonParams.LIGHT_BEAT_ENABLED);
+        }
+        this.lightBeatEnabled = lightBeatEnabled;
+        if (interval > 0) {
+            nextTime = interval;
+        }
+        int code = NamingResponseCode.OK;
+        if (result.containsKey(CommonParams.CODE)) {
+            code = result.getIntValue(CommonParams.CODE);
+        }
+
+        //服务未注册到nacos，则重新注册
+        if (code == NamingResponseCode.RESOURCE_NOT_FOUND) {
+            Instance instance = new Instance();
+            instance.setPort(beatInfo.getPort());
+            instance.setIp(beatInfo.getIp());
+            instance.setWeight(beatInfo.getWeight());
+            instance.setMetadata(beatInfo.getMetadata());
+            instance.setClusterName(beatInfo.getCluster());
+            instance.setServiceName(beatInfo.getServiceName());
+            instance.setInstanceId(instance.getInstanceId());
+            instance.setEphemeral(true);
+            try {
+                serverProxy.registerService(beatInfo.getServiceName(),NamingUtils.getGroupName(beatInfo.getServiceName()), instance);
+            } catch (Exception ignore) {
+            }
+        }
+        return nextTime;
+    }
+
     /**
      * 服务心跳检测任务
      */
@@ -120,46 +213,109 @@ public class BeatReactor {
             if (beatInfo.isStopped()) {
                 return;
             }
+            // 已恢复批量心跳，由批量心跳任务接管；与scheduleBeatTask互斥，退回单独发送时会重新调度
+            synchronized (beatInfo) {
+                if (batchBeatEnabled) {
+                    beatInfo.setScheduled(false);
+                    return;
+                }
+            }
             long nextTime = beatInfo.getPeriod();
             try {
                 JSONObject result = serverProxy.sendBeat(beatInfo, BeatReactor.this.lightBeatEnabled);
-                long interval = result.getIntValue("clientBeatInterval");
-                boolean lightBeatEnabled = false;
-                if (result.containsKey(CommonParams.LIGHT_BEAT_ENABLED)) {
-                    lightBeatEnabled = result.getBooleanValue(CommonParams.LIGHT_BEAT_ENABLED);
+                nextTime = handleBeatResult(beatInfo, result);
+                beatInfo.setNextBeatTime(System.currentTimeMillis() + nextTime);
+            } catch (NacosException ne) {
+                log.error("[CLIENT-BEAT] failed to send beat: {}, code: {}, msg: {}",
+                    JSON.toJSONString(beatInfo), ne.getErrCode(), ne.getErrMsg());
+
+            }
+            //重新调度下个心跳任务
+            executorService.schedule(new BeatTask(beatInfo), nextTime, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 批量心跳任务
+     */
+    private class BatchBeatTask implements Runnable {
+
+        @Override
+        public void run() {
+            // 异常会终止周期调度，所有心跳随之停止
+            try {
+                sendDueBeats();
+            } catch (Throwable e) {
+                log.error("[CLIENT-BEAT] failed to send batch beats.", e);
+            }
+        }
+
+        private void sendDueBeats() {
+            long now = System.currentTimeMillis();
+            if (!batchBeatEnabled) {
+                if (now < batchBeatRetryTime) {
+                    return;
                 }
-                BeatReactor.this.lightBeatEnabled = lightBeatEnabled;
-                if (interval > 0) {
-                    nextTime = interval;
+                log.info("[CLIENT-BEAT] retry batch beat.");
+                synchronized (dom2Beat) {
+                    batchBeatEnabled = true;
                 }
-                int code = NamingResponseCode.OK;
-                if (result.containsKey(CommonParams.CODE)) {
-                    code = result.getIntValue(CommonParams.CODE);
+            }
+
+            boolean due = false;
+            for (BeatInfo beatInfo : dom2Beat.values()) {
+                if (!beatInfo.isStopped() && beatInfo.getNextBeatTime() <= now) {
+                    due = true;
+                    break;
                 }
+            }
+            if (!due) {
+                return;
+            }
 
-                //服务未注册到nacos，则重新注册
-                if (code == NamingResponseCode.RESOURCE_NOT_FOUND) {
-                    Instance instance = new Instance();
-                    instance.setPort(beatInfo.getPort());
-                    instance.setIp(beatInfo.getIp());
-                    instance.setWeight(beatInfo.getWeight());
-                    instance.setMetadata(beatInfo.getMetadata());
-                    instance.setClusterName(beatInfo.getCluster());
-                    instance.setServiceName(beatInfo.getServiceName());
-                    instance.setInstanceId(instance.getInstanceId());
-                    instance.setEphemeral(true);
-                    try {
-                        serverProxy.registerService(beatInfo.getServiceName(),NamingUtils.getGroupName(beatInfo.getServiceName()), instance);
-                    } catch (Exception ignore) {
-                    }
+            // 半个周期内将到期的心跳提前一起发送，不同时间注册的实例因此逐渐合并到同一个请求中:
+            List<BeatInfo> beats = new ArrayList<>();
+            for (BeatInfo beatInfo : dom2Beat.values()) {
+                if (!beatInfo.isStopped() && beatInfo.getNextBeatTime() <= now + beatInfo.getPeriod() / 2) {
+                    beats.add(beatInfo);
+                }
+            }
+
+            for (int from = 0; from < beats.size() && batchBeatEnabled; from += MAX_BATCH_BEAT_COUNT) {
+                sendBatchBeat(beats.subList(from, Math.min(beats.size(), from + MAX_BATCH_BEAT_COUNT)), now);
+            }
+        }
+
+        private void sendBatchBeat(List<BeatInfo> beats, long now) {
+            try {
+                JSONObject result = serverProxy.sendBatchBeat(beats);
+                JSONArray results = result.getJSONArray("beats");
+                for (int i = 0; i < beats.size(); i++) {
+                    BeatInfo beatInfo = beats.get(i);
+                    long nextTime = results != null && i < results.size() ?
+                        handleBeatResult(beatInfo, results.getJSONObject(i)) : beatInfo.getPeriod();
+                    beatInfo.setNextBeatTime(now + nextTime);
                 }
             } catch (NacosException ne) {
-                log.error("[CLIENT-BEAT] failed to send beat: {}, code: {}, msg: {}",
-                    JSON.toJSONString(beatInfo), ne.getErrCode(), ne.getErrMsg());
+                if (NamingProxy.isBatchBeatRejected(ne.getErrCode())) {
+                    log.warn("[CLIENT-BEAT] batch beat is rejected by server, code: {}, send beats one by one.",
+                        ne.getErrCode());
+                    synchronized (dom2Beat) {
+                        batchBeatRetryTime = now + BATCH_BEAT_RETRY_INTERVAL;
+                        batchBeatEnabled = false;
+                        for (BeatInfo beatInfo : dom2Beat.values()) {
+                            scheduleBeatTask(beatInfo, Math.max(0L, beatInfo.getNextBeatTime() - now));
+                        }
+                    }
+                    return;
+                }
 
+                log.error("[CLIENT-BEAT] failed to send {} beats, code: {}, msg: {}",
+                    beats.size(), ne.getErrCode(), ne.getErrMsg());
+                for (BeatInfo beatInfo : beats) {
+                    beatInfo.setNextBeatTime(now + beatInfo.getPeriod());
+                }
             }
-            //重新调度下个心跳任务
-            executorService.schedule(new BeatTask(beatInfo), nextTime, TimeUnit.MILLISECONDS);
         }
     }
 }
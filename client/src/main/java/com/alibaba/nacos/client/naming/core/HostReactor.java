@@ -16,6 +16,8 @@
 package com.alibaba.nacos.client.naming.core;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 import com.alibaba.nacos.api.naming.pojo.ServiceInfo;
@@ -42,6 +44,8 @@ public class HostReactor {
 
     private static final long UPDATE_HOLD_INTERVAL = 5000L;
 
+    private static final String BASE_HOSTS_CHECKSUM = "baseHostsChecksum";
+
     private final Map<String, ScheduledFuture<?>> futureMap = new HashMap<String, ScheduledFuture<?>>();
 
     private final Map<String, ServiceInfo> serviceInfoMap;
@@ -97,7 +101,20 @@ public class HostReactor {
     }
 
     public ServiceInfo processServiceJSON(String json) {
-        ServiceInfo serviceInfo = JSON.parseObject(json, ServiceInfo.class);
+        ServiceInfo serviceInfo;
+        JSONObject jsonObject = JSON.parseObject(json);
+        // only the changed hosts are sent when the server knows the hosts we hold
+        if (jsonObject.containsKey(BASE_HOSTS_CHECKSUM)) {
+            ServiceInfo delta = jsonObject.toJavaObject(ServiceInfo.class);
+            serviceInfo = applyDelta(delta, jsonObject.getString(BASE_HOSTS_CHECKSUM),
+                jsonObject.getJSONArray("removedHosts"));
+            if (serviceInfo == null) {
+                return serviceInfoMap.get(delta.getKey());
+            }
+            json = JSON.toJSONString(serviceInfo);
+        } else {
+            serviceInfo = jsonObject.toJavaObject(ServiceInfo.class);
+        }
         ServiceInfo oldService = serviceInfoMap.get(serviceInfo.getKey());
         if (serviceInfo.getHosts() == null || !serviceInfo.validate()) {
             //empty or error push, just ignore
@@ -203,6 +220,42 @@ public class HostReactor {
         return serviceInfo;
     }
 
+    /**
+     * Apply the changed hosts to the hosts we hold
+     *
+     * @return service with all hosts, null if the changes are based on other hosts than ours
+     */
+    private ServiceInfo applyDelta(final ServiceInfo delta, String baseHostsChecksum, JSONArray removedHosts) {
+        ServiceInfo oldService = serviceInfoMap.get(delta.getKey());
+        if (oldService == null || !StringUtils.equals(baseHostsChecksum, oldService.getHostsChecksum())) {
+            // a push was lost or overtaken, ask for the hosts again
+            log.warn("changed hosts based on other hosts received, service: {}, base: {}, refresh all hosts",
+                delta.getKey(), baseHostsChecksum);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    updateServiceNow(delta.getName(), delta.getClusters());
+                }
+            });
+            return null;
+        }
+
+        Map<String, Instance> hosts = new LinkedHashMap<String, Instance>(oldService.getHosts().size());
+        for (Instance host : oldService.getHosts()) {
+            hosts.put(ServiceInfo.getHostKey(host), host);
+        }
+        if (removedHosts != null) {
+            for (Object key : removedHosts) {
+                hosts.remove(String.valueOf(key));
+            }
+        }
+        for (Instance host : delta.getHosts()) {
+            hosts.put(ServiceInfo.getHostKey(host), host);
+        }
+        delta.setHosts(new ArrayList<Instance>(hosts.values()));
+        return delta;
+    }
+
     private ServiceInfo getServiceInfo0(String serviceName, String clusters) {
         String key = ServiceInfo.getKey(serviceName, clusters);
         return serviceInfoMap.get(key);
@@ -276,7 +329,10 @@ public class HostReactor {
     public void updateServiceNow(String serviceName, String clusters) {
         ServiceInfo oldService = getServiceInfo0(serviceName, clusters);
         try {
-            String result = serverProxy.queryList(serviceName, clusters, pushReceiver.getUDPPort(), false);
+            String hostsChecksum = oldService == null ? StringUtils.EMPTY
+                : StringUtils.defaultString(oldService.getHostsChecksum());
+            String result = serverProxy.queryList(serviceName, clusters, pushReceiver.getUDPPort(), false,
+                hostsChecksum);
             if (StringUtils.isNotEmpty(result)) {
                 processServiceJSON(result);
             }
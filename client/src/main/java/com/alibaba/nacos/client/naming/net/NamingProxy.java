@@ -45,7 +45,9 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.net.URLEncoder;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.stream.Collectors;
@@ -321,6 +323,15 @@ public class NamingProxy {
 
     public String queryList(String serviceName, String clusters, int udpPort, boolean healthyOnly)
         throws NacosException {
+        return queryList(serviceName, clusters, udpPort, healthyOnly, null);
+    }
+
+    /**
+     * @param hostsChecksum checksum of the hosts held, the server may answer with the changed hosts only; null to
+     *                      always get all hosts
+     */
+    public String queryList(String serviceName, String clusters, int udpPort, boolean healthyOnly,
+                            String hostsChecksum) throws NacosException {
 
         final Map<String, String> params = new HashMap<String, String>(8);
         params.put(CommonParams.NAMESPACE_ID, namespaceId);
@@ -329,6 +340,10 @@ public class NamingProxy {
         params.put("udpPort", String.valueOf(udpPort));
         params.put("clientIP", NetUtils.localIP());
         params.put("healthyOnly", String.valueOf(healthyOnly));
+        if (hostsChecksum != null) {
+            // empty params are not sent, any unknown checksum makes the server answer all hosts
+            params.put("hostsChecksum", StringUtils.isEmpty(hostsChecksum) ? "0" : hostsChecksum);
+        }
 
         return reqAPI(UtilAndComs.NACOS_URL_BASE + "/instance/list", params, HttpMethod.GET);
     }
@@ -359,6 +374,69 @@ public class NamingProxy {
         return JSON.parseObject(result);
     }
 
+    /**
+     * 批量发送客户端服务心跳，每个心跳的结果按顺序在beats中返回
+     * @param beatInfos 服务心跳信息
+     * @return
+     * @throws NacosException
+     */
+    public JSONObject sendBatchBeat(List<BeatInfo> beatInfos) throws NacosException {
+
+        if (log.isDebugEnabled()) {
+            log.debug("[BEAT] {} sending {} heart beats to server", namespaceId, beatInfos.size());
+        }
+        Map<String, String> params = new HashMap<String, String>(4);
+        params.put(CommonParams.NAMESPACE_ID, namespaceId);
+        String body;
+        try {
+            body = "beats=" + URLEncoder.encode(JSON.toJSONString(beatInfos), UtilAndComs.ENCODING);
+        } catch (UnsupportedEncodingException e) {
+            throw new NacosException(NacosException.CLIENT_INVALID_PARAM, e.getMessage());
+        }
+        String api = UtilAndComs.NACOS_URL_BASE + "/instance/beat/batch";
+        List<String> servers = getServerList();
+        if (CollectionUtils.isEmpty(servers)) {
+            return JSON.parseObject(reqAPI(api, params, body, HttpMethod.PUT));
+        }
+
+        // 请求同时探测服务端是否支持批量心跳，旧版本服务端的404/501不是故障，不能加入故障节点:
+        List<String> effectiveServerList = servers.stream().filter(node -> !realTimeFaultNode.contains(node))
+            .collect(Collectors.toList());
+        if (effectiveServerList.isEmpty()) {
+            effectiveServerList = servers;
+        }
+        NacosException exception = new NacosException();
+        int index = new Random(System.currentTimeMillis()).nextInt(effectiveServerList.size());
+        for (int i = 0; i < effectiveServerList.size(); i++) {
+            String server = effectiveServerList.get(index);
+            try {
+                return JSON.parseObject(callServer(api, params, body, server, HttpMethod.PUT));
+            } catch (NacosException e) {
+                if (isBatchBeatRejected(e.getErrCode())) {
+                    throw e;
+                }
+                exception = e;
+                if (log.isDebugEnabled()) {
+                    log.debug("request {} failed.", server, e);
+                }
+                realTimeFaultNode.add(server);
+            }
+            index = (index + 1) % effectiveServerList.size();
+        }
+        throw new NacosException(exception.getErrCode(), "failed to req API:/api/" + api + " after all servers("
+            + servers + ") tried: " + exception.getMessage());
+    }
+
+    /**
+     * 服务端不支持批量心跳（旧版本）或无权按批量接口发送心跳时，应退回为每个实例单独发送心跳
+     * @param code 批量心跳请求的响应码
+     * @return 是否应退回单独发送
+     */
+    public static boolean isBatchBeatRejected(int code) {
+        return code == HttpURLConnection.HTTP_NOT_IMPLEMENTED || code == HttpURLConnection.HTTP_NOT_FOUND
+            || code == HttpURLConnection.HTTP_FORBIDDEN;
+    }
+
     public boolean serverHealthy() {
 
         try {
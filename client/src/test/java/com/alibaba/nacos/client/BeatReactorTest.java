@@ -1,6 +1,10 @@
 package com.alibaba.nacos.client;
 
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.api.naming.CommonParams;
+import com.alibaba.nacos.api.naming.NamingResponseCode;
 import com.alibaba.nacos.client.naming.beat.BeatInfo;
 import com.alibaba.nacos.client.naming.beat.BeatReactor;
 import com.alibaba.nacos.client.naming.net.NamingProxy;
@@ -12,7 +16,10 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.lang.reflect.Field;
+import java.net.HttpURLConnection;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 /**
@@ -48,6 +55,66 @@ public class BeatReactorTest {
         Assert.assertEquals(0, getActiveThread(beatReactor));
     }
 
+    @Test
+    public void testBatchBeat() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<Integer>();
+        Mockito.doAnswer(invocation -> {
+            List<?> beats = (List<?>) invocation.getArguments()[0];
+            batchSizes.add(beats.size());
+            JSONArray results = new JSONArray();
+            for (int i = 0; i < beats.size(); i++) {
+                JSONObject result = new JSONObject();
+                result.put(CommonParams.CODE, NamingResponseCode.OK);
+                result.put("clientBeatInterval", 1000L);
+                results.add(result);
+            }
+            JSONObject result = new JSONObject();
+            result.put("beats", results);
+            return result;
+        }).when(namingProxy).sendBatchBeat(Mockito.anyList());
+
+        BeatReactor beatReactor = new BeatReactor(namingProxy, 1, true);
+        for (int i = 0; i < 3; i++) {
+            beatReactor.addBeatInfo("testService" + i, beatInfo("testService" + i));
+            Thread.sleep(300L);
+        }
+        Thread.sleep(3000L);
+
+        // beats added at different times are sent in one request:
+        Assert.assertTrue(batchSizes.size() >= 2);
+        Assert.assertEquals(Integer.valueOf(3), batchSizes.get(batchSizes.size() - 1));
+        Mockito.verify(namingProxy, Mockito.never()).sendBeat(Mockito.any(BeatInfo.class), Mockito.anyBoolean());
+        Assert.assertTrue(beatReactor.isBatchBeatEnabled());
+    }
+
+    @Test
+    public void testBatchBeatNotSupported() throws Exception {
+        Mockito.doThrow(new NacosException(HttpURLConnection.HTTP_NOT_IMPLEMENTED, "no such api"))
+            .when(namingProxy).sendBatchBeat(Mockito.anyList());
+        Mockito.doReturn(new JSONObject()).when(namingProxy).sendBeat(Mockito.any(BeatInfo.class), Mockito.anyBoolean());
+
+        BeatReactor beatReactor = new BeatReactor(namingProxy, 1, true);
+        BeatInfo beatInfo = beatInfo("testService");
+        beatReactor.addBeatInfo("testService", beatInfo);
+        Thread.sleep(2500L);
+
+        Assert.assertFalse(beatReactor.isBatchBeatEnabled());
+        Mockito.verify(namingProxy, Mockito.atLeastOnce()).sendBeat(beatInfo, false);
+    }
+
+    private static BeatInfo beatInfo(String serviceName) {
+        BeatInfo beatInfo = new BeatInfo();
+        beatInfo.setServiceName(serviceName);
+        beatInfo.setIp("11.11.11.11");
+        beatInfo.setPort(1234);
+        beatInfo.setCluster("clusterName");
+        beatInfo.setWeight(1);
+        beatInfo.setMetadata(new HashMap<String, String>());
+        beatInfo.setScheduled(false);
+        beatInfo.setPeriod(1000L);
+        return beatInfo;
+    }
+
     private int getActiveThread(BeatReactor beatReactor) throws NoSuchFieldException, IllegalAccessException {
         Field field = BeatReactor.class.getDeclaredField("executorService");
         field.setAccessible(true);
@@ -33,6 +33,7 @@ import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author nkorange
@@ -57,6 +58,8 @@ public class CmdbProvider implements CmdbReader, CmdbWriter {
 
     private long eventTimestamp = System.currentTimeMillis();
 
+    private final AtomicLong entityVersion = new AtomicLong();
+
     public CmdbProvider() throws NacosException {
     }
 
@@ -93,6 +96,7 @@ public class CmdbProvider implements CmdbReader, CmdbWriter {
 
         // init entity map:
         entityMap = cmdbService.getAllEntities();
+        entityVersion.incrementAndGet();
     }
 
     @PostConstruct
@@ -128,11 +132,18 @@ public class CmdbProvider implements CmdbReader, CmdbWriter {
         throw new UnsupportedOperationException("Not available now!");
     }
 
+    @Override
+    public long getEntityVersion() {
+        return entityVersion.get();
+    }
+
     public void removeEntity(String entityName, String entityType) {
         if (!entityMap.containsKey(entityType)) {
             return;
         }
-        entityMap.get(entityType).remove(entityName);
+        if (entityMap.get(entityType).remove(entityName) != null) {
+            entityVersion.incrementAndGet();
+        }
     }
 
     public void updateEntity(Entity entity) {
@@ -140,6 +151,7 @@ public class CmdbProvider implements CmdbReader, CmdbWriter {
             return;
         }
         entityMap.get(entity.getType()).put(entity.getName(), entity);
+        entityVersion.incrementAndGet();
     }
 
     public class CmdbLabelTask implements Runnable {
@@ -195,6 +207,7 @@ public class CmdbProvider implements CmdbReader, CmdbWriter {
                 }
                 // refresh entity map:
                 entityMap = cmdbService.getAllEntities();
+                entityVersion.incrementAndGet();
             } catch (Exception e) {
                 log.error("DUMP-TASK {}", "dump failed!", e);
             } finally {
@@ -26,6 +26,11 @@ import java.util.List;
  */
 public interface CmdbReader {
 
+    /**
+     * Version of readers that do not track the changes of the entities
+     */
+    long UNKNOWN_ENTITY_VERSION = -1L;
+
     /**
      * Get entity
      *
@@ -53,4 +58,16 @@ public interface CmdbReader {
      * @return list of entiy
      */
     List<Entity> queryEntitiesByLabel(String labelName, String labelValue);
+
+    /**
+     * Get version of entities, it changes whenever entities are loaded, updated or removed
+     * <p>
+     * Readers that do not track the changes return {@link #UNKNOWN_ENTITY_VERSION}, the labels read from them are then
+     * never reused across queries.
+     *
+     * @return version of entities
+     */
+    default long getEntityVersion() {
+        return UNKNOWN_ENTITY_VERSION;
+    }
 }
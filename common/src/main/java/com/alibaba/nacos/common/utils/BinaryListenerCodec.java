@@ -0,0 +1,240 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.common.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Length-prefixed binary encoding of the config listener request (Listening-Configs).
+ * <p>
+ * Layout: one version byte, then for every listened config: dataId, group and tenant as varint length + UTF-8 bytes
+ * (tenant may be empty), followed by the md5 as a type byte and either nothing (empty md5), 16 raw bytes (lower case
+ * hex md5) or varint length + UTF-8 bytes (anything else). A session delta may also carry removed configs, which have
+ * no md5.
+ *
+ * @author nacos
+ */
+public class BinaryListenerCodec {
+
+    /**
+     * Header announcing (response) or declaring (request) the listener protocol.
+     */
+    public static final String PROTOCOL_HEADER = "Listener-Protocol";
+
+    public static final String PROTOCOL_BINARY = "binary";
+
+    public static final String CONTENT_TYPE = "application/x-nacos-listener";
+
+    /**
+     * Header carrying the listener session id, or {@link #SESSION_OPEN} to ask the server to open a session.
+     */
+    public static final String SESSION_HEADER = "Listener-Session";
+
+    public static final String SESSION_OPEN = "open";
+
+    private static final byte VERSION = 1;
+
+    private static final byte MD5_EMPTY = 0;
+
+    private static final byte MD5_RAW = 1;
+
+    private static final byte MD5_STRING = 2;
+
+    private static final byte REMOVED = 3;
+
+    private static final int MD5_RAW_LENGTH = 16;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Callback for every decoded config.
+     */
+    public interface Visitor {
+
+        /**
+         * Visit one listened config.
+         *
+         * @param dataId dataId
+         * @param group  group
+         * @param tenant tenant, empty string if absent
+         * @param md5    md5 known by the client, empty string if absent, null if the config is no longer listened
+         */
+        void visit(String dataId, String group, String tenant, String md5);
+    }
+
+    /**
+     * Encoder for one listener request.
+     */
+    public static class Encoder {
+
+        private final ByteArrayOutputStream out;
+
+        private int count;
+
+        public Encoder(int expectedCount) {
+            out = new ByteArrayOutputStream(Math.max(32, expectedCount * 64));
+            out.write(VERSION);
+        }
+
+        public Encoder add(String dataId, String group, String tenant, String md5) {
+            writeString(dataId);
+            writeString(group);
+            writeString(tenant);
+            if (md5 == null || md5.isEmpty()) {
+                out.write(MD5_EMPTY);
+            } else if (isLowerHexMd5(md5)) {
+                out.write(MD5_RAW);
+                for (int i = 0; i < md5.length(); i += 2) {
+                    out.write((hexValue(md5.charAt(i)) << 4) | hexValue(md5.charAt(i + 1)));
+                }
+            } else {
+                out.write(MD5_STRING);
+                writeString(md5);
+            }
+            count++;
+            return this;
+        }
+
+        public Encoder remove(String dataId, String group, String tenant) {
+            writeString(dataId);
+            writeString(group);
+            writeString(tenant);
+            out.write(REMOVED);
+            count++;
+            return this;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void writeString(String value) {
+            if (value == null || value.isEmpty()) {
+                out.write(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(UTF8);
+            int length = bytes.length;
+            while ((length & ~0x7F) != 0) {
+                out.write((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            out.write(length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Decode a listener request.
+     *
+     * @param bytes   encoded request
+     * @param maxSize maximum number of configs accepted
+     * @param visitor callback for every config
+     * @return number of decoded configs
+     * @throws IllegalArgumentException if the request is malformed
+     */
+    public static int decode(byte[] bytes, int maxSize, Visitor visitor) {
+        if (bytes == null || bytes.length == 0 || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("invalid listener protocol version");
+        }
+        int[] pos = {1};
+        int count = 0;
+        while (pos[0] < bytes.length) {
+            String dataId = readString(bytes, pos);
+            String group = readString(bytes, pos);
+            String tenant = readString(bytes, pos);
+            String md5;
+            byte type = readByte(bytes, pos);
+            if (type == MD5_EMPTY) {
+                md5 = "";
+            } else if (type == MD5_RAW) {
+                if (pos[0] + MD5_RAW_LENGTH > bytes.length) {
+                    throw new IllegalArgumentException("invalid listener protocol, truncated md5");
+                }
+                char[] chars = new char[MD5_RAW_LENGTH * 2];
+                for (int i = 0; i < MD5_RAW_LENGTH; i++) {
+                    int b = bytes[pos[0] + i] & 0xFF;
+                    chars[i * 2] = HEX[b >>> 4];
+                    chars[i * 2 + 1] = HEX[b & 0x0F];
+                }
+                pos[0] += MD5_RAW_LENGTH;
+                md5 = new String(chars);
+            } else if (type == MD5_STRING) {
+                md5 = readString(bytes, pos);
+            } else if (type == REMOVED) {
+                md5 = null;
+            } else {
+                throw new IllegalArgumentException("invalid listener protocol, md5 type " + type);
+            }
+            if (++count > maxSize) {
+                throw new IllegalArgumentException("invalid protocol, too much listener");
+            }
+            visitor.visit(dataId, group, tenant, md5);
+        }
+        return count;
+    }
+
+    private static byte readByte(byte[] bytes, int[] pos) {
+        if (pos[0] >= bytes.length) {
+            throw new IllegalArgumentException("invalid listener protocol, truncated");
+        }
+        return bytes[pos[0]++];
+    }
+
+    private static String readString(byte[] bytes, int[] pos) {
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28) {
+                throw new IllegalArgumentException("invalid listener protocol, malformed length");
+            }
+            byte b = readByte(bytes, pos);
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (length < 0 || pos[0] + length > bytes.length) {
+            throw new IllegalArgumentException("invalid listener protocol, truncated string");
+        }
+        String value = length == 0 ? "" : new String(bytes, pos[0], length, UTF8);
+        pos[0] += length;
+        return value;
+    }
+
+    private static boolean isLowerHexMd5(String md5) {
+        if (md5.length() != MD5_RAW_LENGTH * 2) {
+            return false;
+        }
+        for (int i = 0; i < md5.length(); i++) {
+            char c = md5.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        return c <= '9' ? c - '0' : c - 'a' + 10;
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.common.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hashed wheel timer for large amounts of approximately timed timeouts.
+ * <p>
+ * Adding and cancelling a timeout is O(1) and never touches a shared heap: new and cancelled timeouts are handed to the
+ * worker thread through lock-free queues, and the worker expires a whole bucket per tick. Timeouts therefore fire with
+ * a precision of one tick.
+ *
+ * @author nacos
+ */
+public class HashedWheelTimer {
+
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    private final long tickDuration;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final Executor taskExecutor;
+
+    private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<WheelTimeout>();
+
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<WheelTimeout>();
+
+    private final AtomicLong liveTimeouts = new AtomicLong();
+
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+    private final Thread workerThread;
+
+    private final long startTime;
+
+    /**
+     * Create a timer whose expired timeouts run on the timer thread.
+     *
+     * @param name          name of the worker thread
+     * @param tickDuration  duration of one tick
+     * @param unit          unit of tickDuration
+     * @param ticksPerWheel number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(name, tickDuration, unit, ticksPerWheel, null);
+    }
+
+    /**
+     * Create a timer.
+     *
+     * @param name          name of the worker thread
+     * @param tickDuration  duration of one tick
+     * @param unit          unit of tickDuration
+     * @param ticksPerWheel number of buckets, rounded up to a power of two
+     * @param taskExecutor  executor for the timeouts expired in one tick, null to run them on the timer thread
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, Executor taskExecutor) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be in (0, 2^30]: " + ticksPerWheel);
+        }
+        int normalized = 1;
+        while (normalized < ticksPerWheel) {
+            normalized <<= 1;
+        }
+        this.wheel = new Bucket[normalized];
+        for (int i = 0; i < normalized; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = normalized - 1;
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.taskExecutor = taskExecutor;
+        this.startTime = System.nanoTime();
+        this.workerThread = new Thread(new Worker(), name);
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    /**
+     * Schedule a task to run once after the given delay.
+     *
+     * @param task  task to run, it should handle its own exceptions
+     * @param delay delay before the task runs
+     * @param unit  unit of delay
+     * @return handle used to cancel the task
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new IllegalArgumentException("task is null");
+        }
+        if (shutdown.get()) {
+            throw new IllegalStateException("timer is already stopped");
+        }
+        long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay));
+        WheelTimeout timeout = new WheelTimeout(task, deadline);
+        liveTimeouts.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return number of scheduled timeouts which are neither expired nor cancelled
+     */
+    public long size() {
+        return liveTimeouts.get();
+    }
+
+    /**
+     * Stop the worker thread, timeouts which have not expired yet are dropped.
+     */
+    public void stop() {
+        if (shutdown.compareAndSet(false, true)) {
+            workerThread.interrupt();
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public interface Timeout {
+
+        /**
+         * Cancel the task.
+         *
+         * @return true if the task was cancelled by this call, false if it already expired or was cancelled
+         */
+        boolean cancel();
+
+        /**
+         * @return whether the task has been cancelled
+         */
+        boolean isCancelled();
+
+        /**
+         * @return whether the task has expired and been handed over for execution
+         */
+        boolean isExpired();
+    }
+
+    private final class Worker implements Runnable {
+
+        private long tick;
+
+        @Override
+        public void run() {
+            while (!shutdown.get()) {
+                long deadline = waitForNextTick();
+                if (deadline < 0) {
+                    continue;
+                }
+                removeCancelledTimeouts();
+                transferPendingTimeouts();
+
+                List<WheelTimeout> expired = wheel[(int) (tick & mask)].expireTimeouts(deadline);
+                tick++;
+                if (!expired.isEmpty()) {
+                    runExpired(expired);
+                }
+            }
+        }
+
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+            for (; ; ) {
+                long current = System.nanoTime() - startTime;
+                long sleepMs = (deadline - current + 999999) / 1000000;
+                if (sleepMs <= 0) {
+                    return deadline;
+                }
+                try {
+                    Thread.sleep(sleepMs);
+                } catch (InterruptedException e) {
+                    if (shutdown.get()) {
+                        return -1;
+                    }
+                }
+            }
+        }
+
+        private void removeCancelledTimeouts() {
+            WheelTimeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+        }
+
+        private void transferPendingTimeouts() {
+            for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+                WheelTimeout timeout = pendingTimeouts.poll();
+                if (timeout == null) {
+                    return;
+                }
+                if (timeout.isCancelled()) {
+                    continue;
+                }
+                long calculated = timeout.deadline / tickDuration;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                // timeouts already past their deadline go to the current bucket
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void runExpired(final List<WheelTimeout> expired) {
+            Runnable batch = new Runnable() {
+                @Override
+                public void run() {
+                    for (WheelTimeout timeout : expired) {
+                        try {
+                            timeout.task.run();
+                        } catch (Throwable ignore) {
+                            // tasks handle their own exceptions, only keep the batch and the worker alive
+                        }
+                    }
+                }
+            };
+            if (taskExecutor == null) {
+                batch.run();
+                return;
+            }
+            try {
+                taskExecutor.execute(batch);
+            } catch (Throwable t) {
+                batch.run();
+            }
+        }
+    }
+
+    private final class WheelTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        private final Runnable task;
+
+        private final long deadline;
+
+        /**
+         * The following fields are only accessed by the worker thread.
+         */
+        private long remainingRounds;
+
+        private Bucket bucket;
+
+        private WheelTimeout next;
+
+        private WheelTimeout prev;
+
+        WheelTimeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            liveTimeouts.decrementAndGet();
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        boolean expire() {
+            if (!state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                return false;
+            }
+            liveTimeouts.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, only accessed by the worker thread.
+     */
+    private static final class Bucket {
+
+        private WheelTimeout head;
+
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        List<WheelTimeout> expireTimeouts(long deadline) {
+            List<WheelTimeout> expired = new ArrayList<WheelTimeout>();
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                    remove(timeout);
+                    if (timeout.expire()) {
+                        expired.add(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+            return expired;
+        }
+
+        void remove(WheelTimeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = timeout.next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
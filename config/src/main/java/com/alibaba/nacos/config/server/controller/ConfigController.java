@@ -16,6 +16,7 @@
 package com.alibaba.nacos.config.server.controller;
 
 import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.common.utils.BinaryListenerCodec;
 import com.alibaba.nacos.config.server.auth.ConfigResourceParser;
 import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.controller.parameters.SameNamespaceCloneConfigBean;
@@ -25,6 +26,7 @@ import com.alibaba.nacos.config.server.result.code.ResultCodeEnum;
 import com.alibaba.nacos.config.server.service.AggrWhitelist;
 import com.alibaba.nacos.config.server.service.ConfigDataChangeEvent;
 import com.alibaba.nacos.config.server.service.ConfigSubService;
+import com.alibaba.nacos.config.server.service.ListenerSessionService;
 import com.alibaba.nacos.config.server.service.PersistService;
 import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
 import com.alibaba.nacos.config.server.utils.*;
@@ -39,6 +41,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -272,6 +275,40 @@ public class ConfigController {
     @Secured(action = ActionTypes.READ, parser = ConfigResourceParser.class)
     public void listener(HttpServletRequest request, HttpServletResponse response) throws IOException {
         request.setAttribute("org.apache.catalina.ASYNC_SUPPORTED", true);
+        // 告知客户端支持二进制监听协议
+        response.setHeader(BinaryListenerCodec.PROTOCOL_HEADER, BinaryListenerCodec.PROTOCOL_BINARY);
+
+        String contentType = request.getContentType();
+        if (contentType != null && contentType.startsWith(BinaryListenerCodec.CONTENT_TYPE)) {
+            byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+            String sessionId = request.getHeader(BinaryListenerCodec.SESSION_HEADER);
+            boolean isDelta = StringUtils.isNotBlank(sessionId) && !BinaryListenerCodec.SESSION_OPEN.equals(sessionId);
+            Map<String, String> clientMd5Map;
+            try {
+                clientMd5Map = isDelta ? ListenerSessionService.merge(sessionId, body) : MD5Util.getClientMd5Map(body);
+            } catch (Throwable e) {
+                throw new IllegalArgumentException("invalid binary probeModify");
+            }
+
+            if (isDelta && clientMd5Map == null) {
+                // 会话已过期或不在本机，客户端需重新上报全量监听列表
+                response.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
+                return;
+            }
+            if (!isDelta && BinaryListenerCodec.SESSION_OPEN.equals(sessionId)) {
+                sessionId = ListenerSessionService.open(clientMd5Map);
+            }
+            if (StringUtils.isNotBlank(sessionId)) {
+                response.setHeader(BinaryListenerCodec.SESSION_HEADER, sessionId);
+            }
+
+            log.info("listen config size: {}", clientMd5Map.size());
+
+            // do long-polling
+            configServletInner.doPollingConfig(request, response, clientMd5Map, body.length);
+            return;
+        }
+
         String probeModify = request.getParameter("Listening-Configs");
         if (StringUtils.isBlank(probeModify)) {
             throw new IllegalArgumentException("invalid probeModify");
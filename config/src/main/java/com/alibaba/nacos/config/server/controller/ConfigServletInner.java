@@ -15,32 +15,40 @@
  */
 package com.alibaba.nacos.config.server.controller;
 
+import com.alibaba.nacos.common.utils.Md5Utils;
 import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.model.CacheContent;
 import com.alibaba.nacos.config.server.model.CacheItem;
 import com.alibaba.nacos.config.server.model.ConfigInfoBase;
+import com.alibaba.nacos.config.server.service.ConfigContentCache;
 import com.alibaba.nacos.config.server.service.ConfigService;
 import com.alibaba.nacos.config.server.service.DiskUtil;
 import com.alibaba.nacos.config.server.service.LongPollingService;
 import com.alibaba.nacos.config.server.service.PersistService;
+import com.alibaba.nacos.config.server.service.TimerTaskService;
 import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
 import com.alibaba.nacos.config.server.utils.*;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URLEncoder;
-import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.STANDALONE_MODE;
 
@@ -59,10 +67,22 @@ public class ConfigServletInner {
     @Autowired
     private PersistService persistService;
 
-    private static final int TRY_GET_LOCK_TIMES = 9;
+    private static final int TRY_READ_TIMES = 9;
 
     private static final int START_LONGPOLLING_VERSION_NUM = 204;
 
+    /**
+     * sendfile链接的保留时间，远大于请求结束到容器打开文件的间隔
+     */
+    private static final long SENDFILE_LINK_EXPIRE_SECONDS = 60;
+
+    @PostConstruct
+    public void init() {
+        TimerTaskService.scheduleWithFixedDelay(() -> DiskUtil.cleanSendfileLinks(
+            System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(SENDFILE_LINK_EXPIRE_SECONDS)),
+            SENDFILE_LINK_EXPIRE_SECONDS, SENDFILE_LINK_EXPIRE_SECONDS, TimeUnit.SECONDS);
+    }
+
     /**
      * 配置数据轮询接口
      */
@@ -116,27 +136,41 @@ public class ConfigServletInner {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
         String autoTag = request.getHeader("Vipserver-Tag");
         String requestIpApp = RequestUtil.getAppName(request);
-        int lockResult = tryConfigReadLock(groupKey);
-
         final String requestIp = RequestUtil.getRemoteIp(request);
-        boolean isBeta = false;
-        if (lockResult > 0) {
+
+        /**
+         *  不加读锁：内存缓存的内容是不可变快照，直接返回；其余情况按版本号校验，读取期间有dump写入则按已读到的内容计算md5
+         */
+        for (int retry = TRY_READ_TIMES; ; --retry) {
+            CacheItem cacheItem = ConfigService.getContentCache(groupKey);
+            if (cacheItem == null) {
+
+                // FIXME CacheItem 不存在了无法简单的计算推送delayed，这里简单的记做-1
+                ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
+                    ConfigTraceService.PULL_EVENT_NOTFOUND, -1, requestIp);
+
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                response.getWriter().println("config data not exist");
+                return HttpServletResponse.SC_NOT_FOUND + "";
+            }
+            final long version = cacheItem.getVersion();
+            boolean isBeta = false;
             FileInputStream fis = null;
+            File sendfileLink = null;
+            boolean sendfile = false;
             try {
                 String md5 = Constants.NULL;
                 long lastModified = 0L;
-                CacheItem cacheItem = ConfigService.getContentCache(groupKey);
-                if (cacheItem != null) {
-                    if (cacheItem.isBeta()) {
-                        if (cacheItem.getIps4Beta().contains(clientIp)) {
-                            isBeta = true;
-                        }
+                if (cacheItem.isBeta()) {
+                    if (cacheItem.getIps4Beta().contains(clientIp)) {
+                        isBeta = true;
                     }
-                    String configType = cacheItem.getType();
-                    response.setHeader("Config-Type", (null != configType) ? configType : "text");
                 }
+                String configType = cacheItem.getType();
+                response.setHeader("Config-Type", (null != configType) ? configType : "text");
                 File file = null;
                 ConfigInfoBase configInfoBase = null;
+                CacheContent cacheContent = null;
                 PrintWriter out = null;
                 if (isBeta) {
                     md5 = cacheItem.getMd54Beta();
@@ -150,13 +184,11 @@ public class ConfigServletInner {
                 } else {
                     if (StringUtils.isBlank(tag)) {
                         if (isUseTag(cacheItem, autoTag)) {
-                            if (cacheItem != null) {
-                                if (cacheItem.tagMd5 != null) {
-                                    md5 = cacheItem.tagMd5.get(autoTag);
-                                }
-                                if (cacheItem.tagLastModifiedTs != null) {
-                                    lastModified = cacheItem.tagLastModifiedTs.get(autoTag);
-                                }
+                            if (cacheItem.tagMd5 != null) {
+                                md5 = cacheItem.tagMd5.get(autoTag);
+                            }
+                            if (cacheItem.tagLastModifiedTs != null) {
+                                lastModified = cacheItem.tagLastModifiedTs.get(autoTag);
                             }
                             if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
                                 configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, autoTag);
@@ -167,14 +199,21 @@ public class ConfigServletInner {
                             response.setHeader("Vipserver-Tag",
                                 URLEncoder.encode(autoTag, StandardCharsets.UTF_8.displayName()));
                         } else {
-                            md5 = cacheItem.getMd5();
-                            lastModified = cacheItem.getLastModifiedTs();
-                            if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                                configInfoBase = persistService.findConfigInfo(dataId, group, tenant);
+                            // 优先使用内存中的不可变快照，md5与内容一致，无需校验版本
+                            cacheContent = ConfigContentCache.get(cacheItem);
+                            if (cacheContent != null) {
+                                md5 = cacheContent.getMd5();
+                                lastModified = cacheContent.getLastModifiedTs();
                             } else {
-                                file = DiskUtil.targetFile(dataId, group, tenant);
+                                md5 = cacheItem.getMd5();
+                                lastModified = cacheItem.getLastModifiedTs();
+                                if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+                                    configInfoBase = persistService.findConfigInfo(dataId, group, tenant);
+                                } else {
+                                    file = DiskUtil.targetFile(dataId, group, tenant);
+                                }
                             }
-                            if (configInfoBase == null && fileNotExist(file)) {
+                            if (cacheContent == null && configInfoBase == null && fileNotExist(file)) {
                                 // FIXME CacheItem
                                 // 不存在了无法简单的计算推送delayed，这里简单的记做-1
                                 ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
@@ -190,15 +229,13 @@ public class ConfigServletInner {
                             }
                         }
                     } else {
-                        if (cacheItem != null) {
-                            if (cacheItem.tagMd5 != null) {
-                                md5 = cacheItem.tagMd5.get(tag);
-                            }
-                            if (cacheItem.tagLastModifiedTs != null) {
-                                Long lm = cacheItem.tagLastModifiedTs.get(tag);
-                                if (lm != null) {
-                                    lastModified = lm;
-                                }
+                        if (cacheItem.tagMd5 != null) {
+                            md5 = cacheItem.tagMd5.get(tag);
+                        }
+                        if (cacheItem.tagLastModifiedTs != null) {
+                            Long lm = cacheItem.tagLastModifiedTs.get(tag);
+                            if (lm != null) {
+                                lastModified = lm;
                             }
                         }
                         if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
@@ -224,6 +261,38 @@ public class ConfigServletInner {
                     }
                 }
 
+                byte[] snapshot = null;
+                if (cacheContent == null) {
+                    // dump整体替换文件，打开后读到的是同一版本的内容；sendfile时容器按文件名打开，先链接到当前版本
+                    if (file != null) {
+                        if (ResponseUtil.isSendfileSupported(request)
+                            && file.length() >= ResponseUtil.SENDFILE_THRESHOLD) {
+                            sendfileLink = DiskUtil.linkForSendfile(file);
+                        }
+                        try {
+                            fis = new FileInputStream(sendfileLink != null ? sendfileLink : file);
+                        } catch (FileNotFoundException e) {
+                            // 打开前配置被删除，重新检查配置是否存在
+                            if (retry > 0) {
+                                continue;
+                            }
+                            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                            response.getWriter().println("config data not exist");
+                            return HttpServletResponse.SC_NOT_FOUND + "";
+                        }
+                    }
+                    if (!cacheItem.isVersionUnchanged(version)) {
+                        // 读取期间有dump写入，md5可能与已读到的内容不是同一版本：按已读到的内容重新计算md5
+                        log.info("[client-get] clientIp={}, {}, get data during dump", clientIp, groupKey);
+                        if (fis != null) {
+                            snapshot = IOUtils.toByteArray(fis);
+                            md5 = Md5Utils.getMD5(snapshot);
+                        } else if (configInfoBase != null) {
+                            md5 = Md5Utils.getMD5(configInfoBase.getContent(), Constants.ENCODE);
+                        }
+                    }
+                }
+
                 response.setHeader(Constants.CONTENT_MD5, md5);
                 /**
                  *  禁用缓存
@@ -231,21 +300,32 @@ public class ConfigServletInner {
                 response.setHeader("Pragma", "no-cache");
                 response.setDateHeader("Expires", 0);
                 response.setHeader("Cache-Control", "no-cache,no-store");
-                if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+                if (cacheContent != null || (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql())) {
                     response.setDateHeader("Last-Modified", lastModified);
                 } else {
-                    fis = new FileInputStream(file);
                     response.setDateHeader("Last-Modified", file.lastModified());
                 }
 
-                if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+                if (cacheContent != null) {
+                    // 压缩内容随版本缓存，同一版本只压缩一次
+                    String contentEncoding = cacheContent.size() >= ContentEncodingUtil.MIN_COMPRESS_SIZE
+                        ? ContentEncodingUtil.negotiate(request) : null;
+                    response.setHeader("Vary", "Accept-Encoding");
+                    byte[] bytes = contentEncoding == null ? cacheContent.getBytes()
+                        : ConfigContentCache.getEncodedBytes(cacheItem, cacheContent, contentEncoding);
+                    ContentEncodingUtil.writeBytes(response, bytes, contentEncoding);
+                } else if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
                     out = response.getWriter();
                     out.print(configInfoBase.getContent());
                     out.flush();
                     out.close();
+                } else if (snapshot != null) {
+                    ContentEncodingUtil.writeBytes(response, snapshot, null);
+                } else if (sendfileLink != null) {
+                    ResponseUtil.sendFile(request, response, sendfileLink, fis.getChannel().size());
+                    sendfile = true;
                 } else {
-                    fis.getChannel().transferTo(0L, fis.getChannel().size(),
-                        Channels.newChannel(response.getOutputStream()));
+                    ResponseUtil.writeFile(response, fis.getChannel());
                 }
 
                 log.warn("{}|{}|{}|{}", groupKey, requestIp, md5, TimeUtils.getCurrentTimeStr());
@@ -258,73 +338,16 @@ public class ConfigServletInner {
                     ConfigTraceService.PULL_EVENT_OK, delayed,
                     requestIp);
 
+                return HttpServletResponse.SC_OK + "";
             } finally {
-                releaseConfigReadLock(groupKey);
                 if (null != fis) {
                     fis.close();
                 }
-            }
-        } else if (lockResult == 0) {
-
-            // FIXME CacheItem 不存在了无法简单的计算推送delayed，这里简单的记做-1
-            ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
-                ConfigTraceService.PULL_EVENT_NOTFOUND, -1, requestIp);
-
-            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-            response.getWriter().println("config data not exist");
-            return HttpServletResponse.SC_NOT_FOUND + "";
-
-        } else {
-
-            log.info("[client-get] clientIp={}, {}, get data during dump", clientIp, groupKey);
-            response.setStatus(HttpServletResponse.SC_CONFLICT);
-            response.getWriter().println("requested file is being modified, please try later.");
-            return HttpServletResponse.SC_CONFLICT + "";
-
-        }
-
-        return HttpServletResponse.SC_OK + "";
-    }
-
-    private static void releaseConfigReadLock(String groupKey) {
-        ConfigService.releaseReadLock(groupKey);
-    }
-
-    private static int tryConfigReadLock(String groupKey) {
-        /**
-         *  默认加锁失败
-         */
-        int lockResult = -1;
-        /**
-         *  尝试加锁，最多10次
-         */
-        for (int i = TRY_GET_LOCK_TIMES; i >= 0; --i) {
-            lockResult = ConfigService.tryReadLock(groupKey);
-            /**
-             *  数据不存在
-             */
-            if (0 == lockResult) {
-                break;
-            }
-
-            /**
-             *  success
-             */
-            if (lockResult > 0) {
-                break;
-            }
-            /**
-             *  retry
-             */
-            if (i > 0) {
-                try {
-                    Thread.sleep(1);
-                } catch (Exception e) {
+                if (sendfileLink != null && !sendfile) {
+                    FileUtils.deleteQuietly(sendfileLink);
                 }
             }
         }
-
-        return lockResult;
     }
 
     private static boolean isUseTag(CacheItem cacheItem, String tag) {
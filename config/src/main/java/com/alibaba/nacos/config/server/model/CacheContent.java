@@ -0,0 +1,107 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.model;
+
+import com.alibaba.nacos.config.server.utils.ContentEncodingUtil;
+
+/**
+ * 内存中缓存的配置内容，不可变。bytes为按{@link com.alibaba.nacos.config.server.constant.Constants#ENCODE}编码后的响应内容
+ *
+ * @author Nacos
+ */
+public class CacheContent {
+
+    private final String md5;
+
+    private final long lastModifiedTs;
+
+    private final byte[] bytes;
+
+    /**
+     * 压缩后的内容，每个版本只在首次请求时压缩一次。由ConfigContentCache在持有缓存锁时设置，并计入缓存总大小
+     */
+    private volatile byte[] gzipBytes;
+
+    private volatile byte[] deflateBytes;
+
+    public CacheContent(String md5, long lastModifiedTs, byte[] bytes) {
+        this.md5 = md5;
+        this.lastModifiedTs = lastModifiedTs;
+        this.bytes = bytes;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public long getLastModifiedTs() {
+        return lastModifiedTs;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * @return 原始内容与已缓存的压缩内容占用的总字节数
+     */
+    public long memorySize() {
+        long size = bytes.length;
+        byte[] gzip = gzipBytes;
+        if (gzip != null) {
+            size += gzip.length;
+        }
+        byte[] deflate = deflateBytes;
+        if (deflate != null) {
+            size += deflate.length;
+        }
+        return size;
+    }
+
+    /**
+     * 获取按指定编码压缩后的内容
+     *
+     * @param encoding gzip或deflate
+     * @return 压缩后的内容，尚未压缩时返回null
+     */
+    public byte[] getEncodedBytes(String encoding) {
+        return ContentEncodingUtil.GZIP.equals(encoding) ? gzipBytes : deflateBytes;
+    }
+
+    /**
+     * 设置压缩后的内容，已设置过时不覆盖
+     *
+     * @return 是否设置成功
+     */
+    public boolean setEncodedBytes(String encoding, byte[] encodedBytes) {
+        if (ContentEncodingUtil.GZIP.equals(encoding)) {
+            if (gzipBytes != null) {
+                return false;
+            }
+            gzipBytes = encodedBytes;
+            return true;
+        }
+        if (deflateBytes != null) {
+            return false;
+        }
+        deflateBytes = encodedBytes;
+        return true;
+    }
+}
@@ -109,6 +109,23 @@ public class CacheItem {
         this.tagLastModifiedTs = tagLastModifiedTs;
     }
 
+    public CacheContent getContent() {
+        return content;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * 读取期间没有dump写入，读到的md5与磁盘内容属于同一版本
+     *
+     * @param version 读取前的版本号
+     */
+    public boolean isVersionUnchanged(long version) {
+        return (version & 1) == 0 && this.version == version;
+    }
+
     public String getType() {
         return type;
     }
@@ -133,4 +150,14 @@ public class CacheItem {
     public SimpleReadWriteLock rwLock = new SimpleReadWriteLock();
     public String type;
 
+    /**
+     * 内存中缓存的配置内容，未缓存或已被淘汰时为null
+     */
+    public volatile CacheContent content;
+
+    /**
+     * 写入版本号，持有写锁时递增两次：开始写入时为奇数，写入完成后为偶数。读取不加锁，通过前后版本号校验一致性
+     */
+    public volatile long version;
+
 }
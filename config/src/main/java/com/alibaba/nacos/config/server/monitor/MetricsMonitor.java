@@ -33,6 +33,9 @@ public class MetricsMonitor {
     private static AtomicInteger configCount = new AtomicInteger();
     private static AtomicInteger notifyTask = new AtomicInteger();
     private static AtomicInteger dumpTask = new AtomicInteger();
+    private static AtomicInteger longPollingDispatchQueue = new AtomicInteger();
+    private static AtomicInteger longPollingResponseQueue = new AtomicInteger();
+    private static AtomicInteger dumpAllProgress = new AtomicInteger();
 
     static {
         List<Tag> tags = new ArrayList<Tag>();
@@ -65,6 +68,21 @@ public class MetricsMonitor {
         tags.add(new ImmutableTag("name", "dumpTask"));
 
         Metrics.gauge("nacos_monitor", tags, dumpTask);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "longPollingDispatchQueue"));
+        Metrics.gauge("nacos_monitor", tags, longPollingDispatchQueue);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "longPollingResponseQueue"));
+        Metrics.gauge("nacos_monitor", tags, longPollingResponseQueue);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "dumpAllProgress"));
+        Metrics.gauge("nacos_monitor", tags, dumpAllProgress);
     }
 
     public static AtomicInteger getConfigMonitor() {
@@ -91,11 +109,43 @@ public class MetricsMonitor {
         return dumpTask;
     }
 
+    public static AtomicInteger getLongPollingDispatchQueueMonitor() {
+        return longPollingDispatchQueue;
+    }
+
+    public static AtomicInteger getLongPollingResponseQueueMonitor() {
+        return longPollingResponseQueue;
+    }
+
+    public static AtomicInteger getDumpAllProgressMonitor() {
+        return dumpAllProgress;
+    }
+
     public static Timer getNotifyRtTimer() {
         return Metrics.timer("nacos_timer",
             "module", "config", "name", "notifyRt");
     }
 
+    public static Timer getLongPollingFanOutTimer() {
+        return Metrics.timer("nacos_timer",
+            "module", "config", "name", "longPollingFanOut");
+    }
+
+    public static Timer getLongPollingDispatchTimer() {
+        return Metrics.timer("nacos_timer",
+            "module", "config", "name", "longPollingDispatch");
+    }
+
+    public static Timer getLongPollingResponseTimer() {
+        return Metrics.timer("nacos_timer",
+            "module", "config", "name", "longPollingResponse");
+    }
+
+    public static Timer getDumpAllTimer() {
+        return Metrics.timer("nacos_timer",
+            "module", "config", "name", "dumpAll");
+    }
+
     public static Counter getIllegalArgumentException() {
         return Metrics.counter("nacos_exception",
             "module", "config", "name", "illegalArgument");
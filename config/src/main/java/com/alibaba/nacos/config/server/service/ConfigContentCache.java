@@ -0,0 +1,156 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.model.CacheContent;
+import com.alibaba.nacos.config.server.model.CacheItem;
+import com.alibaba.nacos.config.server.utils.ContentEncodingUtil;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 配置内容内存缓存。
+ * <p>
+ * 配置内容由dump写入{@link CacheItem}，读取配置时直接返回内存中的内容，不再读磁盘文件或查询数据库。缓存总大小受
+ * {@link PropertyUtil#getContentCacheMaxSize()}限制，超出时按LRU淘汰；超过{@link PropertyUtil#getContentCacheMaxItemSize()}
+ * 的配置不缓存。被淘汰的配置仍然从磁盘或数据库读取。
+ * <p>
+ * 压缩内容随缓存的版本保存，也计入缓存总大小。未缓存的配置从磁盘文件读取时不压缩。
+ *
+ * @author Nacos
+ */
+@Slf4j
+public class ConfigContentCache {
+
+    private static final Charset ENCODE = Charset.forName(Constants.ENCODE);
+
+    /**
+     * groupKey -> cacheItem，按访问顺序排列，用于LRU淘汰
+     */
+    private static final LinkedHashMap<String, CacheItem> LRU = new LinkedHashMap<String, CacheItem>(16, 0.75f, true);
+
+    private static long totalSize = 0L;
+
+    /**
+     * 缓存配置内容，需在持有配置写锁时调用
+     */
+    static void put(CacheItem item, String md5, String content, long lastModifiedTs) {
+        if (!PropertyUtil.isContentCacheEnabled() || content == null) {
+            return;
+        }
+        byte[] bytes = content.getBytes(ENCODE);
+        if (bytes.length > PropertyUtil.getContentCacheMaxItemSize()) {
+            remove(item);
+            return;
+        }
+        CacheContent cacheContent = new CacheContent(md5, lastModifiedTs, bytes);
+        synchronized (LRU) {
+            CacheItem old = LRU.remove(item.getGroupKey());
+            if (old != null && old.content != null) {
+                totalSize -= old.content.memorySize();
+                old.content = null;
+            }
+            item.content = cacheContent;
+            LRU.put(item.getGroupKey(), item);
+            totalSize += cacheContent.memorySize();
+            evict(PropertyUtil.getContentCacheMaxSize());
+        }
+    }
+
+    /**
+     * 获取缓存内容，返回的是md5与内容一致的不可变快照，读取时无需加锁
+     *
+     * @return 缓存未命中时返回null
+     */
+    public static CacheContent get(CacheItem item) {
+        if (item == null) {
+            return null;
+        }
+        CacheContent cacheContent = item.content;
+        if (cacheContent == null) {
+            return null;
+        }
+        synchronized (LRU) {
+            LRU.get(item.getGroupKey());
+        }
+        return cacheContent;
+    }
+
+    /**
+     * 获取缓存内容按指定编码压缩后的内容，同一版本只压缩一次。压缩内容只在该版本仍在缓存中时保存，并计入缓存总大小
+     *
+     * @param item         配置
+     * @param cacheContent {@link #get(CacheItem)}返回的缓存内容
+     * @param encoding     gzip或deflate
+     * @return 压缩后的内容
+     */
+    public static byte[] getEncodedBytes(CacheItem item, CacheContent cacheContent, String encoding) {
+        byte[] encodedBytes = cacheContent.getEncodedBytes(encoding);
+        if (encodedBytes != null) {
+            return encodedBytes;
+        }
+        encodedBytes = ContentEncodingUtil.compress(cacheContent.getBytes(), encoding);
+        synchronized (LRU) {
+            if (item.content == cacheContent && cacheContent.setEncodedBytes(encoding, encodedBytes)) {
+                totalSize += encodedBytes.length;
+                evict(PropertyUtil.getContentCacheMaxSize());
+            }
+        }
+        return encodedBytes;
+    }
+
+    static void remove(CacheItem item) {
+        synchronized (LRU) {
+            CacheItem old = LRU.remove(item.getGroupKey());
+            if (old != null && old.content != null) {
+                totalSize -= old.content.memorySize();
+                old.content = null;
+            }
+            item.content = null;
+        }
+    }
+
+    public static long size() {
+        synchronized (LRU) {
+            return totalSize;
+        }
+    }
+
+    public static int count() {
+        synchronized (LRU) {
+            return LRU.size();
+        }
+    }
+
+    private static void evict(long maxSize) {
+        Iterator<Map.Entry<String, CacheItem>> iterator = LRU.entrySet().iterator();
+        while (totalSize > maxSize && iterator.hasNext()) {
+            CacheItem eldest = iterator.next().getValue();
+            iterator.remove();
+            if (eldest.content != null) {
+                totalSize -= eldest.content.memorySize();
+                eldest.content = null;
+            }
+            log.debug("[content-cache] evict {}, total size {}", eldest.getGroupKey(), totalSize);
+        }
+    }
+}
@@ -56,6 +56,14 @@ public class ConfigService {
      * 保存配置文件，并缓存md5.
      */
     static public boolean dump(String dataId, String group, String tenant, String content, long lastModifiedTs, String type) {
+        return dump(dataId, group, tenant, content, MD5.getInstance().getMD5String(content), lastModifiedTs, type);
+    }
+
+    /**
+     * 保存配置文件，并缓存md5。md5由调用方按content计算，不在写锁内计算
+     */
+    static public boolean dump(String dataId, String group, String tenant, String content, String md5,
+                               long lastModifiedTs, String type) {
         String groupKey = GroupKey2.getKey(dataId, group, tenant);
         CacheItem ci = makeSure(groupKey);
         ci.setType(type);
@@ -68,7 +76,6 @@ public class ConfigService {
         }
 
         try {
-            final String md5 = MD5.getInstance().getMD5String(content);
             if (md5.equals(ConfigService.getContentMd5(groupKey))) {
                 log.warn(
                     "[dump-ignore] ignore to save cache file. groupKey={}, md5={}, lastModifiedOld={}, "
@@ -77,6 +84,7 @@ public class ConfigService {
             } else if (!STANDALONE_MODE || PropertyUtil.isStandaloneUseMysql()) {
                 DiskUtil.saveToDisk(dataId, group, tenant, content);
             }
+            ConfigContentCache.put(ci, md5, content, lastModifiedTs);
             updateMd5(groupKey, md5, lastModifiedTs);
             return true;
         } catch (IOException ioe) {
@@ -179,7 +187,7 @@ public class ConfigService {
     static public boolean dumpChange(String dataId, String group, String tenant, String content, long lastModifiedTs) {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
 
-        makeSure(groupKey);
+        CacheItem ci = makeSure(groupKey);
         final int lockResult = tryWriteLock(groupKey);
         assert (lockResult != 0);
 
@@ -201,6 +209,7 @@ public class ConfigService {
                     DiskUtil.saveToDisk(dataId, group, tenant, content);
                 }
             }
+            ConfigContentCache.put(ci, md5, content, lastModifiedTs);
             updateMd5(groupKey, md5, lastModifiedTs);
             return true;
         } catch (IOException ioe) {
@@ -325,6 +334,7 @@ public class ConfigService {
             if (!STANDALONE_MODE || PropertyUtil.isStandaloneUseMysql()) {
                 DiskUtil.removeConfigInfo(dataId, group, tenant);
             }
+            ConfigContentCache.remove(CACHE.get(groupKey));
             CACHE.remove(groupKey);
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey));
 
@@ -556,6 +566,9 @@ public class ConfigService {
         int result = (null == groupItem) ? 0 : (groupItem.rwLock.tryWriteLock() ? 1 : -1);
         if (result < 0) {
             log.warn("[write-lock] failed, {}, {}", result, groupKey);
+        } else if (result > 0) {
+            // 只有持有写锁的线程修改版本号
+            groupItem.version++;
         }
         return result;
     }
@@ -563,6 +576,7 @@ public class ConfigService {
     static void releaseWriteLock(String groupKey) {
         CacheItem groupItem = CACHE.get(groupKey);
         if (null != groupItem) {
+            groupItem.version++;
             groupItem.rwLock.releaseWriteLock();
         }
     }
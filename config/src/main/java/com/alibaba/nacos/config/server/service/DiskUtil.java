@@ -27,6 +27,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 磁盘操作工具类。
@@ -44,6 +49,14 @@ public class DiskUtil {
     static final String TENANT_BETA_DIR = File.separator + "data" + File.separator + "tenant-beta-data";
     static final String TAG_DIR = File.separator + "data" + File.separator + "tag-data";
     static final String TENANT_TAG_DIR = File.separator + "data" + File.separator + "tag-beta-data";
+    static final String SENDFILE_DIR = File.separator + "data" + File.separator + "sendfile-data";
+
+    private static final AtomicLong SENDFILE_LINK_SEQ = new AtomicLong();
+
+    /**
+     * 硬链接失败（如数据目录跨文件系统或文件系统不支持）后不再尝试
+     */
+    private static volatile boolean sendfileLinkSupported = true;
 
     static public void saveHeartBeatToDisk(String heartBeatTime)
         throws IOException {
@@ -56,7 +69,7 @@ public class DiskUtil {
      */
     static public void saveToDisk(String dataId, String group, String tenant, String content) throws IOException {
         File targetFile = targetFile(dataId, group, tenant);
-        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+        replaceFile(targetFile, content);
     }
 
     /**
@@ -64,7 +77,7 @@ public class DiskUtil {
      */
     static public void saveBetaToDisk(String dataId, String group, String tenant, String content) throws IOException {
         File targetFile = targetBetaFile(dataId, group, tenant);
-        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+        replaceFile(targetFile, content);
     }
 
     /**
@@ -73,7 +86,75 @@ public class DiskUtil {
     static public void saveTagToDisk(String dataId, String group, String tenant, String tag, String content)
         throws IOException {
         File targetFile = targetTagFile(dataId, group, tenant, tag);
-        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+        replaceFile(targetFile, content);
+    }
+
+    /**
+     * 先在目标文件所在目录写临时文件再整体替换目标文件。读取配置时不加锁，已打开的文件始终是完整的某一版本，
+     * 因此不能原地改写目标文件：替换失败时dump失败，由调用方重试
+     */
+    static void replaceFile(File targetFile, String content) throws IOException {
+        FileUtils.forceMkdir(targetFile.getParentFile());
+        // 与目标文件同目录，保证在同一文件系统内，rename本身是原子的
+        File tmpFile = File.createTempFile("." + targetFile.getName() + ".", ".tmp", targetFile.getParentFile());
+        try {
+            FileUtils.writeStringToFile(tmpFile, content, Constants.ENCODE);
+            try {
+                Files.move(tmpFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                log.warn("atomic move to {} not supported, rename directly. {}", targetFile, e.toString());
+                Files.move(tmpFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    /**
+     * 为配置文件的当前版本创建硬链接，供容器在请求结束后按文件名发送。dump只整体替换配置文件，链接指向的版本不会再被修改，
+     * 链接由{@link #cleanSendfileLinks(long)}定期清理
+     *
+     * @param file 配置文件
+     * @return 链接，配置文件不存在或不支持硬链接时返回null
+     */
+    static public File linkForSendfile(File file) {
+        if (!sendfileLinkSupported) {
+            return null;
+        }
+        File link = new File(new File(SystemUtils.getNacosHomePath(), SENDFILE_DIR),
+            System.currentTimeMillis() + "-" + SENDFILE_LINK_SEQ.incrementAndGet());
+        try {
+            FileUtils.forceMkdir(link.getParentFile());
+            Files.createLink(link.toPath(), file.toPath());
+            return link;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("link {} for sendfile failed, sendfile disabled. {}", file, e.toString());
+            sendfileLinkSupported = false;
+            return null;
+        }
+    }
+
+    /**
+     * 删除创建早于指定时间的sendfile链接，容器在请求结束后立即打开文件，打开后删除链接不影响发送
+     *
+     * @param expireBefore 过期时间
+     */
+    static public void cleanSendfileLinks(long expireBefore) {
+        File[] links = new File(SystemUtils.getNacosHomePath(), SENDFILE_DIR).listFiles();
+        if (links == null) {
+            return;
+        }
+        for (File link : links) {
+            String name = link.getName();
+            int split = name.indexOf('-');
+            if (split <= 0 || !StringUtils.isNumeric(name.substring(0, split))
+                || Long.parseLong(name.substring(0, split)) < expireBefore) {
+                FileUtils.deleteQuietly(link);
+            }
+        }
     }
 
     /**
@@ -0,0 +1,121 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.utils.MD5Util;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监听会话服务。
+ * <p>
+ * 客户端首次监听时上报全量监听列表并建立会话，之后的长轮询只上报会话id和增量（新增、md5变化、取消监听的配置），
+ * 服务端在会话保存的监听列表上合并增量，无需每次解析全量列表。会话只保存在本机内存中，过期、超出上限或客户端切换
+ * 服务端后，客户端重新上报全量列表。
+ *
+ * @author Nacos
+ */
+@Slf4j
+public class ListenerSessionService {
+
+    static class ListenerSession {
+        /**
+         * groupKey -> md5，在会话锁内原地合并增量，长轮询可并发读取
+         */
+        final Map<String, String> md5Map;
+        volatile long lastAccessTime;
+
+        ListenerSession(Map<String, String> md5Map) {
+            this.md5Map = new ConcurrentHashMap<>(md5Map);
+            this.lastAccessTime = System.currentTimeMillis();
+        }
+    }
+
+    static final Map<String, ListenerSession> SESSIONS = new ConcurrentHashMap<>();
+
+    static {
+        TimerTaskService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                expire(System.currentTimeMillis() - PropertyUtil.getListenerSessionExpireMs());
+            }
+        }, 30L, 30L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 以全量监听列表建立会话
+     *
+     * @param md5Map 全量监听列表，会话保存其副本
+     * @return 会话id，未开启会话或会话数超出上限时返回null
+     */
+    static public String open(Map<String, String> md5Map) {
+        if (!PropertyUtil.isListenerSessionEnabled() || SESSIONS.size() >= PropertyUtil.getListenerSessionMaxCount()) {
+            return null;
+        }
+        String sessionId = UUID.randomUUID().toString();
+        SESSIONS.put(sessionId, new ListenerSession(md5Map));
+        return sessionId;
+    }
+
+    /**
+     * 将增量合并到会话的监听列表
+     *
+     * @param sessionId 会话id
+     * @param delta     二进制增量报文
+     * @return 会话的监听列表，会话不存在时返回null
+     * @throws IllegalArgumentException 增量报文非法
+     */
+    static public Map<String, String> merge(String sessionId, byte[] delta) {
+        ListenerSession session = SESSIONS.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        synchronized (session) {
+            try {
+                MD5Util.mergeClientMd5Map(session.md5Map, delta);
+            } catch (IllegalArgumentException e) {
+                // 客户端与服务端的监听列表可能已不一致，丢弃会话让客户端重新上报全量
+                SESSIONS.remove(sessionId);
+                throw e;
+            }
+            session.lastAccessTime = System.currentTimeMillis();
+            return session.md5Map;
+        }
+    }
+
+    static public int sessionCount() {
+        return SESSIONS.size();
+    }
+
+    static void expire(long expireBefore) {
+        int count = 0;
+        for (Iterator<ListenerSession> iterator = SESSIONS.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().lastAccessTime < expireBefore) {
+                iterator.remove();
+                count++;
+            }
+        }
+        if (count > 0) {
+            log.info("[listener-session] expire {} sessions, remain {}", count, SESSIONS.size());
+        }
+    }
+}
@@ -15,15 +15,19 @@
  */
 package com.alibaba.nacos.config.server.service;
 
+import com.alibaba.nacos.common.utils.HashedWheelTimer;
 import com.alibaba.nacos.config.server.model.SampleResult;
 import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.utils.ContentEncodingUtil;
 import com.alibaba.nacos.config.server.utils.GroupKey;
 import com.alibaba.nacos.config.server.utils.MD5Util;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
 import com.alibaba.nacos.config.server.utils.RequestUtil;
 import com.alibaba.nacos.config.server.utils.event.EventDispatcher.AbstractEventListener;
 import com.alibaba.nacos.config.server.utils.event.EventDispatcher.Event;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.AsyncContext;
@@ -31,6 +35,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 长轮询服务。负责处理
@@ -38,6 +43,7 @@ import java.util.concurrent.*;
  * @author Nacos
  */
 @Service
+@DependsOn("propertyUtil")
 @Slf4j
 public class LongPollingService extends AbstractEventListener {
 
@@ -49,6 +55,10 @@ public class LongPollingService extends AbstractEventListener {
 
     private static final String TRUE_STR = "true";
 
+    private static final long TIMEOUT_TICK_MS = 100L;
+
+    private static final int TIMEOUT_TICKS_PER_WHEEL = 512;
+
     private Map<String, Long> retainIps = new ConcurrentHashMap<String, Long>();
 
     // =================
@@ -58,23 +68,88 @@ public class LongPollingService extends AbstractEventListener {
 
     final ScheduledExecutorService scheduledExecutorService;
 
+    /**
+     * 长轮询分片分发线程：配置变更按groupKey分片，客户端注册按客户端ip分片，同一分片内保持顺序
+     */
+    final ThreadPoolExecutor[] dispatchExecutors;
+
+    /**
+     * 长轮询响应线程：写响应可能被慢客户端阻塞，不占用分发线程
+     */
+    final ThreadPoolExecutor responseExecutor;
+
+    /**
+     * 长轮询超时调度：时间轮O(1)添加/取消超时任务，同一刻度到期的客户端批量处理，不占用长轮询线程
+     */
+    final HashedWheelTimer timeoutTimer;
+
     /**
      * 长轮询订阅关系
      */
-    final Queue<ClientLongPolling> allSubs;
+    final Set<ClientLongPolling> allSubs;
+
+    /**
+     * 长轮询订阅索引: groupKey -> 监听该配置的长轮询客户端，配置变更时只需遍历该配置的订阅者
+     */
+    final Map<String, Set<ClientLongPolling>> groupKeySubs;
 
     @SuppressWarnings("PMD.ThreadPoolCreationRule")
     public LongPollingService() {
-        allSubs = new ConcurrentLinkedQueue<>();
+        allSubs = ConcurrentHashMap.newKeySet();
+        groupKeySubs = new ConcurrentHashMap<>();
         scheduledExecutorService = Executors.newScheduledThreadPool(1, runnable -> {
             Thread thread = new Thread(runnable);
             thread.setDaemon(true);
             thread.setName("com.alibaba.nacos.LongPolling");
             return thread;
         });
+        int processors = Runtime.getRuntime().availableProcessors();
+        int dispatchThreads = threadCount(PropertyUtil.getLongPollingDispatchThreads(), Math.max(1, processors / 2));
+        dispatchExecutors = new ThreadPoolExecutor[dispatchThreads];
+        for (int i = 0; i < dispatchThreads; i++) {
+            dispatchExecutors[i] = newFixedThreadPool(1, "com.alibaba.nacos.LongPolling.dispatcher-" + i);
+        }
+        responseExecutor = newFixedThreadPool(threadCount(PropertyUtil.getLongPollingResponseThreads(), processors * 2),
+            "com.alibaba.nacos.LongPolling.response");
+        log.info("[long-pulling] dispatch threads {}, response threads {}", dispatchThreads,
+            responseExecutor.getCorePoolSize());
+        timeoutTimer = new HashedWheelTimer("com.alibaba.nacos.LongPolling.timeout", TIMEOUT_TICK_MS,
+            TimeUnit.MILLISECONDS, TIMEOUT_TICKS_PER_WHEEL);
         scheduledExecutorService.scheduleWithFixedDelay(new StatTask(), 0L, 10L, TimeUnit.SECONDS);
     }
 
+    private static int threadCount(int count, int defaultValue) {
+        return count > 0 ? count : defaultValue;
+    }
+
+    private static ThreadPoolExecutor newFixedThreadPool(int threads, String name) {
+        AtomicInteger index = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                thread.setName(threads == 1 ? name : name + "-" + index.incrementAndGet());
+                return thread;
+            });
+    }
+
+    /**
+     * 按分片key选择分发线程，同一key的任务总在同一线程上顺序执行
+     * @param shardKey groupKey或客户端ip
+     * @return 分发线程
+     */
+    private ThreadPoolExecutor getDispatchExecutor(String shardKey) {
+        return dispatchExecutors[(shardKey.hashCode() & Integer.MAX_VALUE) % dispatchExecutors.length];
+    }
+
+    private int getDispatchQueueSize() {
+        int size = 0;
+        for (ThreadPoolExecutor executor : dispatchExecutors) {
+            size += executor.getQueue().size();
+        }
+        return size;
+    }
+
     private static boolean isFixedPolling() {
         return SwitchService.getSwitchBoolean(SwitchService.FIXED_POLLING, false);
     }
@@ -106,9 +181,13 @@ public class LongPollingService extends AbstractEventListener {
         String groupKey = GroupKey.getKeyTenant(dataId, group, tenant);
         SampleResult sampleResult = new SampleResult();
         Map<String, String> listenersGroupkeyStatus = new HashMap<>(50);
-        for (ClientLongPolling clientLongPolling : allSubs) {
-            if (clientLongPolling.clientMd5Map.containsKey(groupKey)) {
-                listenersGroupkeyStatus.put(clientLongPolling.ip, clientLongPolling.clientMd5Map.get(groupKey));
+        Set<ClientLongPolling> subs = groupKeySubs.get(groupKey);
+        if (subs != null) {
+            for (ClientLongPolling clientLongPolling : subs) {
+                String md5 = clientLongPolling.clientMd5Map.get(groupKey);
+                if (md5 != null) {
+                    listenersGroupkeyStatus.put(clientLongPolling.ip, md5);
+                }
             }
         }
         sampleResult.setListenersGroupKeyStatus(listenersGroupkeyStatus);
@@ -265,7 +344,7 @@ public class LongPollingService extends AbstractEventListener {
                     rsp.setDateHeader("Expires", 0);
                     rsp.setHeader("Cache-Control", "no-cache,no-store");
                     rsp.setStatus(HttpServletResponse.SC_OK);
-                    rsp.getWriter().println(respString);
+                    ContentEncodingUtil.writeText(req, rsp, respString);
                 } catch (Exception se) {
                     log.error(se.toString(), se);
                 }
@@ -286,7 +365,40 @@ public class LongPollingService extends AbstractEventListener {
         final AsyncContext asyncContext = req.startAsync();
         // AsyncContext.setTimeout()的超时时间不准，所以只能自己控制
         asyncContext.setTimeout(0L);
-        scheduledExecutorService.execute(new ClientLongPolling(asyncContext, clientMd5Map, ip, probeRequestSize, timeout, appName, tag));
+        getDispatchExecutor(ip).execute(new ClientLongPolling(asyncContext, clientMd5Map, ip, probeRequestSize, timeout, appName, tag));
+    }
+
+    /**
+     * 注册长轮询订阅关系，同时按客户端监听的groupKey建立索引
+     * @param clientSub 长轮询客户端
+     */
+    private void addSubscriber(ClientLongPolling clientSub) {
+        allSubs.add(clientSub);
+        for (String groupKey : clientSub.clientMd5Map.keySet()) {
+            groupKeySubs.compute(groupKey, (key, subs) -> {
+                Set<ClientLongPolling> result = subs == null ? ConcurrentHashMap.newKeySet() : subs;
+                result.add(clientSub);
+                return result;
+            });
+        }
+    }
+
+    /**
+     * 删除长轮询订阅关系及其groupKey索引
+     * @param clientSub 长轮询客户端
+     * @return 订阅关系存在且由本次调用删除时返回true，保证同一客户端只被响应一次
+     */
+    private boolean removeSubscriber(ClientLongPolling clientSub) {
+        if (!allSubs.remove(clientSub)) {
+            return false;
+        }
+        for (String groupKey : clientSub.clientMd5Map.keySet()) {
+            groupKeySubs.computeIfPresent(groupKey, (key, subs) -> {
+                subs.remove(clientSub);
+                return subs.isEmpty() ? null : subs;
+            });
+        }
+        return true;
     }
 
     @Override
@@ -303,7 +415,7 @@ public class LongPollingService extends AbstractEventListener {
         } else {
             if (event instanceof LocalDataChangeEvent) {
                 LocalDataChangeEvent evt = (LocalDataChangeEvent)event;
-                scheduledExecutorService.execute(new DataChangeTask(evt.groupKey, evt.isBeta, evt.betaIps));
+                getDispatchExecutor(evt.groupKey).execute(new DataChangeTask(evt.groupKey, evt.isBeta, evt.betaIps));
             }
         }
     }
@@ -332,34 +444,42 @@ public class LongPollingService extends AbstractEventListener {
 
         @Override
         public void run() {
+            long start = System.currentTimeMillis();
+            MetricsMonitor.getLongPollingDispatchTimer().record(start - changeTime, TimeUnit.MILLISECONDS);
             try {
                 ConfigService.getContentBetaMd5(groupKey);
-                for (Iterator<ClientLongPolling> iter = allSubs.iterator(); iter.hasNext(); ) {
-                    ClientLongPolling clientSub = iter.next();
-                    if (clientSub.clientMd5Map.containsKey(groupKey)) {
-                        // 如果beta发布且不在beta列表直接跳过
-                        if (isBeta && !betaIps.contains(clientSub.ip)) {
-                            continue;
-                        }
+                Set<ClientLongPolling> subs = groupKeySubs.get(groupKey);
+                if (subs == null) {
+                    return;
+                }
+                for (ClientLongPolling clientSub : subs) {
+                    // 如果beta发布且不在beta列表直接跳过
+                    if (isBeta && !betaIps.contains(clientSub.ip)) {
+                        continue;
+                    }
 
-                        // 如果tag发布且不在tag列表直接跳过
-                        if (StringUtils.isNotBlank(tag) && !tag.equals(clientSub.tag)) {
-                            continue;
-                        }
+                    // 如果tag发布且不在tag列表直接跳过
+                    if (StringUtils.isNotBlank(tag) && !tag.equals(clientSub.tag)) {
+                        continue;
+                    }
 
-                        getRetainIps().put(clientSub.ip, System.currentTimeMillis());
-                        iter.remove(); // 删除订阅关系
-                        log.info("{}|{}|{}|{}|{}|{}|{}",
-                                (System.currentTimeMillis() - changeTime),
-                                "in-advance",
-                                RequestUtil.getRemoteIp((HttpServletRequest)clientSub.asyncContext.getRequest()),
-                                "polling",
-                                clientSub.clientMd5Map.size(), clientSub.probeRequestSize, groupKey);
-                        clientSub.sendResponse(Collections.singletonList(groupKey));
+                    // 删除订阅关系，已被超时任务删除的客户端无需再响应
+                    if (!removeSubscriber(clientSub)) {
+                        continue;
                     }
+                    getRetainIps().put(clientSub.ip, System.currentTimeMillis());
+                    log.info("{}|{}|{}|{}|{}|{}|{}",
+                            (System.currentTimeMillis() - changeTime),
+                            "in-advance",
+                            RequestUtil.getRemoteIp((HttpServletRequest)clientSub.asyncContext.getRequest()),
+                            "polling",
+                            clientSub.clientMd5Map.size(), clientSub.probeRequestSize, groupKey);
+                    clientSub.sendResponse(Collections.singletonList(groupKey));
                 }
             } catch (Throwable t) {
                 log.error("data change error:" + t.getMessage(), t.getCause());
+            } finally {
+                MetricsMonitor.getLongPollingFanOutTimer().record(System.currentTimeMillis() - start, TimeUnit.MILLISECONDS);
             }
         }
 
@@ -385,8 +505,13 @@ public class LongPollingService extends AbstractEventListener {
     class StatTask implements Runnable {
         @Override
         public void run() {
-            log.info("[long-pulling] client count " + allSubs.size());
+            int dispatchQueueSize = getDispatchQueueSize();
+            int responseQueueSize = responseExecutor.getQueue().size();
+            log.info("[long-pulling] client count " + allSubs.size() + ", pending timeouts " + timeoutTimer.size()
+                + ", dispatch queue " + dispatchQueueSize + ", response queue " + responseQueueSize);
             MetricsMonitor.getLongPollingMonitor().set(allSubs.size());
+            MetricsMonitor.getLongPollingDispatchQueueMonitor().set(dispatchQueueSize);
+            MetricsMonitor.getLongPollingResponseQueueMonitor().set(responseQueueSize);
         }
     }
 
@@ -403,7 +528,7 @@ public class LongPollingService extends AbstractEventListener {
         final String tag;
         final int probeRequestSize;
         final long timeoutTime;
-        Future<?> asyncTimeoutFuture;
+        volatile HashedWheelTimer.Timeout asyncTimeout;
 
         ClientLongPolling(AsyncContext ac, Map<String, String> clientMd5Map, String ip, int probeRequestSize,
                           long timeoutTime, String appName, String tag) {
@@ -419,13 +544,15 @@ public class LongPollingService extends AbstractEventListener {
 
         @Override
         public void run() {
-            asyncTimeoutFuture = scheduledExecutorService.schedule(() -> {
+            asyncTimeout = timeoutTimer.newTimeout(() -> {
                 try {
-                    getRetainIps().put(ClientLongPolling.this.ip, System.currentTimeMillis());
                     /**
-                     * 删除订阅关系
+                     * 删除订阅关系，已被配置变更任务响应的客户端无需再处理
                      */
-                    allSubs.remove(ClientLongPolling.this);
+                    if (!removeSubscriber(ClientLongPolling.this)) {
+                        return;
+                    }
+                    getRetainIps().put(ClientLongPolling.this.ip, System.currentTimeMillis());
 
                     if (isFixedPolling()) {
                         log.info("{}|{}|{}|{}|{}|{}",
@@ -454,21 +581,30 @@ public class LongPollingService extends AbstractEventListener {
                 }
 
             }, timeoutTime, TimeUnit.MILLISECONDS);
-            allSubs.add(this);
+            addSubscriber(this);
         }
 
         /**
-         * 客户端响应
+         * 客户端响应，写响应交给响应线程执行，避免慢客户端阻塞分发线程
          * @param changedGroups 改变的缓存group
          */
         private void sendResponse(List<String> changedGroups) {
             /**
              *  取消超时任务: 立即响应长轮询请求，而不是交由定时任务定时调度
              */
-            if (null != asyncTimeoutFuture) {
-                asyncTimeoutFuture.cancel(false);
+            if (null != asyncTimeout) {
+                asyncTimeout.cancel();
             }
 
+            long submitTime = System.currentTimeMillis();
+            responseExecutor.execute(() -> {
+                MetricsMonitor.getLongPollingResponseTimer().record(System.currentTimeMillis() - submitTime,
+                    TimeUnit.MILLISECONDS);
+                writeResponse(changedGroups);
+            });
+        }
+
+        private void writeResponse(List<String> changedGroups) {
             /**
              * 通知容器发送HTTP响应
              */
@@ -484,7 +620,7 @@ public class LongPollingService extends AbstractEventListener {
                 response.setDateHeader("Expires", 0);
                 response.setHeader("Cache-Control", "no-cache,no-store");
                 response.setStatus(HttpServletResponse.SC_OK);
-                response.getWriter().println(respString);
+                ContentEncodingUtil.writeText((HttpServletRequest)asyncContext.getRequest(), response, respString);
                 asyncContext.complete();
             } catch (Exception se) {
                 log.error(se.toString(), se);
@@ -1,63 +1,191 @@
 package com.alibaba.nacos.config.server.service.dump;
 
+import com.alibaba.nacos.common.utils.Md5Utils;
+import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.manager.AbstractTask;
 import com.alibaba.nacos.config.server.manager.TaskProcessor;
 import com.alibaba.nacos.config.server.model.ConfigInfoWrapper;
 import com.alibaba.nacos.config.server.model.Page;
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
 import com.alibaba.nacos.config.server.service.*;
 import com.alibaba.nacos.config.server.utils.GroupKey2;
-import com.alibaba.nacos.config.server.utils.MD5;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 全量dump。当前线程分页读取数据库，放入有界队列，由多个线程计算md5并写磁盘。每个配置的md5只计算一次。
+ *
+ * @author Nacos
+ */
 @Slf4j
 class DumpAllProcessor implements TaskProcessor {
 
     DumpAllProcessor(DumpService dumpService) {
+        this(dumpService, PropertyUtil.getDumpAllParallelism());
+    }
+
+    DumpAllProcessor(DumpService dumpService, int parallelism) {
         this.dumpService = dumpService;
         this.persistService = dumpService.persistService;
+        this.parallelism = Math.max(1, parallelism);
     }
 
     @Override
     public boolean process(String taskType, AbstractTask task) {
-        long currentMaxId = persistService.findConfigMaxId();
-        long lastMaxId = 0;
-        while (lastMaxId < currentMaxId) {
-            Page<ConfigInfoWrapper> page = persistService.findAllConfigInfoFragment(lastMaxId,
-                PAGE_SIZE);
-            if (page != null && page.getPageItems() != null && !page.getPageItems().isEmpty()) {
-                for (ConfigInfoWrapper configInfoWrapper : page.getPageItems()) {
-                    long id = configInfoWrapper.getId();
-                    lastMaxId = id > lastMaxId ? id : lastMaxId;
-                    if (configInfoWrapper.getDataId().equals(AggrWhitelist.AGGRIDS_METADATA)) {
-                        AggrWhitelist.load(configInfoWrapper.getContent());
-                    }
+        final long startTime = System.currentTimeMillis();
+        final BlockingQueue<ConfigInfoWrapper> queue = new ArrayBlockingQueue<ConfigInfoWrapper>(
+            PAGE_SIZE * QUEUE_PAGES);
+        final AtomicInteger dumped = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(parallelism);
+        MetricsMonitor.getDumpAllProgressMonitor().set(0);
 
-                    if (configInfoWrapper.getDataId().equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
-                        ClientIpWhiteList.load(configInfoWrapper.getContent());
-                    }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory());
+        for (int i = 0; i < parallelism; i++) {
+            executor.execute(new DumpWorker(queue, dumped, failed, finished));
+        }
 
-                    if (configInfoWrapper.getDataId().equals(SwitchService.SWITCH_META_DATAID)) {
-                        SwitchService.load(configInfoWrapper.getContent());
-                    }
+        long total = 0;
+        try {
+            long currentMaxId = persistService.findConfigMaxId();
+            long lastMaxId = 0;
+            while (lastMaxId < currentMaxId) {
+                Page<ConfigInfoWrapper> page = persistService.findAllConfigInfoFragment(lastMaxId,
+                    PAGE_SIZE);
+                if (page != null && page.getPageItems() != null && !page.getPageItems().isEmpty()) {
+                    for (ConfigInfoWrapper configInfoWrapper : page.getPageItems()) {
+                        long id = configInfoWrapper.getId();
+                        lastMaxId = id > lastMaxId ? id : lastMaxId;
+                        if (configInfoWrapper.getDataId().equals(AggrWhitelist.AGGRIDS_METADATA)) {
+                            AggrWhitelist.load(configInfoWrapper.getContent());
+                        }
+
+                        if (configInfoWrapper.getDataId().equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
+                            ClientIpWhiteList.load(configInfoWrapper.getContent());
+                        }
 
-                    boolean result = ConfigService.dump(configInfoWrapper.getDataId(), configInfoWrapper.getGroup(), configInfoWrapper.getTenant(), configInfoWrapper.getContent(),
-                        configInfoWrapper.getLastModified(), configInfoWrapper.getType());
+                        if (configInfoWrapper.getDataId().equals(SwitchService.SWITCH_META_DATAID)) {
+                            SwitchService.load(configInfoWrapper.getContent());
+                        }
 
-                    final String content = configInfoWrapper.getContent();
-                    final String md5 = MD5.getInstance().getMD5String(content);
-                    log.info("[dump-all-ok] {}, {}, length={}, md5={}",
-                        GroupKey2.getKey(configInfoWrapper.getDataId(), configInfoWrapper.getGroup()), configInfoWrapper.getLastModified(), content.length(), md5);
+                        queue.put(configInfoWrapper);
+                        total++;
+                    }
+                    log.info("[all-dump] {} / {}, dumped {}", lastMaxId, currentMaxId, dumped.get());
+                } else {
+                    lastMaxId += PAGE_SIZE;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("[all-dump] interrupted", e);
+        } finally {
+            try {
+                // 结束标记排在所有配置之后，写线程处理完队列中的配置后退出
+                for (int i = 0; i < parallelism; i++) {
+                    queue.put(END);
                 }
-                log.info("[all-dump] {} / {}", lastMaxId, currentMaxId);
-            } else {
-                lastMaxId += PAGE_SIZE;
+                finished.await();
+                executor.shutdown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
             }
         }
+
+        long cost = System.currentTimeMillis() - startTime;
+        MetricsMonitor.getDumpAllTimer().record(cost, TimeUnit.MILLISECONDS);
+        log.info("[all-dump] finished, total={}, dumped={}, failed={}, parallelism={}, cost={}ms", total,
+            dumped.get(), failed.get(), parallelism, cost);
         return true;
     }
 
+    class DumpWorker implements Runnable {
+
+        DumpWorker(BlockingQueue<ConfigInfoWrapper> queue, AtomicInteger dumped, AtomicInteger failed,
+                   CountDownLatch finished) {
+            this.queue = queue;
+            this.dumped = dumped;
+            this.failed = failed;
+            this.finished = finished;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    ConfigInfoWrapper configInfoWrapper = queue.take();
+                    if (configInfoWrapper == END) {
+                        return;
+                    }
+                    try {
+                        // 每次计算使用独立的MessageDigest，写线程之间不竞争MD5单例的锁
+                        final String content = configInfoWrapper.getContent();
+                        final String md5 = Md5Utils.getMD5(content, Constants.ENCODE);
+                        boolean result = ConfigService.dump(configInfoWrapper.getDataId(), configInfoWrapper.getGroup(),
+                            configInfoWrapper.getTenant(), content, md5, configInfoWrapper.getLastModified(),
+                            configInfoWrapper.getType());
+                        if (!result) {
+                            failed.incrementAndGet();
+                        }
+
+                        log.info("[dump-all-ok] {}, {}, length={}, md5={}",
+                            GroupKey2.getKey(configInfoWrapper.getDataId(), configInfoWrapper.getGroup()),
+                            configInfoWrapper.getLastModified(), content.length(), md5);
+                    } catch (Throwable e) {
+                        failed.incrementAndGet();
+                        log.error("[dump-all-error] " + GroupKey2.getKey(configInfoWrapper.getDataId(),
+                            configInfoWrapper.getGroup()), e);
+                    }
+                    MetricsMonitor.getDumpAllProgressMonitor().set(dumped.incrementAndGet());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        final BlockingQueue<ConfigInfoWrapper> queue;
+        final AtomicInteger dumped;
+        final AtomicInteger failed;
+        final CountDownLatch finished;
+    }
+
+    static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("com.alibaba.nacos.DumpAll-" + index.incrementAndGet());
+            return thread;
+        }
+    }
+
     static final int PAGE_SIZE = 1000;
 
+    /**
+     * 队列最多缓存的页数，限制读取快于写入时的内存占用
+     */
+    static final int QUEUE_PAGES = 2;
+
+    /**
+     * 结束标记
+     */
+    static final ConfigInfoWrapper END = new ConfigInfoWrapper();
+
     final DumpService dumpService;
     final PersistService persistService;
+    final int parallelism;
 }
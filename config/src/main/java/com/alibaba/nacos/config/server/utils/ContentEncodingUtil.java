@@ -0,0 +1,146 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.utils;
+
+import com.alibaba.nacos.config.server.constant.Constants;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 响应压缩协商，支持gzip与deflate
+ *
+ * @author Nacos
+ */
+public class ContentEncodingUtil {
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    /**
+     * 小于该大小的响应不压缩
+     */
+    public static final int MIN_COMPRESS_SIZE = 1024;
+
+    private static final Charset ENCODE = Charset.forName(Constants.ENCODE);
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    /**
+     * 根据Accept-Encoding选择响应编码，优先gzip
+     *
+     * @param request 请求
+     * @return gzip、deflate，客户端不支持压缩时返回null
+     */
+    public static String negotiate(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(ACCEPT_ENCODING);
+        if (StringUtils.isBlank(acceptEncoding)) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String item : acceptEncoding.split(",")) {
+            String[] params = item.split(";");
+            String coding = params[0].trim();
+            if (params.length > 1 && isZeroQuality(params[1])) {
+                continue;
+            }
+            if (GZIP.equalsIgnoreCase(coding)) {
+                return GZIP;
+            }
+            if (DEFLATE.equalsIgnoreCase(coding)) {
+                deflate = true;
+            }
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+    /**
+     * 按指定编码压缩
+     *
+     * @param bytes    原始内容
+     * @param encoding gzip或deflate
+     * @return 压缩后的内容
+     */
+    public static byte[] compress(byte[] bytes, String encoding) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (OutputStream zip = GZIP.equals(encoding) ? new GZIPOutputStream(out) : new DeflaterOutputStream(out)) {
+            zip.write(bytes);
+        } catch (IOException e) {
+            // ByteArrayOutputStream不会抛出IOException
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 写文本响应，客户端支持且内容足够大时压缩
+     *
+     * @param request  请求
+     * @param response 响应
+     * @param text     响应内容
+     * @throws IOException 写响应失败
+     */
+    public static void writeText(HttpServletRequest request, HttpServletResponse response, String text)
+        throws IOException {
+        String encoding = text.length() >= MIN_COMPRESS_SIZE ? negotiate(request) : null;
+        if (encoding == null) {
+            response.getWriter().println(text);
+            return;
+        }
+        byte[] body = compress((text + System.lineSeparator()).getBytes(ENCODE), encoding);
+        response.setHeader(CONTENT_ENCODING, encoding);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * 写已编码的响应内容
+     *
+     * @param response 响应
+     * @param body     响应内容
+     * @param encoding 压缩编码，null表示未压缩
+     * @throws IOException 写响应失败
+     */
+    public static void writeBytes(HttpServletResponse response, byte[] body, String encoding) throws IOException {
+        if (encoding != null) {
+            response.setHeader(CONTENT_ENCODING, encoding);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean isZeroQuality(String param) {
+        String[] pair = param.trim().split("=");
+        if (pair.length != 2 || !"q".equalsIgnoreCase(pair[0].trim())) {
+            return false;
+        }
+        try {
+            return Double.parseDouble(pair[1].trim()) <= 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package com.alibaba.nacos.config.server.utils;
 
+import com.alibaba.nacos.common.utils.BinaryListenerCodec;
 import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.service.ConfigService;
 import org.apache.commons.lang3.StringUtils;
@@ -155,6 +156,40 @@ public class MD5Util {
         return md5Map;
     }
 
+    /**
+     * 解析二进制监听报文，格式见{@link BinaryListenerCodec}
+     */
+    static public Map<String, String> getClientMd5Map(byte[] configKeysBytes) {
+        Map<String, String> md5Map = new HashMap<>(16);
+        mergeClientMd5Map(md5Map, configKeysBytes);
+        return md5Map;
+    }
+
+    /**
+     * 将二进制监听报文（监听会话的增量）合并到md5Map中，md5为null的配置从md5Map中删除
+     */
+    static public void mergeClientMd5Map(final Map<String, String> md5Map, byte[] configKeysBytes) {
+        if (null == configKeysBytes || configKeysBytes.length == 0) {
+            return;
+        }
+        BinaryListenerCodec.decode(configKeysBytes, 10000, new BinaryListenerCodec.Visitor() {
+            @Override
+            public void visit(String dataId, String group, String tenant, String md5) {
+                String groupKey = GroupKey2.getKey(dataId, group, tenant);
+                if (md5 == null) {
+                    md5Map.remove(groupKey);
+                    return;
+                }
+                groupKey = SingletonRepository.DataIdGroupIdCache.getSingleton(groupKey);
+                md5Map.put(groupKey, md5);
+                // 对畸形报文进行保护
+                if (md5Map.size() > 10000) {
+                    throw new IllegalArgumentException("invalid protocol, too much listener");
+                }
+            }
+        });
+    }
+
     static public String toString(InputStream input, String encoding) throws IOException {
         return (null == encoding) ? toString(new InputStreamReader(input, Constants.ENCODE))
             : toString(new InputStreamReader(input, encoding));
@@ -83,6 +83,42 @@ public class PropertyUtil {
      * 单机模式使用db
      */
     private static boolean standaloneUseMysql = false;
+    /**
+     * 是否在内存中缓存配置内容
+     */
+    private static boolean contentCacheEnabled = true;
+    /**
+     * 配置内容内存缓存总大小上限，单位为字节，超出时按LRU淘汰
+     */
+    private static long contentCacheMaxSize = 64 * 1024 * 1024;
+    /**
+     * 可缓存的单个配置内容最大大小，单位为字节
+     */
+    private static int contentCacheMaxItemSize = 1024 * 1024;
+    /**
+     * 是否允许客户端建立监听会话，只发送增量监听列表
+     */
+    private static boolean listenerSessionEnabled = true;
+    /**
+     * 监听会话空闲过期时间，单位为毫秒
+     */
+    private static int listenerSessionExpireMs = 3 * 60 * 1000;
+    /**
+     * 监听会话最大个数，超出后客户端退回全量监听
+     */
+    private static int listenerSessionMaxCount = 50000;
+    /**
+     * 全量dump写磁盘的并发线程数
+     */
+    private static int dumpAllParallelism = Math.max(2, Runtime.getRuntime().availableProcessors());
+    /**
+     * 长轮询按groupKey分发变更通知的线程数
+     */
+    private static int longPollingDispatchThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    /**
+     * 长轮询写回响应的线程数
+     */
+    private static int longPollingResponseThreads = Runtime.getRuntime().availableProcessors() * 2;
 
 
     @Autowired
@@ -114,6 +150,15 @@ public class PropertyUtil {
             setCorrectUsageDelay(getInt("correctUsageDelay", correctUsageDelay));
             setInitialExpansionPercent(getInt("initialExpansionPercent", initialExpansionPercent));
             setStandaloneUseMysql(getString("spring.datasource.platform", "").equals("mysql"));
+            setContentCacheEnabled(getBoolean("contentCacheEnabled", contentCacheEnabled));
+            setContentCacheMaxSize(Long.parseLong(getString("contentCacheMaxSize", String.valueOf(contentCacheMaxSize))));
+            setContentCacheMaxItemSize(getInt("contentCacheMaxItemSize", contentCacheMaxItemSize));
+            setListenerSessionEnabled(getBoolean("listenerSessionEnabled", listenerSessionEnabled));
+            setListenerSessionExpireMs(getInt("listenerSessionExpireMs", listenerSessionExpireMs));
+            setListenerSessionMaxCount(getInt("listenerSessionMaxCount", listenerSessionMaxCount));
+            setDumpAllParallelism(getInt("dumpAllParallelism", dumpAllParallelism));
+            setLongPollingDispatchThreads(getInt("longPollingDispatchThreads", longPollingDispatchThreads));
+            setLongPollingResponseThreads(getInt("longPollingResponseThreads", longPollingResponseThreads));
 
         } catch (Exception e) {
             log.error("read application.properties failed", e);
@@ -213,6 +258,42 @@ public class PropertyUtil {
         return standaloneUseMysql;
     }
 
+    public static boolean isContentCacheEnabled() {
+        return contentCacheEnabled;
+    }
+
+    public static long getContentCacheMaxSize() {
+        return contentCacheMaxSize;
+    }
+
+    public static int getContentCacheMaxItemSize() {
+        return contentCacheMaxItemSize;
+    }
+
+    public static boolean isListenerSessionEnabled() {
+        return listenerSessionEnabled;
+    }
+
+    public static int getListenerSessionExpireMs() {
+        return listenerSessionExpireMs;
+    }
+
+    public static int getListenerSessionMaxCount() {
+        return listenerSessionMaxCount;
+    }
+
+    public static int getDumpAllParallelism() {
+        return dumpAllParallelism;
+    }
+
+    public static int getLongPollingDispatchThreads() {
+        return longPollingDispatchThreads;
+    }
+
+    public static int getLongPollingResponseThreads() {
+        return longPollingResponseThreads;
+    }
+
     public static void setNotifyConnectTimeout(int notifyConnectTimeout) {
         PropertyUtil.notifyConnectTimeout = notifyConnectTimeout;
     }
@@ -275,4 +356,40 @@ public class PropertyUtil {
     public static void setStandaloneUseMysql(boolean standaloneUseMysql) {
         PropertyUtil.standaloneUseMysql = standaloneUseMysql;
     }
+
+    public static void setContentCacheEnabled(boolean contentCacheEnabled) {
+        PropertyUtil.contentCacheEnabled = contentCacheEnabled;
+    }
+
+    public static void setContentCacheMaxSize(long contentCacheMaxSize) {
+        PropertyUtil.contentCacheMaxSize = contentCacheMaxSize;
+    }
+
+    public static void setListenerSessionEnabled(boolean listenerSessionEnabled) {
+        PropertyUtil.listenerSessionEnabled = listenerSessionEnabled;
+    }
+
+    public static void setListenerSessionExpireMs(int listenerSessionExpireMs) {
+        PropertyUtil.listenerSessionExpireMs = listenerSessionExpireMs;
+    }
+
+    public static void setListenerSessionMaxCount(int listenerSessionMaxCount) {
+        PropertyUtil.listenerSessionMaxCount = listenerSessionMaxCount;
+    }
+
+    public static void setDumpAllParallelism(int dumpAllParallelism) {
+        PropertyUtil.dumpAllParallelism = dumpAllParallelism;
+    }
+
+    public static void setLongPollingDispatchThreads(int longPollingDispatchThreads) {
+        PropertyUtil.longPollingDispatchThreads = longPollingDispatchThreads;
+    }
+
+    public static void setLongPollingResponseThreads(int longPollingResponseThreads) {
+        PropertyUtil.longPollingResponseThreads = longPollingResponseThreads;
+    }
+
+    public static void setContentCacheMaxItemSize(int contentCacheMaxItemSize) {
+        PropertyUtil.contentCacheMaxItemSize = contentCacheMaxItemSize;
+    }
 }
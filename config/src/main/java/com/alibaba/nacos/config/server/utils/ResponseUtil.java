@@ -16,9 +16,17 @@
 package com.alibaba.nacos.config.server.utils;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.CoyoteOutputStream;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * write response
@@ -28,6 +36,27 @@ import java.io.IOException;
 @Slf4j
 public class ResponseUtil {
 
+    /**
+     * 不小于该大小的文件才通过sendfile发送，与tomcat DefaultServlet的默认值一致，更小的文件直接写出更快
+     */
+    public static final long SENDFILE_THRESHOLD = 48 * 1024;
+
+    static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+
+    static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+
+    static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+
+    static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 每个请求线程复用一个堆外缓冲区：文件直接读入，tomcat再从中拷贝到socket缓冲区，不经堆内数组
+     */
+    private static final ThreadLocal<ByteBuffer> FILE_BUFFER =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(FILE_BUFFER_SIZE));
+
     public static void writeErrMsg(HttpServletResponse response, int httpCode,
                                    String msg) {
         response.setStatus(httpCode);
@@ -37,4 +66,63 @@ public class ResponseUtil {
             log.error("ResponseUtil:writeErrMsg wrong", e);
         }
     }
+
+    /**
+     * @param request 请求
+     * @return 容器是否支持请求结束后由sendfile发送文件
+     */
+    public static boolean isSendfileSupported(HttpServletRequest request) {
+        return Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR));
+    }
+
+    /**
+     * 由tomcat在请求处理结束后按文件名打开文件，以sendfile从页缓存直接发送到socket。文件在发送完成前不得被修改或删除
+     *
+     * @param request  请求，需{@link #isSendfileSupported(HttpServletRequest)}
+     * @param response 响应
+     * @param file     发送的文件
+     * @param size     发送的长度
+     * @throws IOException 解析文件路径失败
+     */
+    public static void sendFile(HttpServletRequest request, HttpServletResponse response, File file, long size)
+        throws IOException {
+        response.setContentLengthLong(size);
+        request.setAttribute(SENDFILE_FILENAME_ATTR, file.getCanonicalPath());
+        request.setAttribute(SENDFILE_START_ATTR, 0L);
+        request.setAttribute(SENDFILE_END_ATTR, size);
+    }
+
+    /**
+     * 将已打开文件的内容写入响应。dump通过整体替换更新文件，已打开的文件始终是完整的某一版本
+     * <p>
+     * 文件读入复用的堆外缓冲区，tomcat下由缓冲区直接写入连接的socket缓冲区；其他容器退回经输出流写出
+     *
+     * @param response    响应
+     * @param fileChannel 已打开的文件
+     * @throws IOException 读文件或写响应失败
+     */
+    public static void writeFile(HttpServletResponse response, FileChannel fileChannel) throws IOException {
+        long size = fileChannel.size();
+        response.setContentLengthLong(size);
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = out instanceof CoyoteOutputStream ? null : Channels.newChannel(out);
+        ByteBuffer buffer = FILE_BUFFER.get();
+        long position = 0L;
+        while (position < size) {
+            buffer.clear();
+            int read = fileChannel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            if (target == null) {
+                ((CoyoteOutputStream) out).write(buffer);
+            } else {
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+            }
+        }
+    }
 }
@@ -15,6 +15,7 @@
  */
 package com.alibaba.nacos.config.server.service;
 
+import com.alibaba.nacos.common.utils.IoUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -23,6 +24,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
@@ -52,6 +54,20 @@ public class DiskServiceUnitTest {
 
     }
 
+    @Test
+    public void testReplaceConfigKeepsOpenedVersion() throws IOException {
+        diskService.saveToDisk("testDataId", "testGroup", "testTenant", "oldContent");
+        try (FileInputStream fis = new FileInputStream(DiskUtil.targetFile("testDataId", "testGroup", "testTenant"))) {
+            diskService.saveToDisk("testDataId", "testGroup", "testTenant", "newContent");
+            // 已打开的文件仍是旧版本的完整内容
+            assertEquals("oldContent", IoUtils.toString(fis, "UTF-8"));
+        }
+        assertEquals("newContent", diskService.getConfig("testDataId", "testGroup", "testTenant"));
+        // 临时文件与目标文件同目录，替换后不残留
+        File[] files = DiskUtil.targetFile("testDataId", "testGroup", "testTenant").getParentFile().listFiles();
+        assertEquals(1, files.length);
+    }
+
     @After
     public void tearDown() throws IOException {
         tempFile.delete();
@@ -0,0 +1,85 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.common.utils.BinaryListenerCodec;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
+import com.alibaba.nacos.config.server.utils.MD5Util;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class ListenerSessionServiceTest {
+
+    @Before
+    public void before() {
+        ListenerSessionService.SESSIONS.clear();
+    }
+
+    @Test
+    public void testMergeDelta() {
+        BinaryListenerCodec.Encoder full = new BinaryListenerCodec.Encoder(3000);
+        for (int i = 0; i < 3000; i++) {
+            full.add("dataId" + i, "group", "", "md5-" + i);
+        }
+        Map<String, String> md5Map = MD5Util.getClientMd5Map(full.toByteArray());
+        String sessionId = ListenerSessionService.open(md5Map);
+        Assert.assertNotNull(sessionId);
+
+        BinaryListenerCodec.Encoder delta = new BinaryListenerCodec.Encoder(3);
+        delta.add("dataId0", "group", "", "md5-changed");
+        delta.add("dataIdNew", "group", "tenant", "md5-new");
+        delta.remove("dataId1", "group", "");
+        byte[] deltaBytes = delta.toByteArray();
+        Assert.assertTrue(deltaBytes.length * 100 < full.toByteArray().length);
+
+        Map<String, String> merged = ListenerSessionService.merge(sessionId, deltaBytes);
+        Assert.assertEquals(3000, merged.size());
+        Assert.assertEquals("md5-changed", merged.get(GroupKey2.getKey("dataId0", "group")));
+        Assert.assertEquals("md5-new", merged.get(GroupKey2.getKey("dataIdNew", "group", "tenant")));
+        Assert.assertFalse(merged.containsKey(GroupKey2.getKey("dataId1", "group")));
+        // 建立会话时传入的监听列表不被修改
+        Assert.assertEquals("md5-0", md5Map.get(GroupKey2.getKey("dataId0", "group")));
+
+        // 增量合并到会话自身的监听列表，不复制全量
+        Assert.assertSame(merged, ListenerSessionService.merge(sessionId, new BinaryListenerCodec.Encoder(0).toByteArray()));
+        Assert.assertEquals(3000, merged.size());
+    }
+
+    @Test
+    public void testUnknownAndExpiredSession() {
+        Assert.assertNull(ListenerSessionService.merge("unknown", new BinaryListenerCodec.Encoder(0).toByteArray()));
+
+        String sessionId = ListenerSessionService.open(MD5Util.getClientMd5Map(new byte[0]));
+        Assert.assertEquals(1, ListenerSessionService.sessionCount());
+        ListenerSessionService.expire(System.currentTimeMillis() + 1);
+        Assert.assertEquals(0, ListenerSessionService.sessionCount());
+        Assert.assertNull(ListenerSessionService.merge(sessionId, new BinaryListenerCodec.Encoder(0).toByteArray()));
+    }
+
+    @Test
+    public void testMalformedDeltaDropsSession() {
+        String sessionId = ListenerSessionService.open(MD5Util.getClientMd5Map(new byte[0]));
+        try {
+            ListenerSessionService.merge(sessionId, new byte[] {1, 5, 'a'});
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals(0, ListenerSessionService.sessionCount());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.dump;
+
+import com.alibaba.nacos.common.utils.Md5Utils;
+import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.model.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.model.Page;
+import com.alibaba.nacos.config.server.service.ConfigService;
+import com.alibaba.nacos.config.server.service.PersistService;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
+import com.alibaba.nacos.config.server.utils.MD5;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+public class DumpAllProcessorTest {
+
+    private static final int COUNT = 5000;
+
+    private static final String GROUP = "DumpAllProcessorTest";
+
+    private DumpService dumpService;
+
+    @Before
+    public void setUp() {
+        PersistService persistService = Mockito.mock(PersistService.class);
+        Mockito.when(persistService.findConfigMaxId()).thenReturn((long) COUNT);
+        Mockito.when(persistService.findAllConfigInfoFragment(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long lastMaxId = invocation.getArgument(0);
+            int pageSize = invocation.getArgument(1);
+            Page<ConfigInfoWrapper> page = new Page<ConfigInfoWrapper>();
+            List<ConfigInfoWrapper> items = new ArrayList<ConfigInfoWrapper>();
+            for (long id = lastMaxId + 1; id <= Math.min(COUNT, lastMaxId + pageSize); id++) {
+                ConfigInfoWrapper config = new ConfigInfoWrapper();
+                config.setId(id);
+                config.setDataId("dataId" + id);
+                config.setGroup(GROUP);
+                config.setContent("content" + id);
+                config.setLastModified(id);
+                items.add(config);
+            }
+            page.setPageItems(items);
+            return page;
+        });
+        dumpService = Mockito.mock(DumpService.class);
+        dumpService.persistService = persistService;
+    }
+
+    @After
+    public void tearDown() {
+        for (int id = 1; id <= COUNT; id++) {
+            ConfigService.remove("dataId" + id, GROUP, null);
+        }
+    }
+
+    @Test
+    public void testDumpAll() {
+        new DumpAllProcessor(dumpService, 4).process(DumpAllTask.TASK_ID, new DumpAllTask());
+        for (int id = 1; id <= COUNT; id++) {
+            Assert.assertEquals(MD5.getInstance().getMD5String("content" + id),
+                ConfigService.getContentMd5(GroupKey2.getKey("dataId" + id, GROUP)));
+        }
+    }
+
+    /**
+     * 单线程与多线程全量dump的结果一致
+     */
+    @Test
+    public void testParallelDumpMatchesSerial() {
+        long start = System.currentTimeMillis();
+        new DumpAllProcessor(dumpService, 1).process(DumpAllTask.TASK_ID, new DumpAllTask());
+        long serialCost = System.currentTimeMillis() - start;
+        Map<String, String> serialMd5s = new HashMap<String, String>(COUNT);
+        for (int id = 1; id <= COUNT; id++) {
+            String groupKey = GroupKey2.getKey("dataId" + id, GROUP);
+            serialMd5s.put(groupKey, ConfigService.getContentMd5(groupKey));
+        }
+        tearDown();
+
+        start = System.currentTimeMillis();
+        new DumpAllProcessor(dumpService, 4).process(DumpAllTask.TASK_ID, new DumpAllTask());
+        long parallelCost = System.currentTimeMillis() - start;
+        for (int id = 1; id <= COUNT; id++) {
+            String groupKey = GroupKey2.getKey("dataId" + id, GROUP);
+            Assert.assertEquals(Md5Utils.getMD5("content" + id, Constants.ENCODE), serialMd5s.get(groupKey));
+            Assert.assertEquals(serialMd5s.get(groupKey), ConfigService.getContentMd5(groupKey));
+        }
+        System.out.println("dump all " + COUNT + " configs, 1 thread: " + serialCost + "ms, 4 threads: "
+            + parallelCost + "ms");
+    }
+}
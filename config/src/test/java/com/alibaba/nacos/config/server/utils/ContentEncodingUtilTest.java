@@ -0,0 +1,75 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.utils;
+
+import com.alibaba.nacos.common.utils.IoUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class ContentEncodingUtilTest {
+
+    @Test
+    public void testNegotiate() {
+        Assert.assertNull(ContentEncodingUtil.negotiate(request(null)));
+        Assert.assertNull(ContentEncodingUtil.negotiate(request("identity")));
+        Assert.assertEquals("gzip", ContentEncodingUtil.negotiate(request("gzip, deflate")));
+        Assert.assertEquals("gzip", ContentEncodingUtil.negotiate(request("deflate, GZIP")));
+        Assert.assertEquals("deflate", ContentEncodingUtil.negotiate(request("gzip;q=0, deflate")));
+        Assert.assertNull(ContentEncodingUtil.negotiate(request("gzip;q=0")));
+    }
+
+    @Test
+    public void testCompress() throws Exception {
+        byte[] content = "dataId=test\ngroup=DEFAULT_GROUP\n".getBytes("UTF-8");
+        byte[] gzip = ContentEncodingUtil.compress(content, ContentEncodingUtil.GZIP);
+        Assert.assertEquals(new String(content, "UTF-8"),
+            IoUtils.toString(new GZIPInputStream(new ByteArrayInputStream(gzip)), "UTF-8"));
+        byte[] deflate = ContentEncodingUtil.compress(content, ContentEncodingUtil.DEFLATE);
+        Assert.assertEquals(new String(content, "UTF-8"),
+            IoUtils.toString(new InflaterInputStream(new ByteArrayInputStream(deflate)), "UTF-8"));
+    }
+
+    @Test
+    public void testWriteText() throws Exception {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < ContentEncodingUtil.MIN_COMPRESS_SIZE) {
+            text.append("dataId%02group%02tenant%01");
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ContentEncodingUtil.writeText(request("gzip"), response, text.toString());
+        Assert.assertEquals("gzip", response.getHeader("Content-Encoding"));
+        Assert.assertEquals(text.toString() + System.lineSeparator(), IoUtils.toString(
+            new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())), "UTF-8"));
+
+        response = new MockHttpServletResponse();
+        ContentEncodingUtil.writeText(request("gzip"), response, "small");
+        Assert.assertNull(response.getHeader("Content-Encoding"));
+    }
+
+    private MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.utils;
+
+import com.alibaba.nacos.common.utils.BinaryListenerCodec;
+import com.alibaba.nacos.config.server.constant.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.Map;
+
+import static com.alibaba.nacos.config.server.constant.Constants.LINE_SEPARATOR;
+import static com.alibaba.nacos.config.server.constant.Constants.WORD_SEPARATOR;
+
+public class MD5UtilTest {
+
+    private static final int KEYS = 3000;
+
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void testBinaryEqualsText() throws Exception {
+        String text = buildText(KEYS);
+        byte[] binary = buildBinary(KEYS);
+
+        Map<String, String> textMap = MD5Util.getClientMd5Map(text);
+        Map<String, String> binaryMap = MD5Util.getClientMd5Map(binary);
+        Assert.assertEquals(KEYS, binaryMap.size());
+        Assert.assertEquals(textMap, binaryMap);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBinaryTooMuchListener() {
+        MD5Util.getClientMd5Map(buildBinary(10001));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBinaryTruncated() {
+        byte[] binary = buildBinary(2);
+        byte[] truncated = new byte[binary.length - 3];
+        System.arraycopy(binary, 0, truncated, 0, truncated.length);
+        MD5Util.getClientMd5Map(truncated);
+    }
+
+    /**
+     * 3000个配置时二进制协议的报文小于URL编码后的文本协议，且解析结果一致
+     */
+    @Test
+    public void testBinarySmallerThanText() throws Exception {
+        String encodedText = URLEncoder.encode(buildText(KEYS), Constants.ENCODE);
+        byte[] binary = buildBinary(KEYS);
+
+        Assert.assertTrue(binary.length < encodedText.length());
+        Assert.assertEquals(MD5Util.getClientMd5Map(URLDecoder.decode(encodedText, Constants.ENCODE)),
+            MD5Util.getClientMd5Map(binary));
+    }
+
+    /**
+     * 服务端解析3000个配置的监听报文：文本协议需先URL解码再逐字符切分，二进制协议按长度前缀直接读取
+     */
+    @Test
+    public void compareWithText() throws Exception {
+        String encodedText = URLEncoder.encode(buildText(KEYS), Constants.ENCODE);
+        byte[] binary = buildBinary(KEYS);
+        Map<String, String> expected = MD5Util.getClientMd5Map(buildText(KEYS));
+
+        for (int i = 0; i < ROUNDS; i++) {
+            MD5Util.getClientMd5Map(URLDecoder.decode(encodedText, Constants.ENCODE));
+            MD5Util.getClientMd5Map(binary);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            Assert.assertEquals(KEYS, MD5Util.getClientMd5Map(URLDecoder.decode(encodedText, Constants.ENCODE)).size());
+        }
+        long textCost = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            Assert.assertEquals(KEYS, MD5Util.getClientMd5Map(binary).size());
+        }
+        long binaryCost = System.nanoTime() - start;
+
+        Assert.assertEquals(expected, MD5Util.getClientMd5Map(binary));
+        System.out.println("listener keys: " + KEYS + ", text: " + encodedText.length() + " bytes "
+            + textCost / ROUNDS / 1000 + "us, binary: " + binary.length + " bytes " + binaryCost / ROUNDS / 1000 + "us");
+    }
+
+    private static String buildText(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(dataId(i)).append(WORD_SEPARATOR).append(group(i)).append(WORD_SEPARATOR);
+            if (tenant(i).isEmpty()) {
+                sb.append(md5(i)).append(LINE_SEPARATOR);
+            } else {
+                sb.append(md5(i)).append(WORD_SEPARATOR).append(tenant(i)).append(LINE_SEPARATOR);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static byte[] buildBinary(int count) {
+        BinaryListenerCodec.Encoder encoder = new BinaryListenerCodec.Encoder(count);
+        for (int i = 0; i < count; i++) {
+            encoder.add(dataId(i), group(i), tenant(i), md5(i));
+        }
+        return encoder.toByteArray();
+    }
+
+    private static String dataId(int i) {
+        return "com.alibaba.nacos.test.dataId." + i + ".properties";
+    }
+
+    private static String group(int i) {
+        return "DEFAULT_GROUP";
+    }
+
+    private static String tenant(int i) {
+        return i % 2 == 0 ? "" : "tenant-" + (i % 5);
+    }
+
+    private static String md5(int i) {
+        return i % 7 == 0 ? "" : MD5.getInstance().getMD5String("content" + i);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.utils;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ResponseUtilTest {
+
+    private static final int[] SIZES = {1024, 100 * 1024, 1024 * 1024};
+
+    private static final int ROUNDS = 500;
+
+    private File tempFile;
+
+    @Before
+    public void setUp() throws IOException {
+        tempFile = File.createTempFile("responseUtilTest", "tmp");
+    }
+
+    @After
+    public void tearDown() {
+        tempFile.delete();
+    }
+
+    @Test
+    public void testWriteFile() throws IOException {
+        for (int size : SIZES) {
+            byte[] content = prepare(size);
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            try (FileInputStream fis = new FileInputStream(tempFile)) {
+                ResponseUtil.writeFile(response, fis.getChannel());
+            }
+            Assert.assertEquals(size, response.getContentLength());
+            Assert.assertArrayEquals(content, response.getContentAsByteArray());
+        }
+    }
+
+    @Test
+    public void testSendFile() throws IOException {
+        prepare(100 * 1024);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        Assert.assertFalse(ResponseUtil.isSendfileSupported(request));
+        request.setAttribute(ResponseUtil.SENDFILE_SUPPORT_ATTR, Boolean.TRUE);
+        Assert.assertTrue(ResponseUtil.isSendfileSupported(request));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseUtil.sendFile(request, response, tempFile, tempFile.length());
+        Assert.assertEquals(tempFile.length(), response.getContentLength());
+        Assert.assertEquals(0, response.getContentAsByteArray().length);
+        Assert.assertEquals(tempFile.getCanonicalPath(), request.getAttribute(ResponseUtil.SENDFILE_FILENAME_ATTR));
+        Assert.assertEquals(0L, request.getAttribute(ResponseUtil.SENDFILE_START_ATTR));
+        Assert.assertEquals(tempFile.length(), request.getAttribute(ResponseUtil.SENDFILE_END_ATTR));
+    }
+
+    /**
+     * 经本机socket对比1KB、100KB、1MB文件的三种写出方式：原先经堆内缓冲区的流拷贝，writeFile的堆外缓冲区，
+     * 以及tomcat sendfile所用的transferTo到socket
+     */
+    @Test
+    public void compareWithStreamCopy() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            AtomicLong received = new AtomicLong();
+            Thread reader = new Thread(() -> {
+                try (Socket socket = server.accept(); InputStream in = socket.getInputStream()) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        received.addAndGet(read);
+                    }
+                } catch (IOException ignore) {
+                }
+            });
+            reader.start();
+
+            long sent = 0L;
+            try (SocketChannel socket = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getLocalPort()))) {
+                ByteBuffer directBuffer = ByteBuffer.allocateDirect(64 * 1024);
+                for (int size : SIZES) {
+                    prepare(size);
+                    long[] costs = new long[3];
+                    for (int i = 0; i < ROUNDS; i++) {
+                        for (int mode = 0; mode < costs.length; mode++) {
+                            long start = System.nanoTime();
+                            try (FileInputStream fis = new FileInputStream(tempFile)) {
+                                write(mode, fis.getChannel(), socket, directBuffer);
+                            }
+                            costs[mode] += System.nanoTime() - start;
+                            sent += size;
+                        }
+                    }
+                    System.out.println(String.format("size=%d, stream copy avg=%dus, direct buffer avg=%dus, "
+                            + "sendfile avg=%dus", size, costs[0] / ROUNDS / 1000, costs[1] / ROUNDS / 1000,
+                        costs[2] / ROUNDS / 1000));
+                }
+            }
+            reader.join();
+            Assert.assertEquals(sent, received.get());
+        }
+    }
+
+    private static void write(int mode, FileChannel file, SocketChannel socket, ByteBuffer directBuffer)
+        throws IOException {
+        long size = file.size();
+        long position = 0L;
+        if (mode == 0) {
+            file.transferTo(0L, size, Channels.newChannel(socket.socket().getOutputStream()));
+            return;
+        }
+        while (position < size) {
+            if (mode == 1) {
+                directBuffer.clear();
+                position += file.read(directBuffer, position);
+                directBuffer.flip();
+                while (directBuffer.hasRemaining()) {
+                    socket.write(directBuffer);
+                }
+            } else {
+                position += file.transferTo(position, size - position, socket);
+            }
+        }
+    }
+
+    private byte[] prepare(int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+            fos.write(content);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import com.alibaba.nacos.naming.pojo.Record;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary encoding of the Distro data, {@code Map<String, Datum<Instances>>} or a single {@code Datum<Instances>}.
+ * <p>
+ * The payload starts with {@link #MAGIC} so it can never be mistaken for JSON, followed by the kind of the payload and
+ * the entries of the map, or the datum.
+ * Each instance is written field by field in a fixed order. Strings are written once per payload and referenced by
+ * index afterwards, so the cluster names, service names and metadata keys repeated by every instance cost a few bytes
+ * each.
+ *
+ * @author nacos
+ */
+@Component
+@Slf4j
+public class BinarySerializer implements Serializer {
+
+    public static final String CONTENT_TYPE = "application/x-nacos-distro";
+
+    /**
+     * 0x00, 'N', 'D', version
+     */
+    private static final byte[] MAGIC = {0x00, 'N', 'D', 0x01};
+
+    private static final int KIND_MAP = 0;
+
+    private static final int KIND_DATUM = 1;
+
+    private static final int FLAG_HEALTHY = 1;
+
+    private static final int FLAG_ENABLED = 1 << 1;
+
+    private static final int FLAG_EPHEMERAL = 1 << 2;
+
+    private static final int FLAG_MARKED = 1 << 3;
+
+    /**
+     * string tags: 0 for null, 1 for a new string, n + 2 for the n-th string of the payload
+     */
+    private static final int STRING_NULL = 0;
+
+    private static final int STRING_NEW = 1;
+
+    private static final int STRING_REF_OFFSET = 2;
+
+    public static boolean isBinary(byte[] data) {
+        if (data == null || data.length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public <T> byte[] serialize(T data) {
+        if (data instanceof Datum) {
+            Writer writer = new Writer(256);
+            writer.writeBytes(MAGIC);
+            writer.writeVarInt(KIND_DATUM);
+            writeDatum(writer, (Datum) data);
+            return writer.toByteArray();
+        }
+        if (!(data instanceof Map)) {
+            throw new IllegalArgumentException("only datum or map of datum is supported, type: "
+                + (data == null ? null : data.getClass().getName()));
+        }
+
+        Map<?, ?> dataMap = (Map<?, ?>) data;
+        Writer writer = new Writer(dataMap.size() * 256);
+        writer.writeBytes(MAGIC);
+        writer.writeVarInt(KIND_MAP);
+        writer.writeVarInt(dataMap.size());
+        for (Map.Entry<?, ?> entry : dataMap.entrySet()) {
+            if (!(entry.getValue() instanceof Datum)) {
+                throw new IllegalArgumentException("only datum of instances is supported, key: " + entry.getKey());
+            }
+            writer.writeString((String) entry.getKey());
+            writeDatum(writer, (Datum) entry.getValue());
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param clazz {@link Datum} for a datum of instances, {@link Map} for a map of them
+     */
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> clazz) {
+        return deserialize(data, (Type) clazz);
+    }
+
+    /**
+     * @param clazz {@code Datum<Instances>} for a datum, {@code Map<String, Datum<Instances>>} for a map of them
+     */
+    @Override
+    public <T> T deserialize(byte[] data, TypeReference<T> clazz) {
+        return deserialize(data, clazz.getType());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Record> Map<String, Datum<T>> deserializeMap(byte[] data, Class<T> clazz) {
+        if (clazz != Instances.class) {
+            throw new IllegalArgumentException("only datum of instances is supported, type: " + clazz.getName());
+        }
+        return deserialize(data, Map.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T deserialize(byte[] data, Type type) {
+        Type rawType = type instanceof ParameterizedType ? ((ParameterizedType) type).getRawType() : type;
+        int kind;
+        if (rawType == Datum.class) {
+            if (type instanceof ParameterizedType
+                && ((ParameterizedType) type).getActualTypeArguments()[0] != Instances.class) {
+                throw new IllegalArgumentException("only datum of instances is supported, type: "
+                    + type.getTypeName());
+            }
+            kind = KIND_DATUM;
+        } else if (rawType instanceof Class && Map.class.isAssignableFrom((Class<?>) rawType)) {
+            kind = KIND_MAP;
+        } else {
+            throw new IllegalArgumentException("only datum or map of datum of instances is supported, type: "
+                + type.getTypeName());
+        }
+
+        try {
+            if (!isBinary(data)) {
+                throw new IllegalArgumentException("unknown data format");
+            }
+
+            Reader reader = new Reader(data, MAGIC.length);
+            if (reader.readVarInt() != kind) {
+                throw new IllegalArgumentException("unexpected kind of data, type: " + type.getTypeName());
+            }
+            if (kind == KIND_DATUM) {
+                return (T) readDatum(reader);
+            }
+
+            int size = reader.readVarInt();
+            Map<String, Datum<Instances>> resultMap = new HashMap<>(Math.max(16, size * 2));
+            for (int i = 0; i < size; i++) {
+                String mapKey = reader.readString();
+                resultMap.put(mapKey, readDatum(reader));
+            }
+            return (T) resultMap;
+        } catch (Exception e) {
+            log.error("deserialize data failed.", e);
+        }
+        return null;
+    }
+
+    private static void writeDatum(Writer writer, Datum datum) {
+        if (!(datum.value instanceof Instances)) {
+            throw new IllegalArgumentException("only datum of instances is supported, key: " + datum.key);
+        }
+        writer.writeString(datum.key);
+        writer.writeLong(datum.timestamp.get());
+        writeInstances(writer, (Instances) datum.value);
+    }
+
+    private static Datum<Instances> readDatum(Reader reader) {
+        Datum<Instances> datum = new Datum<>();
+        datum.key = reader.readString();
+        datum.timestamp.set(reader.readLong());
+        datum.value = readInstances(reader);
+        return datum;
+    }
+
+    private static void writeInstances(Writer writer, Instances instances) {
+        List<Instance> instanceList = instances.getInstanceList();
+        writer.writeVarInt(instanceList.size());
+        for (Instance instance : instanceList) {
+            writer.writeString(instance.getInstanceId());
+            writer.writeString(instance.getIp());
+            writer.writeVarInt(instance.getPort());
+            writer.writeLong(Double.doubleToLongBits(instance.getWeight()));
+
+            int flags = 0;
+            flags |= instance.isHealthy() ? FLAG_HEALTHY : 0;
+            flags |= instance.isEnabled() ? FLAG_ENABLED : 0;
+            flags |= instance.isEphemeral() ? FLAG_EPHEMERAL : 0;
+            flags |= instance.isMarked() ? FLAG_MARKED : 0;
+            writer.writeVarInt(flags);
+
+            writer.writeString(instance.getClusterName());
+            writer.writeString(instance.getServiceName());
+            writer.writeString(instance.getTenant());
+            writer.writeString(instance.getApp());
+            writer.writeLong(instance.getLastBeat());
+
+            Map<String, String> metadata = instance.getMetadata();
+            if (metadata == null) {
+                writer.writeVarInt(0);
+                continue;
+            }
+            writer.writeVarInt(metadata.size() + 1);
+            for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                writer.writeString(entry.getKey());
+                writer.writeString(entry.getValue());
+            }
+        }
+    }
+
+    private static Instances readInstances(Reader reader) {
+        int size = reader.readVarInt();
+        List<Instance> instanceList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Instance instance = new Instance();
+            instance.setInstanceId(reader.readString());
+            instance.setIp(reader.readString());
+            instance.setPort(reader.readVarInt());
+            instance.setWeight(Double.longBitsToDouble(reader.readLong()));
+
+            int flags = reader.readVarInt();
+            instance.setHealthy((flags & FLAG_HEALTHY) != 0);
+            instance.setEnabled((flags & FLAG_ENABLED) != 0);
+            instance.setEphemeral((flags & FLAG_EPHEMERAL) != 0);
+            instance.setMarked((flags & FLAG_MARKED) != 0);
+
+            instance.setClusterName(reader.readString());
+            instance.setServiceName(reader.readString());
+            instance.setTenant(reader.readString());
+            instance.setApp(reader.readString());
+            instance.setLastBeat(reader.readLong());
+
+            int metadataSize = reader.readVarInt() - 1;
+            if (metadataSize < 0) {
+                instance.setMetadata(null);
+            } else {
+                Map<String, String> metadata = new HashMap<>(Math.max(4, metadataSize * 2));
+                for (int j = 0; j < metadataSize; j++) {
+                    metadata.put(reader.readString(), reader.readString());
+                }
+                instance.setMetadata(metadata);
+            }
+            instanceList.add(instance);
+        }
+
+        Instances instances = new Instances();
+        instances.setInstanceList(instanceList);
+        return instances;
+    }
+
+    private static class Writer {
+
+        private byte[] buffer;
+
+        private int position;
+
+        private final Map<String, Integer> strings = new HashMap<>(64);
+
+        Writer(int initialCapacity) {
+            buffer = new byte[Math.max(64, initialCapacity)];
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(STRING_NULL);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarInt(index + STRING_REF_OFFSET);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(STRING_NEW);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
+
+    private static class Reader {
+
+        private final ByteBuffer buffer;
+
+        private final List<String> strings = new ArrayList<>(64);
+
+        Reader(byte[] data, int offset) {
+            buffer = ByteBuffer.wrap(data, offset, data.length - offset);
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("malformed var int at " + buffer.position());
+        }
+
+        long readLong() {
+            return buffer.getLong();
+        }
+
+        String readString() {
+            int tag = readVarInt();
+            if (tag == STRING_NULL) {
+                return null;
+            }
+            if (tag != STRING_NEW) {
+                return strings.get(tag - STRING_REF_OFFSET);
+            }
+            int length = readVarInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            strings.add(value);
+            return value;
+        }
+    }
+}
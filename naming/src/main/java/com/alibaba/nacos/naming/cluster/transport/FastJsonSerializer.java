@@ -21,6 +21,7 @@ import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.pojo.Record;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
@@ -34,6 +35,7 @@ import java.util.Map;
  * @since 1.0.0
  */
 @Component
+@Primary
 @Slf4j
 public class FastJsonSerializer implements Serializer {
 
@@ -0,0 +1,97 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.nacos.naming.misc.GlobalConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Select the serializer of the data exchanged with other servers.
+ * <p>
+ * The binary serializer is used when configured by {@code nacos.naming.distro.serializer=binary}. A server known to
+ * reject binary data is sent JSON for a while, so servers of older versions can be upgraded one by one. Every server
+ * accepts binary data, whatever its own configuration.
+ *
+ * @author nacos
+ */
+@Component
+@Slf4j
+public class SerializerSelector {
+
+    public static final String BINARY = "binary";
+
+    private static final long UNSUPPORTED_EXPIRE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private FastJsonSerializer jsonSerializer;
+
+    @Autowired
+    private BinarySerializer binarySerializer;
+
+    @Autowired
+    private GlobalConfig globalConfig;
+
+    /**
+     * server -> time the server rejected binary data
+     */
+    private final ConcurrentMap<String, Long> binaryUnsupportedServers = new ConcurrentHashMap<>();
+
+    public boolean isBinaryPreferred() {
+        return BINARY.equals(globalConfig.getSerializer());
+    }
+
+    /**
+     * Serializer of the data sent to a server
+     */
+    public Serializer select(String server) {
+        if (!isBinaryPreferred()) {
+            return jsonSerializer;
+        }
+
+        Long unsupportedTime = binaryUnsupportedServers.get(server);
+        if (unsupportedTime == null) {
+            return binarySerializer;
+        }
+        if (System.currentTimeMillis() - unsupportedTime > UNSUPPORTED_EXPIRE_MILLIS) {
+            binaryUnsupportedServers.remove(server, unsupportedTime);
+            return binarySerializer;
+        }
+        return jsonSerializer;
+    }
+
+    public void markBinaryUnsupported(String server) {
+        if (binaryUnsupportedServers.put(server, System.currentTimeMillis()) == null) {
+            log.warn("server {} does not support binary data, fall back to JSON.", server);
+        }
+    }
+
+    /**
+     * Serializer of the data received from a server
+     */
+    public Serializer detect(byte[] data) {
+        return BinarySerializer.isBinary(data) ? binarySerializer : jsonSerializer;
+    }
+
+    public boolean isBinary(Serializer serializer) {
+        return serializer == binarySerializer;
+    }
+}
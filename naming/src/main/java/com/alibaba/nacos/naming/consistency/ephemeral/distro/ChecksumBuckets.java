@@ -0,0 +1,117 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import java.util.*;
+
+/**
+ * Digests of key checksums grouped into a fixed number of buckets.
+ * <p>
+ * Two servers holding the same keys and checksums get the same digest for every bucket, so only the buckets whose
+ * digests differ need their key checksums compared. The digest of a bucket is the sum of the hashes of its entries,
+ * which does not depend on the iteration order of the keys.
+ *
+ * @author nacos
+ */
+public class ChecksumBuckets {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int bucketCount;
+
+    private final long[] digests;
+
+    private final int[] sizes;
+
+    public ChecksumBuckets(int bucketCount) {
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("illegal bucket count: " + bucketCount);
+        }
+        this.bucketCount = bucketCount;
+        this.digests = new long[bucketCount];
+        this.sizes = new int[bucketCount];
+    }
+
+    /**
+     * Bucket of a key, stable across servers as it only depends on {@link String#hashCode()}
+     */
+    public static int bucketOf(String key, int bucketCount) {
+        return (key.hashCode() & Integer.MAX_VALUE) % bucketCount;
+    }
+
+    public void add(String key, String checksum) {
+        int bucket = bucketOf(key, bucketCount);
+        digests[bucket] += hash(key, checksum);
+        sizes[bucket]++;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * @return bucket -> digest, empty buckets are left out
+     */
+    public Map<Integer, Long> getDigests() {
+        Map<Integer, Long> result = new HashMap<>(16);
+        for (int i = 0; i < bucketCount; i++) {
+            if (sizes[i] > 0) {
+                result.put(i, digests[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compare with the digests of another server
+     *
+     * @param remoteDigests bucket -> digest of the other server, empty buckets left out
+     * @return buckets whose digests differ, in ascending order
+     */
+    public List<Integer> mismatch(Map<Integer, Long> remoteDigests) {
+        List<Integer> buckets = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            Long remote = remoteDigests.get(i);
+            if (remote == null ? sizes[i] > 0 : sizes[i] == 0 || remote != digests[i]) {
+                buckets.add(i);
+            }
+        }
+        return buckets;
+    }
+
+    private static long hash(String key, String checksum) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        // separate the key from the checksum:
+        hash = (hash ^ 0xff) * FNV_PRIME;
+        if (checksum != null) {
+            for (int i = 0; i < checksum.length(); i++) {
+                hash = (hash ^ checksum.charAt(i)) * FNV_PRIME;
+            }
+        }
+        // spread the bits before summing:
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -17,23 +17,24 @@ package com.alibaba.nacos.naming.consistency.ephemeral.distro;
 
 import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.servers.Server;
+import com.alibaba.nacos.naming.cluster.servers.ServerChangeListener;
 import com.alibaba.nacos.naming.cluster.transport.Serializer;
+import com.alibaba.nacos.naming.cluster.transport.SerializerSelector;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
 import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.misc.*;
+import com.alibaba.nacos.naming.monitor.MetricsMonitor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.net.HttpURLConnection;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Data replicator
@@ -44,7 +45,7 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 @DependsOn("serverListManager")
 @Slf4j
-public class DataSyncer {
+public class DataSyncer implements ServerChangeListener {
 
     @Autowired
     private DataStore dataStore;
@@ -55,101 +56,114 @@ public class DataSyncer {
     @Autowired
     private Serializer serializer;
 
+    @Autowired
+    private SerializerSelector serializerSelector;
+
     @Autowired
     private DistroMapper distroMapper;
 
     @Autowired
     private ServerListManager serverListManager;
 
-    private final Map<String, String> taskMap = new ConcurrentHashMap<>();
+    private static final String[] PIPELINE_MONITORS = {"distroSyncPending", "distroSyncInFlight", "distroSyncLag"};
+
+    private final ConcurrentMap<String, SyncPipeline> pipelines = new ConcurrentHashMap<>();
 
     @PostConstruct
     public void init() {
+        serverListManager.listen(this);
         startTimedSync();
     }
 
-    public void submit(SyncTask task, long delay) {
-
-        // If it's a new task:
-        if (task.getRetryCount() == 0) {
-            Iterator<String> iterator = task.getKeys().iterator();
-            while (iterator.hasNext()) {
-                String key = iterator.next();
-                if (StringUtils.isNotBlank(taskMap.putIfAbsent(buildKey(key, task.getTargetServer()), key))) {
-                    // associated key already exist:
-                    if (log.isDebugEnabled()) {
-                        log.debug("sync already in process, key: {}", key);
-                    }
-                    iterator.remove();
-                }
-            }
-        }
+    public void submit(SyncTask task) {
 
-        if (task.getKeys().isEmpty()) {
-            // all keys are removed:
-            return;
+        if (log.isDebugEnabled()) {
+            log.debug("add keys {} to the sync pipeline of {}.", task.getKeys(), task.getTargetServer());
         }
 
-        GlobalExecutor.submitDataSync(() -> {
-            // 1. check the server
-            if (getServers() == null || getServers().isEmpty()) {
-                log.warn("try to sync data but server list is empty.");
-                return;
-            }
+        getPipeline(task.getTargetServer()).add(task.getKeys());
+    }
+
+    private SyncPipeline getPipeline(String targetServer) {
+        return pipelines.computeIfAbsent(targetServer, server -> {
+            SyncPipeline pipeline = new SyncPipeline(server, partitionConfig, this::sendData);
+            MetricsMonitor.registerDistroSyncMonitor(PIPELINE_MONITORS[0], server, pipeline,
+                SyncPipeline::getPendingSize);
+            MetricsMonitor.registerDistroSyncMonitor(PIPELINE_MONITORS[1], server, pipeline,
+                SyncPipeline::getInFlightBatches);
+            MetricsMonitor.registerDistroSyncMonitor(PIPELINE_MONITORS[2], server, pipeline,
+                SyncPipeline::getLagMillis);
+            return pipeline;
+        });
+    }
 
-            List<String> keys = task.getKeys();
+    @Override
+    public void onChangeServerList(List<Server> latestMembers) {
 
-            if (log.isDebugEnabled()) {
-                log.debug("try to sync data for this keys {}.", keys);
+        Set<String> members = new HashSet<>();
+        for (Server member : latestMembers) {
+            members.add(member.getKey());
+        }
+
+        // stop the pipelines of the servers no longer in the cluster:
+        for (Map.Entry<String, SyncPipeline> entry : pipelines.entrySet()) {
+            if (members.contains(entry.getKey()) || !pipelines.remove(entry.getKey(), entry.getValue())) {
+                continue;
             }
-            // 2. get the datums by keys and check the datum is empty or not
-            Map<String, Datum> datumMap = dataStore.batchGet(keys);
-            if (datumMap == null || datumMap.isEmpty()) {
-                // clear all flags of this task:
-                for (String key : keys) {
-                    taskMap.remove(buildKey(key, task.getTargetServer()));
-                }
-                return;
+            entry.getValue().stop();
+            for (String monitor : PIPELINE_MONITORS) {
+                MetricsMonitor.removeDistroSyncMonitor(monitor, entry.getKey());
             }
+            log.info("server {} left the cluster, sync pipeline removed.", entry.getKey());
+        }
+    }
+
+    @Override
+    public void onChangeHealthyServerList(List<Server> healthyServers) {
 
-            byte[] data = serializer.serialize(datumMap);
-
-            long timestamp = System.currentTimeMillis();
-            boolean success = NamingProxy.syncData(data, task.getTargetServer());
-            if (!success) {
-                SyncTask syncTask = new SyncTask();
-                syncTask.setKeys(task.getKeys());
-                syncTask.setRetryCount(task.getRetryCount() + 1);
-                syncTask.setLastExecuteTime(timestamp);
-                syncTask.setTargetServer(task.getTargetServer());
-                retrySync(syncTask);
-            } else {
-                // clear all flags of this task:
-                for (String key : task.getKeys()) {
-                    taskMap.remove(buildKey(key, task.getTargetServer()));
-                }
-            }
-        }, delay);
     }
 
-    public void retrySync(SyncTask syncTask) {
+    private boolean sendData(List<String> keys, String targetServer) {
 
-        Server server = new Server();
-        server.setIp(syncTask.getTargetServer().split(":")[0]);
-        server.setServePort(Integer.parseInt(syncTask.getTargetServer().split(":")[1]));
-        if (!getServers().contains(server)) {
-            // if server is no longer in healthy server list, ignore this task:
-            //fix #1665 remove existing tasks
-            if (syncTask.getKeys() != null) {
-                for (String key : syncTask.getKeys()) {
-                    taskMap.remove(buildKey(key, syncTask.getTargetServer()));
-                }
-            }
-            return;
+        if (!isServerHealthy(targetServer)) {
+            // if server is no longer in healthy server list, drop the keys:
+            return true;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("try to sync data for this keys {}.", keys);
+        }
+
+        Map<String, Datum> datumMap = dataStore.batchGet(keys);
+        if (datumMap.isEmpty()) {
+            // all keys are removed:
+            return true;
+        }
+
+        return syncData(datumMap, targetServer);
+    }
+
+    private boolean syncData(Map<String, Datum> datumMap, String server) {
+
+        Serializer peerSerializer = serializerSelector.select(server);
+        if (!serializerSelector.isBinary(peerSerializer)) {
+            return NamingProxy.syncData(serializer.serialize(datumMap), server);
         }
 
-        // TODO may choose other retry policy.
-        submit(syncTask, partitionConfig.getSyncRetryDelay());
+        HttpClient.HttpResult result = NamingProxy.syncBinaryData(peerSerializer.serialize(datumMap), server);
+        if (HttpURLConnection.HTTP_UNSUPPORTED_TYPE == result.code) {
+            // server of an old version:
+            serializerSelector.markBinaryUnsupported(server);
+            return NamingProxy.syncData(serializer.serialize(datumMap), server);
+        }
+        return HttpURLConnection.HTTP_OK == result.code || HttpURLConnection.HTTP_NOT_MODIFIED == result.code;
+    }
+
+    private boolean isServerHealthy(String targetServer) {
+        Server server = new Server();
+        server.setIp(targetServer.split(":")[0]);
+        server.setServePort(Integer.parseInt(targetServer.split(":")[1]));
+        return getServers().contains(server);
     }
 
     public void startTimedSync() {
@@ -167,6 +181,12 @@ public class DataSyncer {
                     log.debug("server list is: {}", getServers());
                 }
 
+                for (SyncPipeline pipeline : pipelines.values()) {
+                    if (!isServerHealthy(pipeline.getTargetServer())) {
+                        pipeline.clear();
+                    }
+                }
+
                 // send local timestamps to other servers:
                 Map<String, String> keyChecksums = new HashMap<>(64);
                 for (String key : dataStore.keys()) {
@@ -189,11 +209,24 @@ public class DataSyncer {
                     log.debug("sync checksums: {}", keyChecksums);
                 }
 
+                int bucketCount = partitionConfig.getChecksumBucketCount();
+                ChecksumBuckets buckets = null;
+                if (bucketCount > 0) {
+                    buckets = new ChecksumBuckets(bucketCount);
+                    for (Map.Entry<String, String> entry : keyChecksums.entrySet()) {
+                        buckets.add(entry.getKey(), entry.getValue());
+                    }
+                }
+
                 for (Server member : getServers()) {
                     if (NetUtils.localServer().equals(member.getKey())) {
                         continue;
                     }
-                    NamingProxy.syncCheckSums(keyChecksums, member.getKey());
+                    if (buckets == null) {
+                        NamingProxy.syncCheckSums(keyChecksums, member.getKey());
+                        continue;
+                    }
+                    syncCheckSumBuckets(keyChecksums, buckets, member.getKey());
                 }
             } catch (Exception e) {
                 log.error("timed sync task failed.", e);
@@ -202,11 +235,45 @@ public class DataSyncer {
 
     }
 
-    public List<Server> getServers() {
-        return serverListManager.getHealthyServers();
+    /**
+     * Exchange the bucket digests first and send the key checksums of the mismatching buckets only
+     */
+    private void syncCheckSumBuckets(Map<String, String> keyChecksums, ChecksumBuckets buckets, String server) {
+
+        List<Integer> mismatchBuckets;
+        try {
+            mismatchBuckets = NamingProxy.syncCheckSumBuckets(buckets.getDigests(), buckets.getBucketCount(), server);
+        } catch (Exception e) {
+            log.warn("sync checksum buckets with {} failed.", server, e);
+            return;
+        }
+
+        if (mismatchBuckets == null) {
+            // server of an old version:
+            NamingProxy.syncCheckSums(keyChecksums, server);
+            return;
+        }
+
+        if (mismatchBuckets.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> bucketSet = new HashSet<>(mismatchBuckets);
+        Map<String, String> bucketChecksums = new HashMap<>(64);
+        for (Map.Entry<String, String> entry : keyChecksums.entrySet()) {
+            if (bucketSet.contains(ChecksumBuckets.bucketOf(entry.getKey(), buckets.getBucketCount()))) {
+                bucketChecksums.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("sync checksums of buckets {} with {}: {}", mismatchBuckets, server, bucketChecksums);
+        }
+
+        NamingProxy.syncCheckSums(bucketChecksums, server, mismatchBuckets, buckets.getBucketCount());
     }
 
-    public String buildKey(String key, String targetServer) {
-        return key + UtilsAndCommons.CACHE_KEY_SPLITER + targetServer;
+    public List<Server> getServers() {
+        return serverListManager.getHealthyServers();
     }
 }
@@ -21,7 +21,7 @@ import com.alibaba.nacos.core.utils.SystemUtils;
 import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.ServerStatus;
 import com.alibaba.nacos.naming.cluster.servers.Server;
-import com.alibaba.nacos.naming.cluster.transport.Serializer;
+import com.alibaba.nacos.naming.cluster.transport.SerializerSelector;
 import com.alibaba.nacos.naming.consistency.ApplyAction;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
@@ -41,6 +41,7 @@ import javax.annotation.PostConstruct;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 
 /**
@@ -86,7 +87,7 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
     private DataSyncer dataSyncer;
 
     @Autowired
-    private Serializer serializer;
+    private SerializerSelector serializerSelector;
 
     @Autowired
     private ServerListManager serverListManager;
@@ -210,7 +211,44 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
         notifier.addTask(key, ApplyAction.DELETE);
     }
 
+    /**
+     * Compare the bucket digests of the keys a server is responsible for with ours
+     *
+     * @param digests     bucket -> digest of the remote server, empty buckets left out
+     * @param bucketCount bucket count of the digests
+     * @param server      remote server
+     * @return buckets whose key checksums should be sent by the remote server
+     */
+    public List<Integer> onReceiveChecksumBuckets(Map<Integer, Long> digests, int bucketCount, String server) {
+
+        ChecksumBuckets buckets = new ChecksumBuckets(bucketCount);
+        for (String key : dataStore.keys()) {
+
+            if (!server.equals(distroMapper.mapSrv(KeyBuilder.getServiceName(key)))) {
+                continue;
+            }
+
+            Datum datum = dataStore.get(key);
+            buckets.add(key, datum == null || datum.value == null ? null : datum.value.getChecksum());
+        }
+
+        return buckets.mismatch(digests);
+    }
+
     public void onReceiveChecksums(Map<String, String> checksumMap, String server) {
+        onReceiveChecksums(checksumMap, server, null, 0);
+    }
+
+    /**
+     * Sync with the key checksums of a remote server
+     *
+     * @param checksumMap key -> checksum of the remote server
+     * @param server      remote server
+     * @param buckets     buckets the checksums are sent for, null if all keys are sent
+     * @param bucketCount bucket count of the buckets
+     */
+    public void onReceiveChecksums(Map<String, String> checksumMap, String server, Set<Integer> buckets,
+                                   int bucketCount) {
 
         if (syncChecksumTasks.containsKey(server)) {
             // Already in process of this server:
@@ -245,6 +283,11 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
                     continue;
                 }
 
+                if (buckets != null && !buckets.contains(ChecksumBuckets.bucketOf(key, bucketCount))) {
+                    // not compared this time:
+                    continue;
+                }
+
                 if (!checksumMap.containsKey(key)) {
                     toRemoveKeys.add(key);
                 }
@@ -263,7 +306,7 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
             }
 
             try {
-                byte[] result = NamingProxy.getData(toUpdateKeys, server);
+                byte[] result = NamingProxy.getData(toUpdateKeys, server, serializerSelector.isBinaryPreferred());
                 processData(result);
             } catch (Exception e) {
                 log.error("get data from " + server + " failed!", e);
@@ -278,7 +321,7 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
     public boolean syncAllDataFromRemote(Server server) {
 
         try {
-            byte[] data = NamingProxy.getAllData(server.getKey());
+            byte[] data = NamingProxy.getAllData(server.getKey(), serializerSelector.isBinaryPreferred());
             processData(data);
             return true;
         } catch (Exception e) {
@@ -290,7 +333,7 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
     public void processData(byte[] data) throws Exception {
         if (data.length > 0) {
             Map<String, Datum<Instances>> datumMap =
-                serializer.deserializeMap(data, Instances.class);
+                serializerSelector.detect(data).deserializeMap(data, Instances.class);
 
 
             for (Map.Entry<String, Datum<Instances>> entry : datumMap.entrySet()) {
@@ -0,0 +1,214 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.nacos.naming.misc.GlobalConfig;
+import com.alibaba.nacos.naming.misc.GlobalExecutor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+
+/**
+ * Replication pipeline of the data changes sent to one server.
+ * <p>
+ * Changed keys wait in a pending set until they are sent, a key changed again before being sent is kept once and its
+ * latest value is read at send time. At most {@link GlobalConfig#getSyncMaxInFlightBatches()} batches are sent to the
+ * server at the same time, the following keys wait in the pending set meanwhile. A key changed while a batch sending
+ * it is in flight waits for that batch to finish, so the batches of a key reach the server in order. The keys of a
+ * failed batch go back to the front of the pending set and the server is left alone for
+ * {@link GlobalConfig#getSyncRetryDelay()}, doubled on each consecutive failure, so a server unreachable for a while
+ * gets each changed key once when it is back.
+ *
+ * @author nacos
+ */
+@Slf4j
+public class SyncPipeline {
+
+    private static final int MAX_BACKOFF_SHIFT = 4;
+
+    public interface Sender {
+
+        /**
+         * Send the latest data of some keys
+         *
+         * @param keys         keys to send
+         * @param targetServer server to send to
+         * @return true if the server received the data
+         */
+        boolean send(List<String> keys, String targetServer);
+    }
+
+    private final String targetServer;
+
+    private final GlobalConfig globalConfig;
+
+    private final Sender sender;
+
+    /**
+     * key -> time the key is pending since, oldest first
+     */
+    private LinkedHashMap<String, Long> pendingKeys = new LinkedHashMap<>();
+
+    /**
+     * keys of the batches in flight
+     */
+    private final Set<String> inFlightKeys = new HashSet<>();
+
+    private int inFlightBatches = 0;
+
+    private int failures = 0;
+
+    private long retryTime = 0L;
+
+    private boolean retryScheduled = false;
+
+    private boolean stopped = false;
+
+    public SyncPipeline(String targetServer, GlobalConfig globalConfig, Sender sender) {
+        this.targetServer = targetServer;
+        this.globalConfig = globalConfig;
+        this.sender = sender;
+    }
+
+    public void add(Collection<String> keys) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            for (String key : keys) {
+                pendingKeys.putIfAbsent(key, now);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Drop the pending keys, when the server is no longer in the server list
+     */
+    public synchronized void clear() {
+        pendingKeys.clear();
+        failures = 0;
+        retryTime = 0L;
+    }
+
+    /**
+     * Drop the pending keys and accept no more, when the server left the cluster. Batches in flight finish as usual.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        clear();
+    }
+
+    public synchronized int getPendingSize() {
+        return pendingKeys.size();
+    }
+
+    public synchronized int getInFlightBatches() {
+        return inFlightBatches;
+    }
+
+    /**
+     * @return milliseconds since the oldest pending key is waiting, 0 if nothing is pending
+     */
+    public synchronized long getLagMillis() {
+        if (pendingKeys.isEmpty()) {
+            return 0L;
+        }
+        return System.currentTimeMillis() - pendingKeys.values().iterator().next();
+    }
+
+    public String getTargetServer() {
+        return targetServer;
+    }
+
+    private void dispatch() {
+        List<Map<String, Long>> batches = new ArrayList<>();
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (now < retryTime) {
+                if (!retryScheduled && !pendingKeys.isEmpty()) {
+                    retryScheduled = true;
+                    GlobalExecutor.submitDataSync(this::retry, retryTime - now);
+                }
+                return;
+            }
+
+            int batchSize = Math.max(1, globalConfig.getBatchSyncKeyCount());
+            while (inFlightBatches < globalConfig.getSyncMaxInFlightBatches() && !pendingKeys.isEmpty()) {
+                Map<String, Long> batch = new LinkedHashMap<>(Math.min(batchSize, pendingKeys.size()) * 2);
+                Iterator<Map.Entry<String, Long>> iterator = pendingKeys.entrySet().iterator();
+                while (iterator.hasNext() && batch.size() < batchSize) {
+                    Map.Entry<String, Long> entry = iterator.next();
+                    if (inFlightKeys.contains(entry.getKey())) {
+                        continue;
+                    }
+                    batch.put(entry.getKey(), entry.getValue());
+                    inFlightKeys.add(entry.getKey());
+                    iterator.remove();
+                }
+                if (batch.isEmpty()) {
+                    // only keys of the batches in flight are pending, they are dispatched when the batches finish
+                    break;
+                }
+                inFlightBatches++;
+                batches.add(batch);
+            }
+        }
+
+        for (Map<String, Long> batch : batches) {
+            GlobalExecutor.submitDataSync(() -> send(batch), 0L);
+        }
+    }
+
+    private void retry() {
+        synchronized (this) {
+            retryScheduled = false;
+        }
+        dispatch();
+    }
+
+    private void send(Map<String, Long> batch) {
+        boolean success = false;
+        try {
+            success = sender.send(new ArrayList<>(batch.keySet()), targetServer);
+        } catch (Exception e) {
+            log.error("sync data to {} failed.", targetServer, e);
+        }
+
+        synchronized (this) {
+            inFlightBatches--;
+            inFlightKeys.removeAll(batch.keySet());
+            if (success) {
+                failures = 0;
+            } else if (!stopped) {
+                // put the keys back in front, keep the older time of a key changed again meanwhile:
+                LinkedHashMap<String, Long> keys = new LinkedHashMap<>(batch);
+                for (Map.Entry<String, Long> entry : pendingKeys.entrySet()) {
+                    keys.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+                pendingKeys = keys;
+                retryTime = System.currentTimeMillis()
+                    + (globalConfig.getSyncRetryDelay() << Math.min(failures, MAX_BACKOFF_SHIFT));
+                failures++;
+            }
+        }
+        dispatch();
+    }
+}
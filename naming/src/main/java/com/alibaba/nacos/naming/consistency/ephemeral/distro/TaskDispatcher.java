@@ -133,7 +133,7 @@ public class TaskDispatcher {
                                 log.debug("add sync task: {}", JSON.toJSONString(syncTask));
                             }
 
-                            dataSyncer.submit(syncTask, 0);
+                            dataSyncer.submit(syncTask);
                         }
                         lastDispatchTime = System.currentTimeMillis();
                         dataSize = 0;
@@ -0,0 +1,455 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.persistent.raft;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented append-only log of key value records.
+ * <p>
+ * Records are appended to the current segment and made durable by {@link #sync(long)}: the first writer to sync forces
+ * the segment for every record appended so far, the writers queued behind it find their records already forced, so
+ * concurrent writes share one fsync. The segment is closed once it grows over the segment size and a new one is
+ * started. A snapshot holds the live records as of the start of a segment, once it is written the older segments and
+ * snapshots are deleted. Recovery reads the latest snapshot and replays the segments from there on, a record torn by a
+ * crash is truncated with everything after it in its segment.
+ *
+ * @author nacos
+ */
+@Slf4j
+public class RaftLog {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final byte PUT = 1;
+
+    private static final byte DELETE = 2;
+
+    /**
+     * length and CRC32 of the record body
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * type and key length of the record body
+     */
+    private static final int BODY_HEADER_SIZE = 5;
+
+    public interface Replayer {
+
+        /**
+         * Apply a record read back from the log
+         *
+         * @param key   key of the record
+         * @param value value of the record, null if the key is deleted
+         * @throws Exception any exception aborts the recovery
+         */
+        void apply(String key, byte[] value) throws Exception;
+    }
+
+    private final File dir;
+
+    private final long segmentSize;
+
+    private final Object syncLock = new Object();
+
+    private FileChannel segment;
+
+    private long segmentId;
+
+    private long segmentBytes;
+
+    /**
+     * bytes of the segments not yet compacted into a snapshot
+     */
+    private long logBytes;
+
+    private long snapshotBytes;
+
+    private long appendedSeq = 0L;
+
+    private volatile long syncedSeq = 0L;
+
+    public RaftLog(File dir, long segmentSize) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Replay the latest snapshot and the segments after it, then open the last segment for appending
+     */
+    public synchronized void open(Replayer replayer) throws Exception {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IllegalStateException("could not make log directory: " + dir.getAbsolutePath());
+        }
+
+        long snapshotId = 0L;
+        File snapshot = null;
+        for (File file : listFiles()) {
+            if (file.getName().endsWith(TMP_SUFFIX)) {
+                // an unfinished snapshot:
+                deleteFile(file);
+                continue;
+            }
+            long id = parseId(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (id > snapshotId) {
+                snapshotId = id;
+                snapshot = file;
+            }
+        }
+
+        if (snapshot != null) {
+            if (read(snapshot, replayer) != snapshot.length()) {
+                throw new IllegalStateException("corrupted snapshot: " + snapshot.getAbsolutePath());
+            }
+            snapshotBytes = snapshot.length();
+        }
+
+        TreeMap<Long, File> segments = new TreeMap<>();
+        for (File file : listFiles()) {
+            long id = parseId(file, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (id < 0) {
+                id = parseId(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+                if (id >= 0 && id < snapshotId) {
+                    deleteFile(file);
+                }
+                continue;
+            }
+            if (id < snapshotId) {
+                // left by a crash during the last compaction:
+                deleteFile(file);
+                continue;
+            }
+            segments.put(id, file);
+        }
+
+        logBytes = 0L;
+        for (File file : segments.values()) {
+            long valid = read(file, replayer);
+            if (valid < file.length()) {
+                log.warn("[RAFT-LOG] truncate torn segment: {}, from {} to {} bytes",
+                    file.getName(), file.length(), valid);
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                    channel.force(true);
+                }
+            }
+            logBytes += valid;
+        }
+
+        segmentId = segments.isEmpty() ? Math.max(snapshotId, 1L) : segments.lastKey();
+        openSegment();
+        log.info("[RAFT-LOG] log opened, snapshot: {}, segments: {}, log bytes: {}",
+            snapshot == null ? null : snapshot.getName(), segments.size(), logBytes);
+    }
+
+    /**
+     * Append a record, it is durable once {@link #sync(long)} returns for the returned sequence
+     *
+     * @param key   key of the record
+     * @param value value of the record, null to delete the key
+     * @return sequence of the record
+     */
+    public synchronized long append(String key, byte[] value) throws IOException {
+        ByteBuffer record = encode(key, value);
+        int size = record.remaining();
+        try {
+            while (record.hasRemaining()) {
+                segment.write(record);
+            }
+        } catch (IOException e) {
+            // do not leave a partial record in front of the following ones:
+            segment.truncate(segmentBytes);
+            throw e;
+        }
+        segmentBytes += size;
+        logBytes += size;
+        return ++appendedSeq;
+    }
+
+    /**
+     * Wait until the record of the sequence is forced to disk
+     */
+    public void sync(long seq) throws IOException {
+        if (syncedSeq >= seq) {
+            return;
+        }
+
+        synchronized (syncLock) {
+            if (syncedSeq >= seq) {
+                return;
+            }
+
+            FileChannel channel;
+            long target;
+            synchronized (this) {
+                channel = segment;
+                target = appendedSeq;
+            }
+            // records keep being appended meanwhile, they are forced by the next sync:
+            channel.force(true);
+            syncedSeq = target;
+
+            synchronized (this) {
+                if (segmentBytes >= segmentSize) {
+                    rollSegment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Start a new segment
+     *
+     * @return id of the new segment, a snapshot of every record appended before can be written under this id
+     */
+    public long roll() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                rollSegment();
+                return segmentId;
+            }
+        }
+    }
+
+    /**
+     * Start writing a snapshot, the snapshot must hold every live record appended before the segment was started
+     *
+     * @param segmentId id of the first segment not covered by the snapshot, see {@link #roll()}
+     */
+    public SnapshotWriter snapshot(long segmentId) throws IOException {
+        return new SnapshotWriter(segmentId);
+    }
+
+    public synchronized long getLogBytes() {
+        return logBytes;
+    }
+
+    public synchronized long getSnapshotBytes() {
+        return snapshotBytes;
+    }
+
+    /**
+     * Delete every file of the log, only to be called before {@link #open(Replayer)}
+     */
+    public synchronized void reset() {
+        if (!dir.exists()) {
+            return;
+        }
+        for (File file : listFiles()) {
+            deleteFile(file);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            segment.force(true);
+            segment.close();
+            segment = null;
+        }
+    }
+
+    public class SnapshotWriter implements Closeable {
+
+        private final long segmentId;
+
+        private final File tmpFile;
+
+        private final FileOutputStream fileOut;
+
+        private final DataOutputStream out;
+
+        private boolean committed = false;
+
+        private SnapshotWriter(long segmentId) throws IOException {
+            this.segmentId = segmentId;
+            this.tmpFile = new File(dir, fileName(SNAPSHOT_PREFIX, segmentId, SNAPSHOT_SUFFIX) + TMP_SUFFIX);
+            this.fileOut = new FileOutputStream(tmpFile);
+            this.out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        }
+
+        public void put(String key, byte[] value) throws IOException {
+            ByteBuffer record = encode(key, value);
+            out.write(record.array(), 0, record.limit());
+        }
+
+        /**
+         * Make the snapshot durable, then delete the segments and snapshots it replaces
+         */
+        public void commit() throws IOException {
+            out.flush();
+            fileOut.getChannel().force(true);
+            out.close();
+
+            File file = new File(dir, fileName(SNAPSHOT_PREFIX, segmentId, SNAPSHOT_SUFFIX));
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+
+            compact(segmentId, file.length());
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            if (!committed) {
+                deleteFile(tmpFile);
+            }
+        }
+    }
+
+    private synchronized void compact(long snapshotId, long size) {
+        for (File file : listFiles()) {
+            long id = parseId(file, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (id >= 0 && id < snapshotId) {
+                logBytes -= file.length();
+                deleteFile(file);
+                continue;
+            }
+            id = parseId(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (id >= 0 && id < snapshotId) {
+                deleteFile(file);
+            }
+        }
+        snapshotBytes = size;
+        log.info("[RAFT-LOG] snapshot {} written, size: {}, log bytes: {}", snapshotId, size, logBytes);
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force(true);
+        segment.close();
+        segmentId++;
+        openSegment();
+        syncedSeq = appendedSeq;
+    }
+
+    private void openSegment() throws IOException {
+        File file = new File(dir, fileName(SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+        segment = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        segmentBytes = segment.size();
+    }
+
+    private File[] listFiles() {
+        File[] files = dir.listFiles();
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * @return length of the valid records from the start of the file
+     */
+    private static long read(File file, Replayer replayer) throws Exception {
+        long length = file.length();
+        long valid = 0L;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (valid + HEADER_SIZE <= length) {
+                int size = in.readInt();
+                int checksum = in.readInt();
+                if (size < BODY_HEADER_SIZE || valid + HEADER_SIZE + size > length) {
+                    break;
+                }
+
+                byte[] body = new byte[size];
+                in.readFully(body);
+                if (checksum(body) != checksum) {
+                    break;
+                }
+
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                byte type = buffer.get();
+                int keyLength = buffer.getInt();
+                if (keyLength < 0 || keyLength > buffer.remaining()) {
+                    break;
+                }
+                String key = new String(body, BODY_HEADER_SIZE, keyLength, StandardCharsets.UTF_8);
+                replayer.apply(key, type == DELETE ? null : Arrays.copyOfRange(body, BODY_HEADER_SIZE + keyLength, size));
+
+                valid += HEADER_SIZE + size;
+            }
+        }
+        return valid;
+    }
+
+    private static ByteBuffer encode(String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int size = BODY_HEADER_SIZE + keyBytes.length + (value == null ? 0 : value.length);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + size);
+        record.putInt(size);
+        record.putInt(0);
+        record.put(value == null ? DELETE : PUT);
+        record.putInt(keyBytes.length);
+        record.put(keyBytes);
+        if (value != null) {
+            record.put(value);
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(record.array(), HEADER_SIZE, size);
+        record.putInt(4, (int) crc32.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(body, 0, body.length);
+        return (int) crc32.getValue();
+    }
+
+    private static String fileName(String prefix, long id, String suffix) {
+        return prefix + String.format("%020d", id) + suffix;
+    }
+
+    /**
+     * @return id in the file name, -1 if the file is not of the prefix and suffix
+     */
+    private static long parseId(File file, String prefix, String suffix) {
+        String name = file.getName();
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("[RAFT-LOG] failed to delete file: {}", file.getAbsolutePath());
+        }
+    }
+}
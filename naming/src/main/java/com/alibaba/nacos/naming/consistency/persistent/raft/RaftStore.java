@@ -25,6 +25,7 @@ import com.alibaba.nacos.naming.consistency.KeyBuilder;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Instances;
 import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.misc.GlobalExecutor;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.monitor.MetricsMonitor;
@@ -39,41 +40,79 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * Persistent storage of the raft datums.
+ * <p>
+ * Every change is appended to a {@link RaftLog} and the latest value of each key is compacted into a snapshot once
+ * the log grows over twice the size of the last snapshot. The values are kept as the bytes that were appended, the
+ * datums are shared with the consistency service and changed in place, so a snapshot serialized from them could hold
+ * states no log record has. Data of the former one-file-per-datum layout is moved into the log on the
+ * first start, the old directory is kept aside as data.migrated.
+ *
  * @author nacos
  */
 @Component
 @Slf4j
 public class RaftStore {
 
+    private static final long SEGMENT_SIZE = 64 * 1024 * 1024L;
+
+    private static final long MIN_SNAPSHOT_LOG_BYTES = 16 * 1024 * 1024L;
+
+    private static final int SNAPSHOT_LOG_RATIO = 2;
+
     private final Properties meta = new Properties();
 
-    private final String metaFileName = UtilsAndCommons.DATA_BASE_DIR + File.separator + "meta.properties";
+    private final String metaFileName;
+
+    /**
+     * directory of the former one-file-per-datum layout
+     */
+    private final String cacheDir;
+
+    private final RaftLog raftLog;
+
+    /**
+     * key -> serialized datum as appended to the log, the latest of each key
+     */
+    private final ConcurrentMap<String, byte[]> values = new ConcurrentHashMap<>();
 
-    private final String cacheDir = UtilsAndCommons.DATA_BASE_DIR + File.separator + "data";
+    private final Object appendLock = new Object();
 
-    public synchronized void loadDatums(RaftCore.Notifier notifier, ConcurrentMap<String, Datum> datums) throws Exception {
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean(false);
+
+    private volatile boolean opened = false;
+
+    public RaftStore() {
+        this(UtilsAndCommons.DATA_BASE_DIR);
+    }
+
+    public RaftStore(String baseDir) {
+        metaFileName = baseDir + File.separator + "meta.properties";
+        cacheDir = baseDir + File.separator + "data";
+        raftLog = new RaftLog(new File(baseDir + File.separator + "log"), SEGMENT_SIZE);
+    }
+
+    public void loadDatums(RaftCore.Notifier notifier, ConcurrentMap<String, Datum> datums) throws Exception {
 
-        Datum datum;
         long start = System.currentTimeMillis();
-        for (File cache : listCaches()) {
-            if (cache.isDirectory() && cache.listFiles() != null) {
-                for (File datumFile : cache.listFiles()) {
-                    datum = readDatum(datumFile, cache.getName());
-                    if (datum != null) {
-                        datums.put(datum.key, datum);
-                        notifier.addTask(datum.key, ApplyAction.CHANGE);
-                    }
-                }
+        open();
+        for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+            Datum datum = parseDatum(entry.getKey(), new String(entry.getValue(), StandardCharsets.UTF_8));
+            if (datum == null) {
                 continue;
             }
-            datum = readDatum(cache, StringUtils.EMPTY);
-            if (datum != null) {
-                datums.put(datum.key, datum);
+            datums.put(datum.key, datum);
+            if (StringUtils.isNotBlank(KeyBuilder.getNamespace(datum.key))) {
+                notifier.addTask(datum.key, ApplyAction.CHANGE);
             }
         }
         log.info("finish loading all datums, size: {} cost {} ms.", datums.size(), (System.currentTimeMillis() - start));
@@ -91,27 +130,16 @@ public class RaftStore {
         return meta;
     }
 
-    public synchronized Datum load(String key) throws Exception {
+    public Datum load(String key) throws Exception {
         long start = System.currentTimeMillis();
-        // load data
-        for (File cache : listCaches()) {
-            if (!cache.isFile()) {
-                log.warn("warning: encountered directory in cache dir: {}", cache.getAbsolutePath());
-            }
-
-            if (!StringUtils.equals(cache.getName(), encodeFileName(key))) {
-                continue;
-            }
-
-            log.info("finish loading datum, key: {} cost {} ms.",
-                key, (System.currentTimeMillis() - start));
-            return readDatum(cache, StringUtils.EMPTY);
-        }
-
-        return null;
+        open();
+        byte[] value = values.get(key);
+        Datum datum = value == null ? null : parseDatum(key, new String(value, StandardCharsets.UTF_8));
+        log.info("finish loading datum, key: {} cost {} ms.", key, (System.currentTimeMillis() - start));
+        return datum;
     }
 
-    public synchronized Datum readDatum(File file, String namespaceId) throws IOException {
+    public Datum readDatum(File file, String namespaceId) throws IOException {
 
         ByteBuffer buffer;
         FileChannel fc = null;
@@ -120,163 +148,254 @@ public class RaftStore {
             buffer = ByteBuffer.allocate((int) file.length());
             fc.read(buffer);
 
-            String json = new String(buffer.array(), StandardCharsets.UTF_8);
-            if (StringUtils.isBlank(json)) {
-                return null;
+            return parseDatum(file.getName(), new String(buffer.array(), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.warn("waning: failed to deserialize key: {}", file.getName());
+            throw e;
+        } finally {
+            if (fc != null) {
+                fc.close();
             }
+        }
+    }
 
-            if (KeyBuilder.matchSwitchKey(file.getName())) {
-                return JSON.parseObject(json, new TypeReference<Datum<SwitchDomain>>() {
-                });
-            }
+    /**
+     * @param name key of the datum, or its file name in the former layout
+     */
+    private Datum parseDatum(String name, String json) {
 
-            if (KeyBuilder.matchServiceMetaKey(file.getName())) {
+        if (StringUtils.isBlank(json)) {
+            return null;
+        }
 
-                Datum<Service> serviceDatum;
+        if (KeyBuilder.matchSwitchKey(name)) {
+            return JSON.parseObject(json, new TypeReference<Datum<SwitchDomain>>() {
+            });
+        }
 
-                try {
-                    serviceDatum = JSON.parseObject(json.replace("\\", ""), new TypeReference<Datum<Service>>() {
-                    });
-                } catch (Exception e) {
-                    JSONObject jsonObject = JSON.parseObject(json);
+        if (KeyBuilder.matchServiceMetaKey(name)) {
 
-                    serviceDatum = new Datum<>();
-                    serviceDatum.timestamp.set(jsonObject.getLongValue("timestamp"));
-                    serviceDatum.key = jsonObject.getString("key");
-                    serviceDatum.value = JSON.parseObject(jsonObject.getString("value"), Service.class);
-                }
+            Datum<Service> serviceDatum;
 
-                if (StringUtils.isBlank(serviceDatum.value.getGroupName())) {
-                    serviceDatum.value.setGroupName(Constants.DEFAULT_GROUP);
-                }
-                if (!serviceDatum.value.getName().contains(Constants.SERVICE_INFO_SPLITER)) {
-                    serviceDatum.value.setName(Constants.DEFAULT_GROUP
-                        + Constants.SERVICE_INFO_SPLITER + serviceDatum.value.getName());
-                }
+            try {
+                serviceDatum = JSON.parseObject(json.replace("\\", ""), new TypeReference<Datum<Service>>() {
+                });
+            } catch (Exception e) {
+                JSONObject jsonObject = JSON.parseObject(json);
 
-                return serviceDatum;
+                serviceDatum = new Datum<>();
+                serviceDatum.timestamp.set(jsonObject.getLongValue("timestamp"));
+                serviceDatum.key = jsonObject.getString("key");
+                serviceDatum.value = JSON.parseObject(jsonObject.getString("value"), Service.class);
             }
 
-            if (KeyBuilder.matchInstanceListKey(file.getName())) {
-
-                Datum<Instances> instancesDatum;
-
-                try {
-                    instancesDatum = JSON.parseObject(json, new TypeReference<Datum<Instances>>() {
-                    });
-                } catch (Exception e) {
-                    JSONObject jsonObject = JSON.parseObject(json);
-                    instancesDatum = new Datum<>();
-                    instancesDatum.timestamp.set(jsonObject.getLongValue("timestamp"));
-
-                    String key = jsonObject.getString("key");
-                    String serviceName = KeyBuilder.getServiceName(key);
-                    key = key.substring(0, key.indexOf(serviceName)) +
-                        Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER + serviceName;
-
-                    instancesDatum.key = key;
-                    instancesDatum.value = new Instances();
-                    instancesDatum.value.setInstanceList(JSON.parseObject(jsonObject.getString("value"),
-                        new TypeReference<List<Instance>>() {
-                        }));
-                    if (!instancesDatum.value.getInstanceList().isEmpty()) {
-                        for (Instance instance : instancesDatum.value.getInstanceList()) {
-                            instance.setEphemeral(false);
-                        }
-                    }
-                }
-
-                return instancesDatum;
+            if (StringUtils.isBlank(serviceDatum.value.getGroupName())) {
+                serviceDatum.value.setGroupName(Constants.DEFAULT_GROUP);
+            }
+            if (!serviceDatum.value.getName().contains(Constants.SERVICE_INFO_SPLITER)) {
+                serviceDatum.value.setName(Constants.DEFAULT_GROUP
+                    + Constants.SERVICE_INFO_SPLITER + serviceDatum.value.getName());
             }
 
-            return JSON.parseObject(json, Datum.class);
+            return serviceDatum;
+        }
 
-        } catch (Exception e) {
-            log.warn("waning: failed to deserialize key: {}", file.getName());
-            throw e;
-        } finally {
-            if (fc != null) {
-                fc.close();
+        if (KeyBuilder.matchInstanceListKey(name)) {
+
+            Datum<Instances> instancesDatum;
+
+            try {
+                instancesDatum = JSON.parseObject(json, new TypeReference<Datum<Instances>>() {
+                });
+            } catch (Exception e) {
+                JSONObject jsonObject = JSON.parseObject(json);
+                instancesDatum = new Datum<>();
+                instancesDatum.timestamp.set(jsonObject.getLongValue("timestamp"));
+
+                String key = jsonObject.getString("key");
+                String serviceName = KeyBuilder.getServiceName(key);
+                key = key.substring(0, key.indexOf(serviceName)) +
+                    Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER + serviceName;
+
+                instancesDatum.key = key;
+                instancesDatum.value = new Instances();
+                instancesDatum.value.setInstanceList(JSON.parseObject(jsonObject.getString("value"),
+                    new TypeReference<List<Instance>>() {
+                    }));
+                if (!instancesDatum.value.getInstanceList().isEmpty()) {
+                    for (Instance instance : instancesDatum.value.getInstanceList()) {
+                        instance.setEphemeral(false);
+                    }
+                }
             }
+
+            return instancesDatum;
         }
+
+        return JSON.parseObject(json, Datum.class);
     }
 
-    public synchronized void write(final Datum datum) throws Exception {
+    public void write(final Datum datum) throws Exception {
 
+        open();
+        byte[] value = JSON.toJSONString(datum).getBytes(StandardCharsets.UTF_8);
         String namespaceId = KeyBuilder.getNamespace(datum.key);
 
-        File cacheFile;
-
-        if (StringUtils.isNotBlank(namespaceId)) {
-            cacheFile = new File(cacheDir + File.separator + namespaceId + File.separator + encodeFileName(datum.key));
-        } else {
-            cacheFile = new File(cacheDir + File.separator + encodeFileName(datum.key));
-        }
-
-        if (!cacheFile.exists() && !cacheFile.getParentFile().mkdirs() && !cacheFile.createNewFile()) {
+        try {
+            long seq;
+            synchronized (appendLock) {
+                seq = raftLog.append(datum.key, value);
+                values.put(datum.key, value);
+
+                // remove old format datum:
+                if (StringUtils.isNotBlank(namespaceId)
+                    && datum.key.contains(Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER)) {
+                    String oldFormatKey =
+                        datum.key.replace(Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER, StringUtils.EMPTY);
+                    if (values.remove(oldFormatKey) != null) {
+                        seq = raftLog.append(oldFormatKey, null);
+                    }
+                }
+            }
+            raftLog.sync(seq);
+        } catch (IOException e) {
             MetricsMonitor.getDiskException().increment();
-
-            throw new IllegalStateException("can not make cache file: " + cacheFile.getName());
+            throw e;
         }
 
-        FileChannel fc = null;
-        ByteBuffer data;
+        snapshotIfNecessary();
+    }
 
-        data = ByteBuffer.wrap(JSON.toJSONString(datum).getBytes(StandardCharsets.UTF_8));
+    public void delete(Datum datum) {
 
         try {
-            fc = new FileOutputStream(cacheFile, false).getChannel();
-            fc.write(data, data.position());
-            fc.force(true);
+            open();
+            long seq;
+            synchronized (appendLock) {
+                if (values.remove(datum.key) == null) {
+                    return;
+                }
+                seq = raftLog.append(datum.key, null);
+            }
+            raftLog.sync(seq);
         } catch (Exception e) {
             MetricsMonitor.getDiskException().increment();
-            throw e;
-        } finally {
-            if (fc != null) {
-                fc.close();
-            }
+            log.error("[RAFT-DELETE] failed to delete datum: {}, value: {}", datum.key, datum.value, e);
+            throw new IllegalStateException("failed to delete datum: " + datum.key);
         }
 
-        // remove old format file:
-        if (StringUtils.isNoneBlank(namespaceId)) {
-            if (datum.key.contains(Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER)) {
-                String oldFormatKey =
-                    datum.key.replace(Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER, StringUtils.EMPTY);
-
-                cacheFile = new File(cacheDir + File.separator + namespaceId + File.separator + encodeFileName(oldFormatKey));
-                if (cacheFile.exists() && !cacheFile.delete()) {
-                    log.error("[RAFT-DELETE] failed to delete old format datum: {}, value: {}",
-                        datum.key, datum.value);
-                    throw new IllegalStateException("failed to delete old format datum: " + datum.key);
-                }
+        snapshotIfNecessary();
+    }
+
+    /**
+     * Compact the latest values into a snapshot and drop the log before it
+     */
+    public void snapshot() throws Exception {
+        open();
+        writeSnapshot();
+    }
+
+    private void writeSnapshot() throws Exception {
+        long segmentId;
+        Map<String, byte[]> latest;
+        synchronized (appendLock) {
+            segmentId = raftLog.roll();
+            latest = new HashMap<>(values);
+        }
+
+        try (RaftLog.SnapshotWriter writer = raftLog.snapshot(segmentId)) {
+            for (Map.Entry<String, byte[]> entry : latest.entrySet()) {
+                writer.put(entry.getKey(), entry.getValue());
             }
+            writer.commit();
         }
     }
 
-    private File[] listCaches() throws Exception {
-        File cacheDir = new File(this.cacheDir);
-        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
-            throw new IllegalStateException("cloud not make out directory: " + cacheDir.getName());
+    private void snapshotIfNecessary() {
+        if (raftLog.getLogBytes() < Math.max(MIN_SNAPSHOT_LOG_BYTES, raftLog.getSnapshotBytes() * SNAPSHOT_LOG_RATIO)
+            || !snapshotRunning.compareAndSet(false, true)) {
+            return;
         }
 
-        return cacheDir.listFiles();
+        GlobalExecutor.submit(() -> {
+            try {
+                snapshot();
+            } catch (Exception e) {
+                MetricsMonitor.getDiskException().increment();
+                log.error("[RAFT-LOG] failed to write snapshot.", e);
+            } finally {
+                snapshotRunning.set(false);
+            }
+        });
     }
 
-    public void delete(Datum datum) {
+    private synchronized void open() throws Exception {
+        if (opened) {
+            return;
+        }
 
-        // datum key contains namespace info:
-        String namespaceId = KeyBuilder.getNamespace(datum.key);
+        File legacyDir = new File(cacheDir);
+        if (legacyDir.isDirectory()) {
+            migrate(legacyDir);
+        } else {
+            raftLog.open((key, value) -> {
+                if (value == null) {
+                    values.remove(key);
+                    return;
+                }
+                values.put(key, value);
+            });
+        }
+        opened = true;
+    }
 
-        if (StringUtils.isNotBlank(namespaceId)) {
+    /**
+     * Move the datums of the one-file-per-datum layout into the log.
+     * <p>
+     * The old directory stays the source of truth until the snapshot is written and it is renamed, an interrupted
+     * migration is started over on the next start.
+     */
+    private void migrate(File legacyDir) throws Exception {
+        long start = System.currentTimeMillis();
 
-            File cacheFile = new File(cacheDir + File.separator + namespaceId + File.separator + encodeFileName(datum.key));
-            if (cacheFile.exists() && !cacheFile.delete()) {
-                log.error("[RAFT-DELETE] failed to delete datum: {}, value: {}", datum.key, datum.value);
-                throw new IllegalStateException("failed to delete datum: " + datum.key);
+        raftLog.reset();
+        raftLog.open((key, value) -> {
+        });
+
+        for (File cache : listFiles(legacyDir)) {
+            if (cache.isDirectory()) {
+                for (File datumFile : listFiles(cache)) {
+                    putDatum(readDatum(datumFile, cache.getName()));
+                }
+                continue;
             }
+            putDatum(readDatum(cache, StringUtils.EMPTY));
+        }
+
+        writeSnapshot();
+
+        File migratedDir = new File(cacheDir + ".migrated");
+        if (migratedDir.exists()) {
+            migratedDir = new File(cacheDir + ".migrated." + System.currentTimeMillis());
+        }
+        if (!legacyDir.renameTo(migratedDir)) {
+            throw new IllegalStateException("failed to rename migrated directory: " + legacyDir.getAbsolutePath());
+        }
+        log.info("[RAFT-LOG] migrated {} datums from {} cost {} ms.", values.size(), legacyDir.getAbsolutePath(),
+            (System.currentTimeMillis() - start));
+    }
+
+    private void putDatum(Datum datum) {
+        if (datum != null) {
+            values.put(datum.key, JSON.toJSONString(datum).getBytes(StandardCharsets.UTF_8));
         }
     }
 
+    private static File[] listFiles(File dir) {
+        File[] files = dir.listFiles();
+        return files == null ? new File[0] : files;
+    }
+
     public void updateTerm(long term) throws Exception {
         File file = new File(metaFileName);
         if (!file.exists() && !file.getParentFile().mkdirs() && !file.createNewFile()) {
@@ -289,12 +408,4 @@ public class RaftStore {
             meta.store(outStream, null);
         }
     }
-
-    private static String encodeFileName(String fileName) {
-        return fileName.replace(':', '#');
-    }
-
-    private static String decodeFileName(String fileName) {
-        return fileName.replace("#", ":");
-    }
 }
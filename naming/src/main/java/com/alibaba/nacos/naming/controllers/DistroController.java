@@ -15,8 +15,10 @@
  */
 package com.alibaba.nacos.naming.controllers;
 
+import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.naming.cluster.transport.BinarySerializer;
 import com.alibaba.nacos.naming.cluster.transport.Serializer;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
@@ -27,13 +29,15 @@ import com.alibaba.nacos.naming.core.ServiceManager;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Restful methods for Partition protocol.
@@ -49,6 +53,9 @@ public class DistroController {
     @Autowired
     private Serializer serializer;
 
+    @Autowired
+    private BinarySerializer binarySerializer;
+
     @Autowired
     private DistroConsistencyServiceImpl consistencyService;
 
@@ -83,15 +90,52 @@ public class DistroController {
         return ResponseEntity.ok("ok");
     }
 
+    @PutMapping(value = "/datum", consumes = BinarySerializer.CONTENT_TYPE)
+    public ResponseEntity onSyncBinaryDatum(@RequestBody byte[] data) throws Exception {
+
+        Map<String, Datum<Instances>> dataMap = binarySerializer.deserializeMap(data, Instances.class);
+        if (dataMap == null) {
+            log.error("[onSync] receive malformed entity!");
+            throw new NacosException(NacosException.INVALID_PARAM, "receive malformed entity!");
+        }
+        return onSyncDatum(dataMap);
+    }
+
     @PutMapping("/checksum")
-    public ResponseEntity syncChecksum(@RequestParam String source, @RequestBody Map<String, String> dataMap) {
+    public ResponseEntity syncChecksum(@RequestParam String source,
+                                       @RequestParam(required = false) String buckets,
+                                       @RequestParam(defaultValue = "0") int bucketCount,
+                                       @RequestBody Map<String, String> dataMap) {
+
+        if (StringUtils.isBlank(buckets) || bucketCount <= 0) {
+            consistencyService.onReceiveChecksums(dataMap, source);
+            return ResponseEntity.ok("ok");
+        }
 
-        consistencyService.onReceiveChecksums(dataMap, source);
+        Set<Integer> bucketSet = new HashSet<>();
+        for (String bucket : buckets.split(",")) {
+            bucketSet.add(Integer.parseInt(bucket));
+        }
+        consistencyService.onReceiveChecksums(dataMap, source, bucketSet, bucketCount);
         return ResponseEntity.ok("ok");
     }
 
+    @PutMapping("/checksum/buckets")
+    public ResponseEntity syncChecksumBuckets(@RequestParam String source, @RequestParam int bucketCount,
+                                              @RequestBody Map<Integer, Long> digests) throws Exception {
+
+        if (bucketCount <= 0) {
+            throw new NacosException(NacosException.INVALID_PARAM, "illegal bucket count: " + bucketCount);
+        }
+
+        List<Integer> buckets = consistencyService.onReceiveChecksumBuckets(digests, bucketCount, source);
+        return ResponseEntity.ok(JSON.toJSONString(buckets));
+    }
+
     @GetMapping("/datum")
-    public ResponseEntity get(@RequestBody JSONObject body) throws Exception {
+    public ResponseEntity get(@RequestBody JSONObject body,
+                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept)
+        throws Exception {
 
         String keys = body.getString("keys");
         String keySplitter = ",";
@@ -104,13 +148,22 @@ public class DistroController {
             datumMap.put(key, datum);
         }
 
-        String content = new String(serializer.serialize(datumMap), StandardCharsets.UTF_8);
-        return ResponseEntity.ok(content);
+        return serialize(datumMap, accept);
     }
 
     @GetMapping("/datums")
-    public ResponseEntity getAllDatums() {
-        String content = new String(serializer.serialize(dataStore.getDataMap()), StandardCharsets.UTF_8);
+    public ResponseEntity getAllDatums(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return serialize(dataStore.getDataMap(), accept);
+    }
+
+    private ResponseEntity serialize(Map<String, Datum> datumMap, String accept) {
+        if (StringUtils.contains(accept, BinarySerializer.CONTENT_TYPE)) {
+            return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(BinarySerializer.CONTENT_TYPE))
+                .body(binarySerializer.serialize(datumMap));
+        }
+
+        String content = new String(serializer.serialize(datumMap), StandardCharsets.UTF_8);
         return ResponseEntity.ok(content);
     }
 }
@@ -23,19 +23,32 @@ import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.naming.CommonParams;
 import com.alibaba.nacos.api.naming.NamingResponseCode;
 import com.alibaba.nacos.api.naming.utils.NamingUtils;
+import com.alibaba.nacos.core.auth.AccessException;
 import com.alibaba.nacos.core.auth.ActionTypes;
+import com.alibaba.nacos.core.auth.AuthConfigs;
+import com.alibaba.nacos.core.auth.AuthManager;
+import com.alibaba.nacos.core.auth.Permission;
 import com.alibaba.nacos.core.auth.Secured;
+import com.alibaba.nacos.core.auth.User;
+import com.alibaba.nacos.common.constant.CommonConstants;
 import com.alibaba.nacos.core.utils.WebUtils;
+import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
 import com.alibaba.nacos.naming.core.ServiceManager;
 import com.alibaba.nacos.naming.healthcheck.RsInfo;
+import com.alibaba.nacos.naming.misc.HttpClient;
+import com.alibaba.nacos.naming.misc.NamingProxy;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.SwitchEntry;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.push.ClientInfo;
 import com.alibaba.nacos.naming.push.DataSource;
+import com.alibaba.nacos.naming.push.InstanceListCache;
+import com.alibaba.nacos.naming.push.InstanceListHistory;
 import com.alibaba.nacos.naming.push.PushService;
+import com.alibaba.nacos.naming.selector.NoneSelector;
+import com.alibaba.nacos.naming.selector.Selector;
 import com.alibaba.nacos.naming.web.CanDistro;
 import com.alibaba.nacos.naming.web.NamingResourceParser;
 import lombok.extern.slf4j.Slf4j;
@@ -47,6 +60,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.util.*;
 
@@ -69,6 +83,21 @@ public class InstanceController {
     @Autowired
     private ServiceManager serviceManager;
 
+    @Autowired
+    private DistroMapper distroMapper;
+
+    @Autowired
+    private InstanceListHistory instanceListHistory;
+
+    @Autowired
+    private InstanceListCache instanceListCache;
+
+    @Autowired
+    private AuthConfigs authConfigs;
+
+    @Autowired
+    private AuthManager authManager;
+
     private final DataSource pushDataSource = new DataSource() {
 
         @Override
@@ -76,9 +105,13 @@ public class InstanceController {
 
             JSONObject result = new JSONObject();
             try {
+                // the instances are pushed as changes to the version the client is known to hold
                 result = doSrvIPXT(client.getNamespaceId(), client.getServiceName(), client.getAgent(),
                     client.getClusters(), client.getSocketAddr().getAddress().getHostAddress(), 0, StringUtils.EMPTY,
-                    false, StringUtils.EMPTY, StringUtils.EMPTY, false);
+                    false, StringUtils.EMPTY, StringUtils.EMPTY, false, client.getHostsChecksum());
+                if (result.containsKey("hostsChecksum")) {
+                    client.setHostsChecksum(result.getString("hostsChecksum"));
+                }
             } catch (Exception e) {
                 log.warn("PUSH-SERVICE: service is not modified", e);
             }
@@ -217,8 +250,11 @@ public class InstanceController {
 
         boolean healthyOnly = Boolean.parseBoolean(WebUtils.optional(request, "healthyOnly", "false"));
 
+        // sent by the clients able to apply changed instances, empty if they hold no version yet
+        String hostsChecksum = request.getParameter("hostsChecksum");
+
         return doSrvIPXT(namespaceId, serviceName, agent, clusters, clientIP, udpPort, env, isCheck, app, tenant,
-            healthyOnly);
+            healthyOnly, hostsChecksum);
     }
 
     @GetMapping
@@ -275,9 +311,6 @@ public class InstanceController {
     @Secured(parser = NamingResourceParser.class, action = ActionTypes.WRITE)
     public JSONObject beat(HttpServletRequest request) throws Exception {
 
-        JSONObject result = new JSONObject();
-
-        result.put("clientBeatInterval", switchDomain.getClientBeatInterval());
         String serviceName = WebUtils.required(request, CommonParams.SERVICE_NAME);
         String namespaceId = WebUtils.optional(request, CommonParams.NAMESPACE_ID, Constants.DEFAULT_NAMESPACE_ID);
         String clusterName = WebUtils.optional(request, CommonParams.CLUSTER_NAME, UtilsAndCommons.DEFAULT_CLUSTER_NAME);
@@ -290,6 +323,149 @@ public class InstanceController {
             clientBeat = JSON.parseObject(beat, RsInfo.class);
         }
 
+        return processBeat(namespaceId, serviceName, clusterName, ip, port, clientBeat);
+    }
+
+    /**
+     * Client beats of many instances in one request, each beat is handled as by {@link #beat(HttpServletRequest)}.
+     * <p>
+     * The beats of the services this server is not responsible for are forwarded in one request to each responsible
+     * server, the results of the beats are returned in the order of the beats.
+     * <p>
+     * The request names no service, so it is not {@link Secured}: each beat is authorized against its own service and
+     * answered with 403 if denied, a client allowed to write some services only still gets their beats through.
+     *
+     * @param request http request
+     * @return results of the beats
+     * @throws Exception
+     */
+    @PutMapping("/beat/batch")
+    public JSONObject batchBeat(HttpServletRequest request) throws Exception {
+
+        String namespaceId = WebUtils.optional(request, CommonParams.NAMESPACE_ID, Constants.DEFAULT_NAMESPACE_ID);
+        List<RsInfo> beats = JSON.parseArray(WebUtils.required(request, "beats"), RsInfo.class);
+
+        // beats forwarded by a peer are handled here anyway, they are never forwarded twice:
+        String userAgent = request.getHeader(CommonConstants.USER_AGENT_HEADER);
+        boolean fromPeer = StringUtils.contains(userAgent, UtilsAndCommons.NACOS_SERVER_HEADER);
+
+        // as the auth filter, the peers are trusted and the forwarded beats were authorized where they were received:
+        boolean authEnabled = authConfigs.isAuthEnabled() && !fromPeer;
+        User user = null;
+        if (authEnabled) {
+            try {
+                user = authManager.login(request);
+            } catch (AccessException e) {
+                throw new NacosException(HttpURLConnection.HTTP_FORBIDDEN, e.getErrMsg());
+            }
+        }
+
+        JSONObject[] results = new JSONObject[beats.size()];
+        Map<String, List<Integer>> forwardBeats = new HashMap<>(8);
+        for (int i = 0; i < beats.size(); i++) {
+            RsInfo clientBeat = beats.get(i);
+            if (StringUtils.isBlank(clientBeat.getServiceName())) {
+                results[i] = beatResult(NacosException.INVALID_PARAM);
+                continue;
+            }
+
+            if (!clientBeat.getServiceName().contains(Constants.SERVICE_INFO_SPLITER)) {
+                clientBeat.setServiceName(Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER
+                    + clientBeat.getServiceName());
+            }
+
+            if (authEnabled) {
+                try {
+                    authManager.auth(new Permission(NamingResourceParser.buildName(
+                        request.getParameter(CommonParams.NAMESPACE_ID),
+                        NamingUtils.getGroupName(clientBeat.getServiceName()),
+                        NamingUtils.getServiceName(clientBeat.getServiceName())), ActionTypes.WRITE.toString()), user);
+                } catch (AccessException e) {
+                    results[i] = beatResult(HttpURLConnection.HTTP_FORBIDDEN);
+                    continue;
+                }
+            }
+
+            if (!fromPeer && !distroMapper.responsible(clientBeat.getServiceName())) {
+                forwardBeats.computeIfAbsent(distroMapper.mapSrv(clientBeat.getServiceName()),
+                    server -> new ArrayList<>()).add(i);
+                continue;
+            }
+
+            try {
+                results[i] = processBeat(namespaceId, clientBeat.getServiceName(),
+                    UtilsAndCommons.DEFAULT_CLUSTER_NAME, clientBeat.getIp(), clientBeat.getPort(), clientBeat);
+            } catch (Exception e) {
+                log.warn("[CLIENT-BEAT] failed to process beat: {}", clientBeat, e);
+                results[i] = beatResult(NacosException.SERVER_ERROR);
+            }
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : forwardBeats.entrySet()) {
+            try {
+                forwardBeats(namespaceId, entry.getKey(), beats, entry.getValue(), results);
+            } catch (Exception e) {
+                log.warn("[CLIENT-BEAT] failed to forward beats to {}", entry.getKey(), e);
+                for (Integer index : entry.getValue()) {
+                    results[index] = beatResult(NacosException.SERVER_ERROR);
+                }
+            }
+        }
+
+        JSONObject result = new JSONObject();
+        result.put("clientBeatInterval", switchDomain.getClientBeatInterval());
+        result.put(SwitchEntry.LIGHT_BEAT_ENABLED, switchDomain.isLightBeatEnabled());
+        result.put("beats", results);
+        return result;
+    }
+
+    private void forwardBeats(String namespaceId, String server, List<RsInfo> beats, List<Integer> indexes,
+                              JSONObject[] results) throws Exception {
+
+        List<RsInfo> serverBeats = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            serverBeats.add(beats.get(index));
+        }
+
+        HttpClient.HttpResult result = NamingProxy.batchBeat(namespaceId, serverBeats, server);
+        if (HttpURLConnection.HTTP_OK == result.code) {
+            JSONArray serverResults = JSON.parseObject(result.content).getJSONArray("beats");
+            for (int i = 0; i < indexes.size(); i++) {
+                results[indexes.get(i)] = serverResults != null && i < serverResults.size() ?
+                    serverResults.getJSONObject(i) : beatResult(NacosException.SERVER_ERROR);
+            }
+            return;
+        }
+
+        if (HttpURLConnection.HTTP_NOT_IMPLEMENTED != result.code && HttpURLConnection.HTTP_NOT_FOUND != result.code) {
+            for (Integer index : indexes) {
+                results[index] = beatResult(result.code);
+            }
+            return;
+        }
+
+        // the server does not support batch beats yet:
+        for (Integer index : indexes) {
+            HttpClient.HttpResult beatResult = NamingProxy.beat(namespaceId, beats.get(index), server);
+            results[index] = HttpURLConnection.HTTP_OK == beatResult.code ?
+                JSON.parseObject(beatResult.content) : beatResult(beatResult.code);
+        }
+    }
+
+    private JSONObject beatResult(int code) {
+        JSONObject result = new JSONObject();
+        result.put(CommonParams.CODE, code);
+        result.put("clientBeatInterval", switchDomain.getClientBeatInterval());
+        return result;
+    }
+
+    private JSONObject processBeat(String namespaceId, String serviceName, String clusterName, String ip, int port,
+                                   RsInfo clientBeat) throws Exception {
+
+        JSONObject result = new JSONObject();
+
+        result.put("clientBeatInterval", switchDomain.getClientBeatInterval());
+
         if (clientBeat != null) {
             if (StringUtils.isNotBlank(clientBeat.getCluster())) {
                 clusterName = clientBeat.getCluster();
@@ -438,6 +614,51 @@ public class InstanceController {
                                 int udpPort,
                                 String env, boolean isCheck, String app, String tid, boolean healthyOnly)
         throws Exception {
+        return doSrvIPXT(namespaceId, serviceName, agent, clusters, clientIP, udpPort, env, isCheck, app, tid,
+            healthyOnly, null);
+    }
+
+    /**
+     * Put the instances, or only the changed ones when the client holds a version still known to the history
+     *
+     * @param hostsChecksum checksum of the instances held by the client, null if the client can not apply changed
+     *                      instances
+     */
+    private void putHosts(JSONObject result, InstanceListCache.Entry entry, Service service, String clusters,
+                          boolean newFormat, boolean selected, boolean healthyOnly, String hostsChecksum,
+                          PushService.PushClient pushClient) {
+        JSONArray hosts = entry.hosts;
+        if (hostsChecksum == null || selected || !instanceListHistory.isEnabled()) {
+            result.put("hosts", entry.getSerializedHosts());
+            return;
+        }
+
+        String historyKey = UtilsAndCommons.assembleFullServiceName(service.getNamespaceId(), service.getName())
+            + UtilsAndCommons.CACHE_KEY_SPLITER + clusters
+            + UtilsAndCommons.CACHE_KEY_SPLITER + healthyOnly
+            + UtilsAndCommons.CACHE_KEY_SPLITER + newFormat;
+        InstanceListHistory.Delta delta = instanceListHistory.diff(historyKey, hosts, entry.getVersion(),
+            hostsChecksum);
+
+        result.put("hostsChecksum", delta.checksum);
+        if (delta.isDelta()) {
+            result.put("hosts", delta.changedHosts);
+            result.put("removedHosts", delta.removedHosts);
+            result.put("baseHostsChecksum", delta.baseChecksum);
+        } else {
+            result.put("hosts", entry.getSerializedHosts());
+        }
+
+        // the client applies what it pulls, later pushes are based on it
+        if (pushClient != null) {
+            pushClient.setHostsChecksum(delta.checksum);
+        }
+    }
+
+    public JSONObject doSrvIPXT(String namespaceId, String serviceName, String agent, String clusters, String clientIP,
+                                int udpPort, String env, boolean isCheck, String app, String tid, boolean healthyOnly,
+                                String hostsChecksum)
+        throws Exception {
 
         ClientInfo clientInfo = new ClientInfo(agent);
         JSONObject result = new JSONObject();
@@ -456,12 +677,13 @@ public class InstanceController {
         checkIfDisabled(service);
 
         long cacheMillis = switchDomain.getDefaultCacheMillis();
+        PushService.PushClient pushClient = null;
 
         // now try to enable the push
         try {
             if (udpPort > 0 && pushService.canEnablePush(agent)) {
 
-                pushService.addClient(namespaceId, serviceName,
+                pushClient = pushService.addClient(namespaceId, serviceName,
                     clusters,
                     agent,
                     new InetSocketAddress(clientIP, udpPort),
@@ -475,38 +697,64 @@ public class InstanceController {
             cacheMillis = switchDomain.getDefaultCacheMillis();
         }
 
+        boolean newFormat = clientInfo.type == ClientInfo.ClientType.JAVA &&
+            clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0;
+        boolean selected = service.getSelector() != null && !(service.getSelector() instanceof NoneSelector)
+            && StringUtils.isNotBlank(clientIP);
+
+        // the hosts only depend on the following, unchanged lists are served from the cache:
+        String listKey = clusters
+            + UtilsAndCommons.CACHE_KEY_SPLITER + healthyOnly
+            + UtilsAndCommons.CACHE_KEY_SPLITER + newFormat
+            + (selected ? UtilsAndCommons.CACHE_KEY_SPLITER + clientIP : StringUtils.EMPTY);
+        InstanceListCache.Entry entry = instanceListCache.get(
+            UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName), listKey, service,
+            () -> buildHosts(service, clusters, clientIP, healthyOnly, newFormat, selected));
+
+        if (isCheck && !entry.empty) {
+            return new JSONObject();
+        }
+
+        if (entry.empty && log.isDebugEnabled()) {
+            log.debug("no instance to serve for service: {}", serviceName);
+        }
+
+        putHosts(result, entry, service, clusters, newFormat, selected, healthyOnly, hostsChecksum, pushClient);
+        if (newFormat) {
+            result.put("dom", serviceName);
+        } else {
+            result.put("dom", NamingUtils.getServiceName(serviceName));
+        }
+        result.put("name", serviceName);
+        result.put("cacheMillis", cacheMillis);
+        result.put("lastRefTime", System.currentTimeMillis());
+        result.put("checksum", service.getChecksum());
+        result.put("useSpecifiedURL", false);
+        result.put("clusters", clusters);
+        result.put("env", env);
+        result.put("metadata", service.getMetadata());
+        return result;
+    }
+
+    /**
+     * Build the hosts served for a view of the service
+     */
+    private InstanceListCache.Entry buildHosts(Service service, String clusters, String clientIP, boolean healthyOnly,
+                                               boolean newFormat, boolean selected) {
+        String checksum = service.getChecksum();
+        Selector selector = service.getSelector();
+
         List<Instance> srvedIPs;
 
         srvedIPs = service.srvIPs(Arrays.asList(StringUtils.split(clusters, ",")));
 
         // filter ips using selector:
-        if (service.getSelector() != null && StringUtils.isNotBlank(clientIP)) {
-            srvedIPs = service.getSelector().select(clientIP, srvedIPs);
+        if (selector != null && StringUtils.isNotBlank(clientIP)) {
+            srvedIPs = selector.select(clientIP, srvedIPs);
         }
 
         if (CollectionUtils.isEmpty(srvedIPs)) {
-
-            if (log.isDebugEnabled()) {
-                log.debug("no instance to serve for service: {}", serviceName);
-            }
-
-            if (clientInfo.type == ClientInfo.ClientType.JAVA &&
-                clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0) {
-                result.put("dom", serviceName);
-            } else {
-                result.put("dom", NamingUtils.getServiceName(serviceName));
-            }
-
-            result.put("hosts", new JSONArray());
-            result.put("name", serviceName);
-            result.put("cacheMillis", cacheMillis);
-            result.put("lastRefTime", System.currentTimeMillis());
-            result.put("checksum", service.getChecksum());
-            result.put("useSpecifiedURL", false);
-            result.put("clusters", clusters);
-            result.put("env", env);
-            result.put("metadata", service.getMetadata());
-            return result;
+            return new InstanceListCache.Entry(checksum, selector, selected, new JSONArray(), true);
         }
 
         Map<Boolean, List<Instance>> ipMap = new HashMap<>(2);
@@ -517,30 +765,16 @@ public class InstanceController {
             ipMap.get(ip.isHealthy()).add(ip);
         }
 
-        if (isCheck) {
-            result.put("reachProtectThreshold", false);
-        }
-
         double threshold = service.getProtectThreshold();
 
         if ((float) ipMap.get(Boolean.TRUE).size() / srvedIPs.size() <= threshold) {
 
-            log.warn("protect threshold reached, return all ips, service: {}", serviceName);
-            if (isCheck) {
-                result.put("reachProtectThreshold", true);
-            }
+            log.warn("protect threshold reached, return all ips, service: {}", service.getName());
 
             ipMap.get(Boolean.TRUE).addAll(ipMap.get(Boolean.FALSE));
             ipMap.get(Boolean.FALSE).clear();
         }
 
-        if (isCheck) {
-            result.put("protectThreshold", service.getProtectThreshold());
-            result.put("reachLocalSiteCallThreshold", false);
-
-            return new JSONObject();
-        }
-
         JSONArray hosts = new JSONArray();
 
         for (Map.Entry<Boolean, List<Instance>> entry : ipMap.entrySet()) {
@@ -570,8 +804,7 @@ public class InstanceController {
                 ipObj.put("enabled", instance.isEnabled());
                 ipObj.put("weight", instance.getWeight());
                 ipObj.put("clusterName", instance.getClusterName());
-                if (clientInfo.type == ClientInfo.ClientType.JAVA &&
-                    clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0) {
+                if (newFormat) {
                     ipObj.put("serviceName", instance.getServiceName());
                 } else {
                     ipObj.put("serviceName", NamingUtils.getServiceName(instance.getServiceName()));
@@ -583,21 +816,6 @@ public class InstanceController {
             }
         }
 
-        result.put("hosts", hosts);
-        if (clientInfo.type == ClientInfo.ClientType.JAVA &&
-            clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0) {
-            result.put("dom", serviceName);
-        } else {
-            result.put("dom", NamingUtils.getServiceName(serviceName));
-        }
-        result.put("name", serviceName);
-        result.put("cacheMillis", cacheMillis);
-        result.put("lastRefTime", System.currentTimeMillis());
-        result.put("checksum", service.getChecksum());
-        result.put("useSpecifiedURL", false);
-        result.put("clusters", clusters);
-        result.put("env", env);
-        result.put("metadata", service.getMetadata());
-        return result;
+        return new InstanceListCache.Entry(checksum, selector, selected, hosts, false);
     }
 }
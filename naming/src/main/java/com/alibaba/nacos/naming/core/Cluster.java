@@ -53,6 +53,18 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
     @JSONField(serialize = false)
     private Set<Instance> ephemeralInstances = new HashSet<>();
 
+    /**
+     * ip -> persistent instances of the ip, rebuilt with the instance set
+     */
+    @JSONField(serialize = false)
+    private volatile Map<String, List<Instance>> persistentIndex = new HashMap<>();
+
+    /**
+     * ip -> ephemeral instances of the ip, rebuilt with the instance set
+     */
+    @JSONField(serialize = false)
+    private volatile Map<String, List<Instance>> ephemeralIndex = new HashMap<>();
+
     @JSONField(serialize = false)
     private Service service;
 
@@ -103,6 +115,31 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
         return ephemeral ? new ArrayList<>(ephemeralInstances) : new ArrayList<>(persistentInstances);
     }
 
+    /**
+     * Find an instance by its address without copying the instance list, as done for each client beat
+     *
+     * @return the instance, null if no instance of the cluster has the address
+     */
+    public Instance getInstance(String ip, int port, boolean ephemeral) {
+        List<Instance> instances = (ephemeral ? ephemeralIndex : persistentIndex).get(ip);
+        if (instances == null) {
+            return null;
+        }
+
+        for (int i = 0; i < instances.size(); i++) {
+            Instance instance = instances.get(i);
+            if (instance.getPort() == port) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    public Instance getInstance(String ip, int port) {
+        Instance instance = getInstance(ip, port, false);
+        return instance != null ? instance : getInstance(ip, port, true);
+    }
+
     public void init() {
         if (inited) {
             return;
@@ -177,6 +214,7 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
         Cluster cluster = new Cluster(this.getName(), service);
         cluster.setHealthChecker(getHealthChecker().clone());
         cluster.persistentInstances = new HashSet<>();
+        cluster.persistentIndex = new HashMap<>();
         cluster.checkTask = null;
         cluster.metadata = new HashMap<>(metadata);
         return cluster;
@@ -242,9 +280,19 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
 
         if (ephemeral) {
             ephemeralInstances = toUpdateInstances;
+            ephemeralIndex = buildIndex(toUpdateInstances);
         } else {
             persistentInstances = toUpdateInstances;
+            persistentIndex = buildIndex(toUpdateInstances);
+        }
+    }
+
+    private static Map<String, List<Instance>> buildIndex(Collection<Instance> instances) {
+        Map<String, List<Instance>> index = new HashMap<>(instances.size() * 2);
+        for (Instance instance : instances) {
+            index.computeIfAbsent(instance.getIp(), ip -> new ArrayList<>(1)).add(instance);
         }
+        return index;
     }
 
     public List<Instance> updatedIPs(Collection<Instance> a, Collection<Instance> b) {
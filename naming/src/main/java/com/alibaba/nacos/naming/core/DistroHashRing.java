@@ -0,0 +1,134 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Consistent hash ring of the servers, each server is placed on the ring as virtual nodes in proportion to its weight.
+ * <p>
+ * A service belongs to the first virtual node at or after the hash of its name, so adding or removing a server only
+ * moves the services of that server. The hashes only depend on the server keys and service names, every server builds
+ * the same ring from the same server list.
+ *
+ * @author nacos
+ */
+public class DistroHashRing {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Map<String, Integer> serverWeights;
+
+    private final int virtualNodes;
+
+    /**
+     * hashes of the virtual nodes, ascending
+     */
+    private final long[] hashes;
+
+    /**
+     * owner of the virtual node at the same index
+     */
+    private final String[] servers;
+
+    /**
+     * @param serverWeights server key -> weight of the server, servers of weight below 1 get the nodes of weight 1
+     * @param virtualNodes  virtual nodes of each server weight
+     */
+    public DistroHashRing(Map<String, Integer> serverWeights, int virtualNodes) {
+        this.serverWeights = serverWeights;
+        this.virtualNodes = virtualNodes;
+
+        int size = 0;
+        for (Integer weight : serverWeights.values()) {
+            size += Math.max(1, weight) * virtualNodes;
+        }
+
+        long[] nodeHashes = new long[size];
+        String[] nodeServers = new String[size];
+        int index = 0;
+        for (Map.Entry<String, Integer> entry : serverWeights.entrySet()) {
+            int nodes = Math.max(1, entry.getValue()) * virtualNodes;
+            for (int i = 0; i < nodes; i++) {
+                nodeHashes[index] = hash(entry.getKey() + "#" + i);
+                nodeServers[index] = entry.getKey();
+                index++;
+            }
+        }
+
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // break ties by server key, so every server orders the nodes the same way:
+        Arrays.sort(order, (a, b) -> {
+            int result = Long.compare(nodeHashes[a], nodeHashes[b]);
+            return result != 0 ? result : nodeServers[a].compareTo(nodeServers[b]);
+        });
+
+        hashes = new long[size];
+        servers = new String[size];
+        for (int i = 0; i < size; i++) {
+            hashes[i] = nodeHashes[order[i]];
+            servers[i] = nodeServers[order[i]];
+        }
+    }
+
+    public Map<String, Integer> getServerWeights() {
+        return serverWeights;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * @return key of the server the service belongs to, null if the ring is empty
+     */
+    public String get(String serviceName) {
+        if (hashes.length == 0) {
+            return null;
+        }
+
+        int index = Arrays.binarySearch(hashes, hash(serviceName));
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            // the first of the nodes of the same hash:
+            while (index > 0 && hashes[index - 1] == hashes[index]) {
+                index--;
+            }
+        }
+        return servers[index == hashes.length ? 0 : index];
+    }
+
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // spread the bits, FNV alone clusters similar keys:
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -28,7 +28,9 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author nkorange
@@ -39,6 +41,13 @@ public class DistroMapper implements ServerChangeListener {
 
     private List<String> healthyList = new ArrayList<>();
 
+    /**
+     * server key -> weight of the healthy servers
+     */
+    private volatile Map<String, Integer> healthyWeights = new HashMap<>();
+
+    private volatile DistroHashRing hashRing;
+
     public List<String> getHealthyList() {
         return healthyList;
     }
@@ -80,6 +89,10 @@ public class DistroMapper implements ServerChangeListener {
             return true;
         }
 
+        if (switchDomain.getDistroVirtualNodes() > 0) {
+            return NetUtils.localServer().equals(getHashRing().get(serviceName));
+        }
+
         int target = distroHash(serviceName) % healthyList.size();
         return target >= index && target <= lastIndex;
     }
@@ -90,6 +103,10 @@ public class DistroMapper implements ServerChangeListener {
         }
 
         try {
+            if (switchDomain.getDistroVirtualNodes() > 0) {
+                String server = getHashRing().get(serviceName);
+                return server == null ? NetUtils.localServer() : server;
+            }
             return healthyList.get(distroHash(serviceName) % healthyList.size());
         } catch (Exception e) {
             log.warn("distro mapper failed, return localhost: " + NetUtils.localServer(), e);
@@ -97,6 +114,20 @@ public class DistroMapper implements ServerChangeListener {
         }
     }
 
+    /**
+     * Hash ring of the current healthy servers, rebuilt when the servers or the virtual node count change
+     */
+    private DistroHashRing getHashRing() {
+        DistroHashRing ring = hashRing;
+        Map<String, Integer> weights = healthyWeights;
+        int virtualNodes = switchDomain.getDistroVirtualNodes();
+        if (ring == null || ring.getServerWeights() != weights || ring.getVirtualNodes() != virtualNodes) {
+            ring = new DistroHashRing(weights, virtualNodes);
+            hashRing = ring;
+        }
+        return ring;
+    }
+
     public int distroHash(String serviceName) {
         return Math.abs(serviceName.hashCode() % Integer.MAX_VALUE);
     }
@@ -110,9 +141,12 @@ public class DistroMapper implements ServerChangeListener {
     public void onChangeHealthyServerList(List<Server> latestReachableMembers) {
 
         List<String> newHealthyList = new ArrayList<>();
+        Map<String, Integer> newHealthyWeights = new HashMap<>(latestReachableMembers.size() * 2);
         for (Server server : latestReachableMembers) {
             newHealthyList.add(server.getKey());
+            newHealthyWeights.put(server.getKey(), server.getWeight() + server.getAdWeight());
         }
+        healthyWeights = newHealthyWeights;
         healthyList = newHealthyList;
     }
 }
@@ -28,6 +28,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
@@ -40,25 +41,30 @@ import java.util.Map;
 @Slf4j
 public class Instances implements Record {
 
-    private static MessageDigest MESSAGE_DIGEST;
+    private static final Comparator<Instance> INSTANCE_ORDER = Comparator.comparing(Instance::getIp)
+        .thenComparingInt(Instance::getPort)
+        .thenComparing(Instance::getClusterName, Comparator.nullsFirst(Comparator.naturalOrder()));
 
-    static {
-        try {
-            MESSAGE_DIGEST = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            log.error("error while calculating checksum(md5) for instances", e);
-            MESSAGE_DIGEST = null;
-        }
-    }
+    /**
+     * chars digested at once, keeps the buffer small for large instance lists
+     */
+    private static final int DIGEST_CHUNK_SIZE = 4096;
 
     private List<Instance> instanceList = new ArrayList<>();
 
+    /**
+     * calculated on first use, an instance list is replaced rather than modified once published
+     */
+    @JSONField(serialize = false)
+    private volatile String checksum;
+
     public List<Instance> getInstanceList() {
         return instanceList;
     }
 
     public void setInstanceList(List<Instance> instanceList) {
         this.instanceList = instanceList;
+        this.checksum = null;
     }
 
     @Override
@@ -69,45 +75,69 @@ public class Instances implements Record {
     @Override
     @JSONField(serialize = false)
     public String getChecksum() {
-
-        return recalculateChecksum();
+        String checksum = this.checksum;
+        if (checksum == null) {
+            checksum = recalculateChecksum();
+            this.checksum = checksum;
+        }
+        return checksum;
     }
 
+    /**
+     * Health is left out: it is changed in place by the health checkers, synchronized by the service status
+     * reports, and the health of received instances is overridden by the local one anyway.
+     */
     private String recalculateChecksum() {
-        String checksum;
-        StringBuilder sb = new StringBuilder();
-        Collections.sort(instanceList);
-        for (Instance ip : instanceList) {
-            String string = ip.getIp() + ":" + ip.getPort() + "_" + ip.getWeight() + "_"
-                + ip.isHealthy() + "_" + ip.isEnabled() + "_" + ip.getClusterName() + "_" + convertMap2String(ip.getMetadata());
-            sb.append(string);
-            sb.append(",");
+        List<Instance> instances = new ArrayList<>(instanceList);
+        instances.sort(INSTANCE_ORDER);
+
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            log.error("error while calculating checksum(md5) for instances", e);
+            return RandomStringUtils.randomAscii(32);
         }
 
-        if (MESSAGE_DIGEST != null) {
-            checksum =
-                new BigInteger(1, MESSAGE_DIGEST.digest((sb.toString()).getBytes(StandardCharsets.UTF_8))).toString(16);
-        } else {
-            checksum = RandomStringUtils.randomAscii(32);
+        StringBuilder sb = new StringBuilder(DIGEST_CHUNK_SIZE + 256);
+        for (Instance ip : instances) {
+            sb.append(ip.getIp()).append(':').append(ip.getPort())
+                .append('_').append(ip.getWeight())
+                .append('_').append(ip.isEnabled())
+                .append('_').append(ip.getClusterName())
+                .append('_');
+            appendMap(sb, ip.getMetadata());
+            sb.append(',');
+            if (sb.length() >= DIGEST_CHUNK_SIZE) {
+                messageDigest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+                sb.setLength(0);
+            }
         }
-        return checksum;
-    }
+        messageDigest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
 
-    public String convertMap2String(Map<String, String> map) {
+        return new BigInteger(1, messageDigest.digest()).toString(16);
+    }
 
+    private static void appendMap(StringBuilder sb, Map<String, String> map) {
         if (map == null || map.isEmpty()) {
-            return StringUtils.EMPTY;
+            return;
         }
 
-        StringBuilder sb = new StringBuilder();
         List<String> keys = new ArrayList<>(map.keySet());
         Collections.sort(keys);
         for (String key : keys) {
-            sb.append(key);
-            sb.append(":");
-            sb.append(map.get(key));
-            sb.append(",");
+            sb.append(key).append(':').append(map.get(key)).append(',');
         }
+    }
+
+    public String convertMap2String(Map<String, String> map) {
+
+        if (map == null || map.isEmpty()) {
+            return StringUtils.EMPTY;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        appendMap(sb, map);
         return sb.toString();
     }
 }
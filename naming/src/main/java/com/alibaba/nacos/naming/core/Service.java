@@ -241,6 +241,10 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
             clusterMap.get(entry.getKey()).updateIPs(entryIPs, ephemeral);
         }
 
+        if (ephemeral) {
+            clientBeatCheckTask.track(instances);
+        }
+
         setLastModifiedMillis(System.currentTimeMillis());
         getPushService().serviceChanged(this);
         StringBuilder stringBuilder = new StringBuilder();
@@ -258,7 +262,7 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
      * 服务实例初始化，开启服务端堆客户端心跳检测
      */
     public void init() {
-        HealthCheckReactor.scheduleCheck(clientBeatCheckTask);
+        clientBeatCheckTask.start();
         for (Map.Entry<String, Cluster> entry : clusterMap.entrySet()) {
             entry.getValue().setService(this);
             entry.getValue().init();
@@ -273,7 +277,7 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         for (Map.Entry<String, Cluster> entry : clusterMap.entrySet()) {
             entry.getValue().destroy();
         }
-        HealthCheckReactor.cancelCheck(clientBeatCheckTask);
+        clientBeatCheckTask.stop();
     }
 
     public List<Instance> allIPs() {
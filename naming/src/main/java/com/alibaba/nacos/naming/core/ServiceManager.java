@@ -547,17 +547,12 @@ public class ServiceManager implements RecordListener<Service> {
             return null;
         }
 
-        List<Instance> instanceList = service.allIPs(Collections.singletonList(cluster));
-        if (CollectionUtils.isEmpty(instanceList)) {
+        Cluster clusterObj = service.getClusterMap().get(cluster);
+        if (clusterObj == null) {
             return null;
         }
 
-        for (Instance instance : instanceList) {
-            if (instance.getIp().equals(ip) && instance.getPort() == port) {
-                return instance;
-            }
-        }
-        return null;
+        return clusterObj.getInstance(ip, port);
     }
 
     /**
@@ -17,32 +17,56 @@ package com.alibaba.nacos.naming.healthcheck;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.nacos.common.utils.HashedWheelTimer;
 import com.alibaba.nacos.naming.boot.RunningConfig;
 import com.alibaba.nacos.naming.boot.SpringContext;
+import com.alibaba.nacos.naming.core.Cluster;
 import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
 import com.alibaba.nacos.naming.healthcheck.events.InstanceHeartbeatTimeoutEvent;
 import com.alibaba.nacos.naming.misc.*;
+import com.alibaba.nacos.naming.monitor.MetricsMonitor;
 import com.alibaba.nacos.naming.push.PushService;
 import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.Response;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.HttpURLConnection;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  * 服务端心跳检测客户端任务
  * Check and update statues of ephemeral instances, remove them if they have been expired.
+ * <p>
+ * Every ephemeral instance has a deadline in the heartbeat wheel of {@link HealthCheckReactor}, at its last beat plus
+ * its timeout. Beats do not touch the wheel: when a deadline fires the instance is checked against its latest beat and
+ * the deadline is moved to the next time the instance could expire, so nothing scans the whole service.
+ * <p>
+ * The price is that an instance which keeps beating still fires once per heartbeat timeout, on every server, including
+ * the ones not responsible for the service, which only re-arm so they follow changes of the responsibility. Moving the
+ * deadline on every beat instead would cost a cancel and a new wheel entry per beat, several times more wheel work
+ * at the default 5s beat and 15s timeout.
+ *
  * @author nkorange
  */
 @Slf4j
-public class ClientBeatCheckTask implements Runnable {
+public class ClientBeatCheckTask {
 
     private final Service service;
 
+    /**
+     * datum key of instance -> its deadline, only kept between {@link #start()} and {@link #stop()}
+     */
+    private final Map<String, BeatDeadline> deadlines = new ConcurrentHashMap<>();
+
+    private volatile boolean started;
+
     public ClientBeatCheckTask(Service service) {
         this.service = service;
     }
@@ -70,63 +94,100 @@ public class ClientBeatCheckTask implements Runnable {
         return service.getName();
     }
 
-    @Override
-    public void run() {
-        try {
-            if (!getDistroMapper().responsible(service.getName())) {
-                return;
-            }
+    /**
+     * Track the current ephemeral instances of the service, and the ones added by {@link #track(Collection)} later.
+     */
+    public void start() {
+        started = true;
+        track(service.allIPs(true));
+    }
 
-            if (!getSwitchDomain().isHealthCheckEnabled()) {
-                return;
-            }
+    /**
+     * Cancel all the deadlines of the service.
+     */
+    public void stop() {
+        started = false;
+        for (BeatDeadline deadline : deadlines.values()) {
+            deadline.cancel();
+        }
+        deadlines.clear();
+    }
 
-            List<Instance> instances = service.allIPs(true);
-
-            // first set health status of instances:
-            for (Instance instance : instances) {
-                //超时检测： 5 * 13 = 15s, 3次客户端心跳上报周期，距离最后依次超时超过3次心跳时间则执行下列逻辑，服务实例设置未不健康状态
-                if (System.currentTimeMillis() - instance.getLastBeat() > instance.getInstanceHeartBeatTimeOut()) {
-                    if (!instance.isMarked()) {
-                        if (instance.isHealthy()) {
-                            instance.setHealthy(false);
-                            log.info("{POS} {IP-DISABLED} valid: {}:{}@{}@{}, region: {}, msg: client timeout after {}, last beat: {}",
-                                instance.getIp(), instance.getPort(), instance.getClusterName(), service.getName(),
-                                UtilsAndCommons.LOCALHOST_SITE, instance.getInstanceHeartBeatTimeOut(), instance.getLastBeat());
-
-                            //nacos服务端发送UDP包给客户端检测服务是否正常
-                            getPushService().serviceChanged(service);
-
-                            //发送心跳超时事件
-                            SpringContext.getAppContext().publishEvent(new InstanceHeartbeatTimeoutEvent(this, instance));
-                        }
-                    }
-                }
+    /**
+     * Schedule a deadline for every instance which does not have one yet.
+     */
+    public void track(Collection<Instance> instances) {
+        if (!started) {
+            return;
+        }
+        for (Instance instance : instances) {
+            String key = instance.getDatumKey();
+            if (deadlines.containsKey(key)) {
+                continue;
             }
-
-            if (!getGlobalConfig().isExpireInstance()) {
-                return;
+            BeatDeadline deadline = new BeatDeadline(key, instance.getClusterName(), instance.getIp(), instance.getPort());
+            if (deadlines.putIfAbsent(key, deadline) == null) {
+                deadline.schedule(instance.getLastBeat() + instance.getInstanceHeartBeatTimeOut() + 1);
             }
+        }
+        if (!started) {
+            // raced with stop():
+            stop();
+        }
+    }
 
-            // then remove obsolete instances:
-            for (Instance instance : instances) {
+    /**
+     * @return number of instances tracked in the heartbeat wheel
+     */
+    public int getDeadlineCount() {
+        return deadlines.size();
+    }
 
-                if (instance.isMarked()) {
-                    continue;
-                }
+    /**
+     * Update the health status of the instance, and remove it if it has been expired.
+     *
+     * @return time in milliseconds when the instance should be checked again
+     */
+    long check(Instance instance) {
+        long now = System.currentTimeMillis();
+        long beatTimeout = instance.getInstanceHeartBeatTimeOut();
 
-                //距离最后1次心跳超时30s,剔除服务实例
-                if (System.currentTimeMillis() - instance.getLastBeat() > instance.getIpDeleteTimeout()) {
-                    // delete instance
-                    log.info("[AUTO-DELETE-IP] service: {}, ip: {}", service.getName(), JSON.toJSONString(instance));
-                    deleteIP(instance);
-                }
-            }
+        //超时检测： 5 * 13 = 15s, 3次客户端心跳上报周期，距离最后依次超时超过3次心跳时间则执行下列逻辑，服务实例设置未不健康状态
+        if (now - instance.getLastBeat() <= beatTimeout) {
+            return instance.getLastBeat() + beatTimeout + 1;
+        }
 
-        } catch (Exception e) {
-            log.warn("Exception while processing client beat time out.", e);
+        if (!instance.isMarked() && instance.isHealthy()) {
+            instance.setHealthy(false);
+            log.info("{POS} {IP-DISABLED} valid: {}:{}@{}@{}, region: {}, msg: client timeout after {}, last beat: {}",
+                instance.getIp(), instance.getPort(), instance.getClusterName(), service.getName(),
+                UtilsAndCommons.LOCALHOST_SITE, beatTimeout, instance.getLastBeat());
+            MetricsMonitor.getBeatExpiryLagTimer().record(now - instance.getLastBeat() - beatTimeout,
+                TimeUnit.MILLISECONDS);
+
+            //nacos服务端发送UDP包给客户端检测服务是否正常
+            getPushService().serviceChanged(service);
+
+            //发送心跳超时事件
+            SpringContext.getAppContext().publishEvent(new InstanceHeartbeatTimeoutEvent(this, instance));
         }
 
+        if (!getGlobalConfig().isExpireInstance() || instance.isMarked()) {
+            // unhealthy until the next beat:
+            return now + beatTimeout;
+        }
+
+        //距离最后1次心跳超时30s,剔除服务实例
+        long deleteTimeout = instance.getIpDeleteTimeout();
+        if (now - instance.getLastBeat() <= deleteTimeout) {
+            return instance.getLastBeat() + deleteTimeout + 1;
+        }
+
+        // delete instance
+        log.info("[AUTO-DELETE-IP] service: {}, ip: {}", service.getName(), JSON.toJSONString(instance));
+        deleteIP(instance);
+        // checked again in case the deletion fails:
+        return now + beatTimeout;
     }
 
     /**
@@ -163,4 +224,79 @@ public class ClientBeatCheckTask implements Runnable {
             log.error("[IP-DEAD] failed to delete ip automatically, ip: {}, error: {}", instance.toJSON(), e);
         }
     }
+
+    /**
+     * Deadline of an instance, the instance is looked up again when the deadline fires since updates of the instance
+     * list replace the instance objects.
+     */
+    private class BeatDeadline implements Runnable {
+
+        private final String key;
+
+        private final String clusterName;
+
+        private final String ip;
+
+        private final int port;
+
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        BeatDeadline(String key, String clusterName, String ip, int port) {
+            this.key = key;
+            this.clusterName = clusterName;
+            this.ip = ip;
+            this.port = port;
+        }
+
+        void schedule(long deadline) {
+            timeout = HealthCheckReactor.scheduleBeatDeadline(this, deadline);
+            if (!started) {
+                timeout.cancel();
+            }
+        }
+
+        void cancel() {
+            HashedWheelTimer.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!started) {
+                return;
+            }
+
+            Instance instance = find();
+            if (instance == null) {
+                deadlines.remove(key, this);
+                // re-added while the deadline was being removed:
+                instance = find();
+                if (instance != null) {
+                    track(Collections.singletonList(instance));
+                }
+                return;
+            }
+
+            long next;
+            try {
+                if (getDistroMapper().responsible(service.getName()) && getSwitchDomain().isHealthCheckEnabled()) {
+                    next = check(instance);
+                } else {
+                    // responsibility or the switch may change, look again later:
+                    next = System.currentTimeMillis() + instance.getInstanceHeartBeatTimeOut();
+                }
+            } catch (Exception e) {
+                log.warn("Exception while processing client beat time out.", e);
+                next = System.currentTimeMillis() + instance.getInstanceHeartBeatTimeOut();
+            }
+            schedule(next);
+        }
+
+        private Instance find() {
+            Cluster cluster = service.getClusterMap().get(clusterName);
+            return cluster == null ? null : cluster.getInstance(ip, port, true);
+        }
+    }
 }
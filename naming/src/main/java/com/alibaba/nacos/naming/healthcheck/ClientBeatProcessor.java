@@ -25,7 +25,6 @@ import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.push.PushService;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -71,22 +70,25 @@ public class ClientBeatProcessor implements Runnable {
         String clusterName = rsInfo.getCluster();
         int port = rsInfo.getPort();
         Cluster cluster = service.getClusterMap().get(clusterName);
-        List<Instance> instances = cluster.allIPs(true);
+        if (cluster == null) {
+            return;
+        }
+
+        Instance instance = cluster.getInstance(ip, port, true);
+        if (instance == null) {
+            return;
+        }
 
-        for (Instance instance : instances) {
-            if (instance.getIp().equals(ip) && instance.getPort() == port) {
-                if (log.isDebugEnabled()) {
-                    log.debug("[CLIENT-BEAT] refresh beat: {}", rsInfo.toString());
-                }
-                instance.setLastBeat(System.currentTimeMillis());
-                if (!instance.isMarked()) {
-                    if (!instance.isHealthy()) {
-                        instance.setHealthy(true);
-                        log.info("service: {} {POS} {IP-ENABLED} valid: {}:{}@{}, region: {}, msg: client beat ok",
-                            cluster.getService().getName(), ip, port, cluster.getName(), UtilsAndCommons.LOCALHOST_SITE);
-                        getPushService().serviceChanged(service);
-                    }
-                }
+        if (log.isDebugEnabled()) {
+            log.debug("[CLIENT-BEAT] refresh beat: {}", rsInfo.toString());
+        }
+        instance.setLastBeat(System.currentTimeMillis());
+        if (!instance.isMarked()) {
+            if (!instance.isHealthy()) {
+                instance.setHealthy(true);
+                log.info("service: {} {POS} {IP-ENABLED} valid: {}:{}@{}, region: {}, msg: client beat ok",
+                    cluster.getService().getName(), ip, port, cluster.getName(), UtilsAndCommons.LOCALHOST_SITE);
+                getPushService().serviceChanged(service);
             }
         }
     }
@@ -16,10 +16,9 @@
 package com.alibaba.nacos.naming.healthcheck;
 
 
-
+import com.alibaba.nacos.common.utils.HashedWheelTimer;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Map;
 import java.util.concurrent.*;
 
 /**
@@ -31,7 +30,14 @@ public class HealthCheckReactor {
 
     private static final ScheduledExecutorService EXECUTOR;
 
-    private static final Map<String, ScheduledFuture> futureMap = new ConcurrentHashMap<>();
+    /**
+     * tick of the heartbeat deadline wheel, heartbeat timeouts are detected within one tick plus the check itself
+     */
+    private static final long BEAT_WHEEL_TICK_MS = 100L;
+
+    private static final int BEAT_WHEEL_TICKS = 512;
+
+    private static final HashedWheelTimer BEAT_WHEEL;
 
     static {
 
@@ -47,6 +53,10 @@ public class HealthCheckReactor {
                         return thread;
                     }
                 });
+
+        // deadlines of one tick are checked on the health executor, not on the timer thread:
+        BEAT_WHEEL = new HashedWheelTimer("com.alibaba.nacos.naming.beat.deadline", BEAT_WHEEL_TICK_MS,
+            TimeUnit.MILLISECONDS, BEAT_WHEEL_TICKS, EXECUTOR);
     }
 
     public static ScheduledFuture<?> scheduleCheck(HealthCheckTask task) {
@@ -55,30 +65,24 @@ public class HealthCheckReactor {
     }
 
     /**
-     * 服务健康心跳检测
-     * @param task
+     * 在心跳截止时间检测服务实例
+     * Schedule the check of a heartbeat deadline.
+     *
+     * @param task     the check, it should handle its own exceptions
+     * @param deadline time in milliseconds when the check runs
+     * @return handle used to cancel the check
      */
-    public static void scheduleCheck(ClientBeatCheckTask task) {
-        futureMap.putIfAbsent(task.taskKey(), EXECUTOR.scheduleWithFixedDelay(task, 5000, 5000, TimeUnit.MILLISECONDS));
+    public static HashedWheelTimer.Timeout scheduleBeatDeadline(Runnable task, long deadline) {
+        return BEAT_WHEEL.newTimeout(task, deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
     }
 
     /**
-     * 取消服务健康心跳检测
-     * @param task
+     * @return number of heartbeat deadlines waiting in the wheel
      */
-    public static void cancelCheck(ClientBeatCheckTask task) {
-        ScheduledFuture scheduledFuture = futureMap.get(task.taskKey());
-        if (scheduledFuture == null) {
-            return;
-        }
-        try {
-            scheduledFuture.cancel(true);
-        } catch (Exception e) {
-            log.error("[CANCEL-CHECK] cancel failed!", e);
-        }
+    public static long getBeatDeadlineCount() {
+        return BEAT_WHEEL.size();
     }
 
-
     public static ScheduledFuture<?> scheduleNow(Runnable task) {
         return EXECUTOR.schedule(task, 0, TimeUnit.MILLISECONDS);
     }
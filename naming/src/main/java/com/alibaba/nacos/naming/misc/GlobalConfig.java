@@ -36,6 +36,9 @@ public class GlobalConfig {
     @Value("${nacos.naming.distro.syncRetryDelay:5000}")
     private long syncRetryDelay = 5000L;
 
+    @Value("${nacos.naming.distro.syncMaxInFlightBatches:2}")
+    private int syncMaxInFlightBatches = 2;
+
     @Value("${nacos.naming.data.warmup:false}")
     private boolean dataWarmup = false;
 
@@ -45,6 +48,12 @@ public class GlobalConfig {
     @Value("${nacos.naming.distro.loadDataRetryDelayMillis:30000}")
     private long loadDataRetryDelayMillis = 30000;
 
+    @Value("${nacos.naming.distro.checksumBucketCount:1024}")
+    private int checksumBucketCount = 1024;
+
+    @Value("${nacos.naming.distro.serializer:json}")
+    private String serializer = "json";
+
     public int getTaskDispatchPeriod() {
         return taskDispatchPeriod;
     }
@@ -57,6 +66,10 @@ public class GlobalConfig {
         return syncRetryDelay;
     }
 
+    public int getSyncMaxInFlightBatches() {
+        return syncMaxInFlightBatches;
+    }
+
     public boolean isDataWarmup() {
         return dataWarmup;
     }
@@ -68,4 +81,12 @@ public class GlobalConfig {
     public long getLoadDataRetryDelayMillis() {
         return loadDataRetryDelayMillis;
     }
+
+    public int getChecksumBucketCount() {
+        return checksumBucketCount;
+    }
+
+    public String getSerializer() {
+        return serializer;
+    }
 }
@@ -32,12 +32,14 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -344,6 +346,59 @@ public class HttpClient {
         }
     }
 
+    public static HttpResult httpPutLarge(String url, Map<String, String> headers, byte[] content, String contentType) {
+        try {
+            HttpClientBuilder builder = HttpClients.custom();
+            builder.setUserAgent(UtilsAndCommons.SERVER_VERSION);
+            builder.setConnectionTimeToLive(500, TimeUnit.MILLISECONDS);
+
+            CloseableHttpClient httpClient = builder.build();
+            HttpPut httpPut = new HttpPut(url);
+
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                httpPut.setHeader(entry.getKey(), entry.getValue());
+            }
+
+            httpPut.setEntity(new ByteArrayEntity(content, ContentType.create(contentType)));
+
+            HttpResponse response = httpClient.execute(httpPut);
+            HttpEntity entity = response.getEntity();
+
+            return new HttpResult(response.getStatusLine().getStatusCode(),
+                EntityUtils.toString(entity, StandardCharsets.UTF_8), Collections.emptyMap());
+        } catch (Exception e) {
+            return new HttpResult(500, e.toString(), Collections.emptyMap());
+        }
+    }
+
+    /**
+     * Same as {@link #httpGetLarge(String, Map, String)}, but keep the response body as it is
+     */
+    public static HttpBytesResult httpGetLargeBytes(String url, Map<String, String> headers, String content) {
+
+        try {
+            HttpClientBuilder builder = HttpClients.custom();
+            builder.setUserAgent(UtilsAndCommons.SERVER_VERSION);
+            builder.setConnectionTimeToLive(500, TimeUnit.MILLISECONDS);
+
+            CloseableHttpClient httpClient = builder.build();
+            HttpGetWithEntity httpGetWithEntity = new HttpGetWithEntity();
+            httpGetWithEntity.setURI(new URI(url));
+
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                httpGetWithEntity.setHeader(entry.getKey(), entry.getValue());
+            }
+
+            httpGetWithEntity.setEntity(new StringEntity(content, ContentType.create("application/json", "UTF-8")));
+            HttpResponse response = httpClient.execute(httpGetWithEntity);
+
+            return new HttpBytesResult(response.getStatusLine().getStatusCode(),
+                EntityUtils.toByteArray(response.getEntity()));
+        } catch (Exception e) {
+            return new HttpBytesResult(500, e.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
     public static HttpResult httpGetLarge(String url, Map<String, String> headers, String content) {
 
         try {
@@ -509,6 +564,16 @@ public class HttpClient {
         }
     }
 
+    public static class HttpBytesResult {
+        final public int code;
+        final public byte[] content;
+
+        public HttpBytesResult(int code, byte[] content) {
+            this.code = code;
+            this.content = content;
+        }
+    }
+
     public static class HttpGetWithEntity extends HttpEntityEnclosingRequestBase {
 
         public final static String METHOD_NAME = "GET";
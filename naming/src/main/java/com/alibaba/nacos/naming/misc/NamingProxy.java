@@ -16,16 +16,22 @@
 package com.alibaba.nacos.naming.misc;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
 import com.alibaba.nacos.common.constant.CommonConstants;
 import com.alibaba.nacos.common.utils.VersionUtils;
+import com.alibaba.nacos.naming.cluster.transport.BinarySerializer;
 import com.alibaba.nacos.naming.boot.RunningConfig;
+import com.alibaba.nacos.naming.healthcheck.RsInfo;
 import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.Response;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHeaders;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
@@ -42,7 +48,62 @@ public class NamingProxy {
 
     private static final String TIMESTAMP_SYNC_URL = "/distro/checksum";
 
+    private static final String CHECKSUM_BUCKETS_SYNC_URL = "/distro/checksum/buckets";
+
+    private static final String BEAT_URL = "/instance/beat";
+
+    private static final String BATCH_BEAT_URL = "/instance/beat/batch";
+
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+
+    /**
+     * Send the bucket digests of the keys this server is responsible for
+     *
+     * @return buckets whose key checksums should be sent, null if the server does not support bucket digests
+     */
+    public static List<Integer> syncCheckSumBuckets(Map<Integer, Long> digests, int bucketCount, String server)
+        throws Exception {
+
+        Map<String, String> headers = new HashMap<>(8);
+
+        headers.put(CommonConstants.CLIENT_VERSION_HEADER, VersionUtils.VERSION);
+        headers.put(CommonConstants.USER_AGENT_HEADER, UtilsAndCommons.SERVER_VERSION);
+        headers.put("Connection", "Keep-Alive");
+
+        HttpClient.HttpResult result = HttpClient.httpPutLarge("http://" + server + RunningConfig.getContextPath()
+                + UtilsAndCommons.NACOS_NAMING_CONTEXT + CHECKSUM_BUCKETS_SYNC_URL + "?source=" + NetUtils.localServer()
+                + "&bucketCount=" + bucketCount,
+            headers, JSON.toJSONBytes(digests, SerializerFeature.WriteNonStringKeyAsString));
+
+        if (HttpURLConnection.HTTP_OK == result.code) {
+            return JSON.parseArray(result.content, Integer.class);
+        }
+
+        if (HttpURLConnection.HTTP_NOT_FOUND == result.code) {
+            return null;
+        }
+
+        throw new IOException("failed to req API: " + "http://" + server
+            + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + CHECKSUM_BUCKETS_SYNC_URL + ". code: "
+            + result.code + " msg: " + result.content);
+    }
+
     public static void syncCheckSums(Map<String, String> checksumMap, String server) {
+        syncCheckSums(checksumMap, server, null, 0);
+    }
+
+    /**
+     * Send the key checksums of some buckets, the keys of other buckets are left as they are by the receiver
+     *
+     * @param buckets     buckets the checksums are sent for, null if all keys are sent
+     * @param bucketCount bucket count of the buckets
+     */
+    public static void syncCheckSums(Map<String, String> checksumMap, String server, List<Integer> buckets,
+                                     int bucketCount) {
+
+        String bucketParams = buckets == null ? StringUtils.EMPTY
+            : "&bucketCount=" + bucketCount + "&buckets=" + StringUtils.join(buckets, ",");
 
         try {
             Map<String, String> headers = new HashMap<>(128);
@@ -52,7 +113,8 @@ public class NamingProxy {
             headers.put("Connection", "Keep-Alive");
 
             HttpClient.asyncHttpPutLarge("http://" + server + RunningConfig.getContextPath()
-                    + UtilsAndCommons.NACOS_NAMING_CONTEXT + TIMESTAMP_SYNC_URL + "?source=" + NetUtils.localServer(),
+                    + UtilsAndCommons.NACOS_NAMING_CONTEXT + TIMESTAMP_SYNC_URL + "?source=" + NetUtils.localServer()
+                    + bucketParams,
                 headers, JSON.toJSONBytes(checksumMap),
                 new AsyncCompletionHandler() {
                     @Override
@@ -78,39 +140,121 @@ public class NamingProxy {
         }
     }
 
-    public static byte[] getData(List<String> keys, String server) throws Exception {
+    /**
+     * @param acceptBinary whether binary data is accepted, the server may still reply with JSON
+     */
+    public static byte[] getData(List<String> keys, String server, boolean acceptBinary) throws Exception {
 
         Map<String, String> params = new HashMap<>(8);
         params.put("keys", StringUtils.join(keys, ","));
-        HttpClient.HttpResult result = HttpClient.httpGetLarge("http://" + server + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL, new HashMap<>(8), JSON.toJSONString(params));
+        HttpClient.HttpBytesResult result = HttpClient.httpGetLargeBytes("http://" + server
+                + RunningConfig.getContextPath() + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL,
+            getDataHeaders(acceptBinary), JSON.toJSONString(params));
 
         if (HttpURLConnection.HTTP_OK == result.code) {
-            return result.content.getBytes();
+            return result.content;
         }
 
         throw new IOException("failed to req API: " + "http://" + server
             + RunningConfig.getContextPath()
             + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL + ". code: "
-            + result.code + " msg: " + result.content);
+            + result.code + " msg: " + new String(result.content, StandardCharsets.UTF_8));
     }
 
-    public static byte[] getAllData(String server) throws Exception {
+    /**
+     * @param acceptBinary whether binary data is accepted, the server may still reply with JSON
+     */
+    public static byte[] getAllData(String server, boolean acceptBinary) throws Exception {
 
-        Map<String, String> params = new HashMap<>(8);
-        HttpClient.HttpResult result = HttpClient.httpGet("http://" + server + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL, new ArrayList<>(), params);
+        HttpClient.HttpBytesResult result = HttpClient.httpGetLargeBytes("http://" + server
+                + RunningConfig.getContextPath() + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL,
+            getDataHeaders(acceptBinary), StringUtils.EMPTY);
 
         if (HttpURLConnection.HTTP_OK == result.code) {
-            return result.content.getBytes();
+            return result.content;
         }
 
         throw new IOException("failed to req API: " + "http://" + server
             + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL + ". code: "
-            + result.code + " msg: " + result.content);
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL + ". code: "
+            + result.code + " msg: " + new String(result.content, StandardCharsets.UTF_8));
     }
 
+    private static Map<String, String> getDataHeaders(boolean acceptBinary) {
+        Map<String, String> headers = new HashMap<>(8);
+        if (acceptBinary) {
+            headers.put(HttpHeaders.ACCEPT, BinarySerializer.CONTENT_TYPE + ", */*");
+        }
+        return headers;
+    }
+
+    /**
+     * Sync data encoded by {@link BinarySerializer}
+     *
+     * @return result of the request, code 415 if the server does not accept binary data
+     */
+    public static HttpClient.HttpResult syncBinaryData(byte[] data, String curServer) {
+        Map<String, String> headers = new HashMap<>(8);
+
+        headers.put(CommonConstants.CLIENT_VERSION_HEADER, VersionUtils.VERSION);
+        headers.put(CommonConstants.USER_AGENT_HEADER, UtilsAndCommons.SERVER_VERSION);
+        headers.put("Connection", "Keep-Alive");
+
+        HttpClient.HttpResult result = HttpClient.httpPutLarge("http://" + curServer
+                + RunningConfig.getContextPath() + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_ON_SYNC_URL,
+            headers, data, BinarySerializer.CONTENT_TYPE);
+
+        if (HttpURLConnection.HTTP_OK != result.code && HttpURLConnection.HTTP_NOT_MODIFIED != result.code
+            && HttpURLConnection.HTTP_UNSUPPORTED_TYPE != result.code) {
+            log.warn("failed to req API: {}, code: {}, msg: {}", "http://" + curServer
+                + RunningConfig.getContextPath() + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_ON_SYNC_URL,
+                result.code, result.content);
+        }
+        return result;
+    }
+
+
+    /**
+     * Forward client beats to the server responsible for their services
+     *
+     * @return result of the request, code 501 or 404 if the server does not support batch beats
+     */
+    public static HttpClient.HttpResult batchBeat(String namespaceId, List<RsInfo> beats, String curServer)
+        throws Exception {
+        String url = "http://" + curServer + RunningConfig.getContextPath() + UtilsAndCommons.NACOS_NAMING_CONTEXT
+            + BATCH_BEAT_URL + "?namespaceId=" + URLEncoder.encode(namespaceId, "UTF-8");
+        byte[] body = ("beats=" + URLEncoder.encode(JSON.toJSONString(beats), "UTF-8")).getBytes(StandardCharsets.UTF_8);
+
+        HttpClient.HttpResult result = HttpClient.httpPutLarge(url, peerHeaders(), body, FORM_CONTENT_TYPE);
+        if (HttpURLConnection.HTTP_OK != result.code) {
+            log.warn("failed to req API: {}, code: {}, msg: {}", url, result.code, result.content);
+        }
+        return result;
+    }
+
+    /**
+     * Forward a client beat to a server not supporting batch beats
+     */
+    public static HttpClient.HttpResult beat(String namespaceId, RsInfo beat, String curServer) throws Exception {
+        String url = "http://" + curServer + RunningConfig.getContextPath() + UtilsAndCommons.NACOS_NAMING_CONTEXT
+            + BEAT_URL + "?namespaceId=" + URLEncoder.encode(namespaceId, "UTF-8")
+            + "&serviceName=" + URLEncoder.encode(beat.getServiceName(), "UTF-8");
+        byte[] body = ("beat=" + URLEncoder.encode(JSON.toJSONString(beat), "UTF-8")).getBytes(StandardCharsets.UTF_8);
+
+        HttpClient.HttpResult result = HttpClient.httpPutLarge(url, peerHeaders(), body, FORM_CONTENT_TYPE);
+        if (HttpURLConnection.HTTP_OK != result.code) {
+            log.warn("failed to req API: {}, code: {}, msg: {}", url, result.code, result.content);
+        }
+        return result;
+    }
+
+    private static Map<String, String> peerHeaders() {
+        Map<String, String> headers = new HashMap<>(8);
+        headers.put(CommonConstants.CLIENT_VERSION_HEADER, VersionUtils.VERSION);
+        headers.put(CommonConstants.USER_AGENT_HEADER, UtilsAndCommons.SERVER_VERSION);
+        headers.put("Connection", "Keep-Alive");
+        return headers;
+    }
 
     public static boolean syncData(byte[] data, String curServer) {
         Map<String, String> headers = new HashMap<>(128);
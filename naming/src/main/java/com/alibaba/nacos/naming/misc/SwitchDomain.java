@@ -38,6 +38,21 @@ public class SwitchDomain implements Record, Cloneable {
 
     private long defaultCacheMillis = TimeUnit.SECONDS.toMillis(3);
 
+    /**
+     * Changes of a service within this window are merged into one push
+     */
+    private long pushMergeWindowMillis = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * Versions of each instance list kept to answer clients with the changed instances only, 0 to disable
+     */
+    private int instanceDeltaHistorySize = 8;
+
+    /**
+     * Virtual nodes of each server weight on the Distro hash ring, 0 to map services by hash modulo server count
+     */
+    private int distroVirtualNodes = 0;
+
     private float distroThreshold = 0.7F;
 
     private boolean healthCheckEnabled = true;
@@ -190,6 +205,30 @@ public class SwitchDomain implements Record, Cloneable {
         this.defaultCacheMillis = defaultCacheMillis;
     }
 
+    public long getPushMergeWindowMillis() {
+        return pushMergeWindowMillis;
+    }
+
+    public void setPushMergeWindowMillis(long pushMergeWindowMillis) {
+        this.pushMergeWindowMillis = pushMergeWindowMillis;
+    }
+
+    public int getInstanceDeltaHistorySize() {
+        return instanceDeltaHistorySize;
+    }
+
+    public void setInstanceDeltaHistorySize(int instanceDeltaHistorySize) {
+        this.instanceDeltaHistorySize = instanceDeltaHistorySize;
+    }
+
+    public int getDistroVirtualNodes() {
+        return distroVirtualNodes;
+    }
+
+    public void setDistroVirtualNodes(int distroVirtualNodes) {
+        this.distroVirtualNodes = distroVirtualNodes;
+    }
+
     public float getDistroThreshold() {
         return distroThreshold;
     }
@@ -32,6 +32,9 @@ public class SwitchEntry {
     public static final String CLIENT_PYTHON = "python";
     public static final String PUSH_CACHE_MILLIS = "pushCacheMillis";
     public static final String DEFAULT_CACHE_MILLIS = "defaultCacheMillis";
+    public static final String PUSH_MERGE_WINDOW_MILLIS = "pushMergeWindowMillis";
+    public static final String INSTANCE_DELTA_HISTORY_SIZE = "instanceDeltaHistorySize";
+    public static final String DISTRO_VIRTUAL_NODES = "distroVirtualNodes";
     public static final String MASTERS = "masters";
     public static final String DISTRO = "distro";
     public static final String CHECK = "check";
@@ -45,6 +48,9 @@ public class SwitchEntry {
     public static final String ENABLE_STANDALONE = "enableStandalone";
     public static final int MIN_PUSH_CACHE_TIME_MIILIS = 10000;
     public static final int MIN_CACHE_TIME_MIILIS = 1000;
+    public static final int MAX_PUSH_MERGE_WINDOW_MIILIS = 10000;
+    public static final int MAX_INSTANCE_DELTA_HISTORY_SIZE = 64;
+    public static final int MAX_DISTRO_VIRTUAL_NODES = 1024;
     public static final int MIN_SERVICE_SYNC_TIME_MIILIS = 5000;
     public static final int MIN_SERVER_SYNC_TIME_MIILIS = 1000;
 
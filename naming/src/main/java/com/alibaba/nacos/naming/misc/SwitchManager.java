@@ -161,6 +161,36 @@ public class SwitchManager implements RecordListener<SwitchDomain> {
                 switchDomain.setDefaultCacheMillis(cacheMillis);
             }
 
+            if (entry.equals(SwitchEntry.PUSH_MERGE_WINDOW_MILLIS)) {
+                Long millis = Long.parseLong(value);
+
+                if (millis < 0 || millis > SwitchEntry.MAX_PUSH_MERGE_WINDOW_MIILIS) {
+                    throw new IllegalArgumentException("pushMergeWindowMillis should be in [0, 10000]: " + millis);
+                }
+
+                switchDomain.setPushMergeWindowMillis(millis);
+            }
+
+            if (entry.equals(SwitchEntry.INSTANCE_DELTA_HISTORY_SIZE)) {
+                int size = Integer.parseInt(value);
+
+                if (size < 0 || size > SwitchEntry.MAX_INSTANCE_DELTA_HISTORY_SIZE) {
+                    throw new IllegalArgumentException("instanceDeltaHistorySize should be in [0, 64]: " + size);
+                }
+
+                switchDomain.setInstanceDeltaHistorySize(size);
+            }
+
+            if (entry.equals(SwitchEntry.DISTRO_VIRTUAL_NODES)) {
+                int virtualNodes = Integer.parseInt(value);
+
+                if (virtualNodes < 0 || virtualNodes > SwitchEntry.MAX_DISTRO_VIRTUAL_NODES) {
+                    throw new IllegalArgumentException("distroVirtualNodes should be in [0, 1024]: " + virtualNodes);
+                }
+
+                switchDomain.setDistroVirtualNodes(virtualNodes);
+            }
+
             if (entry.equals(SwitchEntry.MASTERS)) {
                 List<String> masters = Arrays.asList(value.split(","));
                 switchDomain.setMasters(masters);
@@ -303,6 +333,9 @@ public class SwitchManager implements RecordListener<SwitchDomain> {
         switchDomain.setDefaultPushCacheMillis(newSwitchDomain.getDefaultPushCacheMillis());
         switchDomain.setClientBeatInterval(newSwitchDomain.getClientBeatInterval());
         switchDomain.setDefaultCacheMillis(newSwitchDomain.getDefaultCacheMillis());
+        switchDomain.setPushMergeWindowMillis(newSwitchDomain.getPushMergeWindowMillis());
+        switchDomain.setInstanceDeltaHistorySize(newSwitchDomain.getInstanceDeltaHistorySize());
+        switchDomain.setDistroVirtualNodes(newSwitchDomain.getDistroVirtualNodes());
         switchDomain.setDistroThreshold(newSwitchDomain.getDistroThreshold());
         switchDomain.setHealthCheckEnabled(newSwitchDomain.isHealthCheckEnabled());
         switchDomain.setAutoChangeHealthCheckEnabled(newSwitchDomain.isAutoChangeHealthCheckEnabled());
@@ -16,14 +16,18 @@
 package com.alibaba.nacos.naming.monitor;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.ImmutableTag;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Metrics Monitor
@@ -41,6 +45,28 @@ public class MetricsMonitor {
     private static AtomicLong leaderStatus = new AtomicLong();
     private static AtomicInteger totalPush = new AtomicInteger();
     private static AtomicInteger failedPush = new AtomicInteger();
+    private static AtomicInteger pushPending = new AtomicInteger();
+    private static AtomicLong beatDeadlines = new AtomicLong();
+
+    private static final Timer pushLatency = Timer.builder("nacos_timer")
+        .tags("module", "naming", "name", "pushLatency")
+        .publishPercentileHistogram()
+        .register(Metrics.globalRegistry);
+
+    private static final DistributionSummary pushQueueDepth = DistributionSummary.builder("nacos_summary")
+        .tags("module", "naming", "name", "pushQueueDepth")
+        .publishPercentileHistogram()
+        .register(Metrics.globalRegistry);
+
+    private static final Timer beatExpiryLag = Timer.builder("nacos_timer")
+        .tags("module", "naming", "name", "beatExpiryLag")
+        .publishPercentileHistogram()
+        .register(Metrics.globalRegistry);
+
+    private static final Timer instanceListBuild = Timer.builder("nacos_timer")
+        .tags("module", "naming", "name", "instanceListBuild")
+        .publishPercentileHistogram()
+        .register(Metrics.globalRegistry);
 
     static {
         List<Tag> tags = new ArrayList<Tag>();
@@ -92,6 +118,16 @@ public class MetricsMonitor {
         tags.add(new ImmutableTag("module", "naming"));
         tags.add(new ImmutableTag("name", "failedPush"));
         Metrics.gauge("nacos_monitor", tags, failedPush);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", "pushPending"));
+        Metrics.gauge("nacos_monitor", tags, pushPending);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", "beatDeadlines"));
+        Metrics.gauge("nacos_monitor", tags, beatDeadlines);
     }
 
     public static AtomicInteger getMysqlHealthCheckMonitor() {
@@ -134,6 +170,86 @@ public class MetricsMonitor {
         return failedPush;
     }
 
+    public static AtomicInteger getPushPendingMonitor() {
+        return pushPending;
+    }
+
+    /**
+     * Heartbeat deadlines of ephemeral instances waiting in the wheel
+     */
+    public static AtomicLong getBeatDeadlinesMonitor() {
+        return beatDeadlines;
+    }
+
+    /**
+     * Time from the heartbeat deadline of an instance to the instance being marked unhealthy
+     */
+    public static Timer getBeatExpiryLagTimer() {
+        return beatExpiryLag;
+    }
+
+    /**
+     * Time to build an instance list missing from the cache of the instance list queries
+     */
+    public static Timer getInstanceListBuildTimer() {
+        return instanceListBuild;
+    }
+
+    /**
+     * Time from the first merged change of a service to the end of its push fan-out
+     */
+    public static Timer getPushLatencyTimer() {
+        return pushLatency;
+    }
+
+    /**
+     * Fan-outs waiting for a push thread, sampled whenever a fan-out is queued
+     */
+    public static DistributionSummary getPushQueueDepthSummary() {
+        return pushQueueDepth;
+    }
+
+    /**
+     * Register a gauge of the Distro replication to a server
+     */
+    public static <T> void registerDistroSyncMonitor(String name, String server, T obj, ToDoubleFunction<T> f) {
+        List<Tag> tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", name));
+        tags.add(new ImmutableTag("server", server));
+        Metrics.gauge("nacos_monitor", tags, obj, f);
+    }
+
+    /**
+     * Remove a gauge of the Distro replication to a server
+     */
+    public static void removeDistroSyncMonitor(String name, String server) {
+        for (Gauge gauge : Metrics.globalRegistry.find("nacos_monitor")
+            .tags("module", "naming", "name", name, "server", server).gauges()) {
+            Metrics.globalRegistry.remove(gauge);
+        }
+    }
+
+    public static Counter getPushCacheHitCounter() {
+        return Metrics.counter("nacos_counter",
+            "module", "naming", "name", "pushCacheHit");
+    }
+
+    public static Counter getPushCacheMissCounter() {
+        return Metrics.counter("nacos_counter",
+            "module", "naming", "name", "pushCacheMiss");
+    }
+
+    public static Counter getInstanceListCacheHitCounter() {
+        return Metrics.counter("nacos_counter",
+            "module", "naming", "name", "instanceListCacheHit");
+    }
+
+    public static Counter getInstanceListCacheMissCounter() {
+        return Metrics.counter("nacos_counter",
+            "module", "naming", "name", "instanceListCacheMiss");
+    }
+
     public static Counter getDiskException() {
         return Metrics.counter("nacos_exception",
             "module", "naming", "name", "disk");
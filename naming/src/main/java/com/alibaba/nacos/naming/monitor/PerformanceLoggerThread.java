@@ -18,6 +18,7 @@ package com.alibaba.nacos.naming.monitor;
 import com.alibaba.nacos.naming.consistency.persistent.raft.RaftCore;
 import com.alibaba.nacos.naming.consistency.persistent.raft.RaftPeer;
 import com.alibaba.nacos.naming.core.ServiceManager;
+import com.alibaba.nacos.naming.healthcheck.HealthCheckReactor;
 import com.alibaba.nacos.naming.push.PushService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -95,6 +96,7 @@ public class PerformanceLoggerThread {
 
         MetricsMonitor.getTotalPushMonitor().set(pushService.getTotalPush());
         MetricsMonitor.getFailedPushMonitor().set(pushService.getFailedPushCount());
+        MetricsMonitor.getBeatDeadlinesMonitor().set(HealthCheckReactor.getBeatDeadlineCount());
 
         if (raftCore.isLeader()) {
             MetricsMonitor.getLeaderStatusMonitor().set(1);
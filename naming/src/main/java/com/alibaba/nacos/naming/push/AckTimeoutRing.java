@@ -0,0 +1,78 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.push;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Ring of preallocated slots tracking the pushes waiting for ack.
+ * <p>
+ * An entry added now is handed to the expire callback after {@code timeoutTicks} calls of {@link #tick(Consumer)},
+ * the callback decides whether it was acked in the meantime. Slots keep their capacity after being emptied, so
+ * tracking a push allocates nothing once the ring is warmed up. Not thread safe, the ring is only used by the push
+ * receiver thread.
+ *
+ * @author nacos
+ */
+class AckTimeoutRing<T> {
+
+    private final List<T>[] slots;
+
+    private int cursor;
+
+    @SuppressWarnings("unchecked")
+    AckTimeoutRing(int timeoutTicks, int slotCapacity) {
+        if (timeoutTicks <= 0) {
+            throw new IllegalArgumentException("timeoutTicks must be positive: " + timeoutTicks);
+        }
+        slots = new List[timeoutTicks + 1];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new ArrayList<>(slotCapacity);
+        }
+    }
+
+    void add(T entry) {
+        slots[(cursor + slots.length - 1) % slots.length].add(entry);
+    }
+
+    /**
+     * Advance the ring by one tick and expire the entries of the slot reached
+     *
+     * @param expireCallback called for each expired entry
+     * @return number of expired entries
+     */
+    int tick(Consumer<T> expireCallback) {
+        cursor = (cursor + 1) % slots.length;
+        List<T> slot = slots[cursor];
+        int size = slot.size();
+        for (int i = 0; i < size; i++) {
+            expireCallback.accept(slot.get(i));
+        }
+        // entries added by the callback go to another slot, so the whole slot can be dropped
+        slot.clear();
+        return size;
+    }
+
+    int size() {
+        int size = 0;
+        for (List<T> slot : slots) {
+            size += slot.size();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.push;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONAware;
+import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.misc.GlobalExecutor;
+import com.alibaba.nacos.naming.monitor.MetricsMonitor;
+import com.alibaba.nacos.naming.selector.Selector;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of the instance lists served to the querying clients.
+ * <p>
+ * Lists are grouped per service and keyed by everything the list depends on (clusters, healthyOnly, agent type, the
+ * client ip if the service has a selector), so polling clients of an unchanged service share one built list. An entry
+ * is only served while the service checksum and selector are the ones it was built from, and a service's entries are
+ * dropped whenever the service changes, since health changes do not always change the checksum.
+ * <p>
+ * The JSON of the hosts of an entry is also built once, see {@link Entry#getSerializedHosts()}, so a hit does not
+ * serialize the instances again.
+ *
+ * @author nacos
+ */
+@Component
+public class InstanceListCache {
+
+    private static final long EXPIRE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * labels of the client ip may change without any change of the service, the cmdb events are polled as often
+     */
+    private static final long SELECTED_EXPIRE_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * selected lists are cached per client ip, stop caching new ones for a service beyond this
+     */
+    private static final int MAX_ENTRIES_PER_SERVICE = 256;
+
+    /**
+     * serviceKey -> lists of the current service version
+     */
+    private final ConcurrentMap<String, ServiceEntries> services = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        GlobalExecutor.schedule(() -> expire(System.currentTimeMillis() - EXPIRE_MILLIS),
+            EXPIRE_MILLIS, EXPIRE_MILLIS);
+    }
+
+    public static class Entry {
+
+        final String checksum;
+
+        final Selector selector;
+
+        final long buildTime;
+
+        final boolean selected;
+
+        /**
+         * the served instances, shared by all the responses so they must not be modified
+         */
+        public final JSONArray hosts;
+
+        /**
+         * whether the service had no instance to serve at all
+         */
+        public final boolean empty;
+
+        private volatile InstanceListHistory.Version version;
+
+        private volatile SerializedHosts serializedHosts;
+
+        /**
+         * @param checksum checksum of the service read before the list was built
+         * @param selector selector of the service read before the list was built
+         */
+        public Entry(String checksum, Selector selector, boolean selected, JSONArray hosts, boolean empty) {
+            this.checksum = checksum;
+            this.selector = selector;
+            this.buildTime = System.currentTimeMillis();
+            this.selected = selected;
+            this.hosts = hosts;
+            this.empty = empty;
+        }
+
+        /**
+         * @return version of the hosts for the instance list history, computed once per entry
+         */
+        public InstanceListHistory.Version getVersion() {
+            InstanceListHistory.Version current = version;
+            if (current == null) {
+                current = new InstanceListHistory.Version(hosts);
+                version = current;
+            }
+            return current;
+        }
+
+        /**
+         * @return the hosts serialized once per entry, to be put into the responses in place of {@link #hosts}
+         */
+        public SerializedHosts getSerializedHosts() {
+            SerializedHosts current = serializedHosts;
+            if (current == null) {
+                current = new SerializedHosts(hosts.toJSONString());
+                serializedHosts = current;
+            }
+            return current;
+        }
+
+        boolean isValid(Service service) {
+            return checksum.equals(service.getChecksum()) && selector == service.getSelector()
+                && (!selected || System.currentTimeMillis() - buildTime < SELECTED_EXPIRE_MILLIS);
+        }
+    }
+
+    /**
+     * JSON of a list of hosts, written as is by FastJSON, which serializes the pushed data, and by Jackson, which
+     * serializes the HTTP responses.
+     */
+    public static class SerializedHosts implements JSONAware, JsonSerializable {
+
+        private final String json;
+
+        SerializedHosts(String json) {
+            this.json = json;
+        }
+
+        @Override
+        public String toJSONString() {
+            return json;
+        }
+
+        @Override
+        public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeRawValue(json);
+        }
+
+        @Override
+        public void serializeWithType(JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+            throws IOException {
+            gen.writeRawValue(json);
+        }
+
+        @Override
+        public String toString() {
+            return json;
+        }
+    }
+
+    public interface EntryBuilder {
+
+        /**
+         * Build the list on cache miss
+         *
+         * @return the list
+         * @throws Exception
+         */
+        Entry build() throws Exception;
+    }
+
+    /**
+     * Get the list of the current service version, building it on miss.
+     * <p>
+     * A list built concurrently with {@link #invalidate(String)} is put into the detached entries of the old version,
+     * so it can never be served after the invalidation.
+     *
+     * @param serviceKey full name of the service
+     * @param listKey    key of the list within the service
+     * @param service    the service
+     */
+    public Entry get(String serviceKey, String listKey, Service service, EntryBuilder builder) throws Exception {
+        ServiceEntries serviceEntries = services.computeIfAbsent(serviceKey, key -> new ServiceEntries());
+        serviceEntries.lastAccessTime = System.currentTimeMillis();
+
+        Entry entry = serviceEntries.entries.get(listKey);
+        if (entry != null && entry.isValid(service)) {
+            MetricsMonitor.getInstanceListCacheHitCounter().increment();
+            return entry;
+        }
+
+        MetricsMonitor.getInstanceListCacheMissCounter().increment();
+        long start = System.nanoTime();
+        Entry built = builder.build();
+        MetricsMonitor.getInstanceListBuildTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (entry != null) {
+            serviceEntries.entries.replace(listKey, entry, built);
+        } else if (serviceEntries.entries.size() < MAX_ENTRIES_PER_SERVICE) {
+            serviceEntries.entries.putIfAbsent(listKey, built);
+        }
+        return built;
+    }
+
+    public void invalidate(String serviceKey) {
+        services.remove(serviceKey);
+    }
+
+    void expire(long expireBefore) {
+        services.values().removeIf(serviceEntries -> serviceEntries.lastAccessTime < expireBefore);
+    }
+
+    int size() {
+        return services.size();
+    }
+
+    private static class ServiceEntries {
+
+        /**
+         * listKey -> list
+         */
+        final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>(4);
+
+        volatile long lastAccessTime = System.currentTimeMillis();
+    }
+}
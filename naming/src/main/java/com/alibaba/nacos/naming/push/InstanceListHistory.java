@@ -0,0 +1,210 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.push;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.nacos.common.utils.Md5Utils;
+import com.alibaba.nacos.naming.misc.GlobalExecutor;
+import com.alibaba.nacos.naming.misc.SwitchDomain;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recent versions of the instance lists served to clients, used to answer a client holding one of them with the
+ * changed instances only.
+ * <p>
+ * A history is kept for each view of a service (clusters, healthyOnly, agent type), a version being identified by
+ * the checksum of its instances. Only the digest of each instance is kept, the changed instances are taken from the
+ * current list.
+ *
+ * @author nacos
+ */
+@Component
+public class InstanceListHistory {
+
+    private static final long EXPIRE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private SwitchDomain switchDomain;
+
+    private final ConcurrentMap<String, History> histories = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        GlobalExecutor.schedule(() -> expire(System.currentTimeMillis() - EXPIRE_MILLIS),
+            EXPIRE_MILLIS, EXPIRE_MILLIS);
+    }
+
+    public boolean isEnabled() {
+        return switchDomain.getInstanceDeltaHistorySize() > 0;
+    }
+
+    /**
+     * Record the current instance list of a view and compare it with the version held by the client
+     *
+     * @param historyKey   key of the view
+     * @param hosts        current instances
+     * @param baseChecksum checksum of the instances held by the client, may be empty
+     * @return checksum of the current instances and the changes since the base version, if it is still known
+     */
+    public Delta diff(String historyKey, JSONArray hosts, String baseChecksum) {
+        return diff(historyKey, hosts, new Version(hosts), baseChecksum);
+    }
+
+    /**
+     * Same as {@link #diff(String, JSONArray, String)}, with the version of the current instances already computed
+     */
+    public Delta diff(String historyKey, JSONArray hosts, Version current, String baseChecksum) {
+        History history = histories.computeIfAbsent(historyKey, key -> new History());
+
+        Version base = history.record(current, switchDomain.getInstanceDeltaHistorySize(), baseChecksum);
+        if (base == null) {
+            return new Delta(current.checksum);
+        }
+
+        JSONArray changedHosts = new JSONArray();
+        for (Object host : hosts) {
+            String key = getHostKey((JSONObject) host);
+            if (!current.digests.get(key).equals(base.digests.get(key))) {
+                changedHosts.add(host);
+            }
+        }
+        List<String> removedHosts = new ArrayList<>();
+        for (String key : base.digests.keySet()) {
+            if (!current.digests.containsKey(key)) {
+                removedHosts.add(key);
+            }
+        }
+
+        // a large delta saves nothing
+        if ((changedHosts.size() + removedHosts.size()) * 2 > hosts.size()) {
+            return new Delta(current.checksum);
+        }
+        return new Delta(current.checksum, base.checksum, changedHosts, removedHosts);
+    }
+
+    /**
+     * Key of an instance within an instance list, the client keys the instances the same way
+     */
+    public static String getHostKey(JSONObject host) {
+        return host.getString("ip") + ":" + host.getIntValue("port") + ":" + host.getString("clusterName");
+    }
+
+    void expire(long expireBefore) {
+        histories.values().removeIf(history -> history.lastAccessTime < expireBefore);
+    }
+
+    int size() {
+        return histories.size();
+    }
+
+    public static class Delta {
+
+        public final String checksum;
+
+        public final String baseChecksum;
+
+        public final JSONArray changedHosts;
+
+        public final List<String> removedHosts;
+
+        Delta(String checksum) {
+            this(checksum, null, null, null);
+        }
+
+        Delta(String checksum, String baseChecksum, JSONArray changedHosts, List<String> removedHosts) {
+            this.checksum = checksum;
+            this.baseChecksum = baseChecksum;
+            this.changedHosts = changedHosts;
+            this.removedHosts = removedHosts;
+        }
+
+        public boolean isDelta() {
+            return baseChecksum != null;
+        }
+    }
+
+    /**
+     * Digests of an instance list
+     */
+    public static class Version {
+
+        final String checksum;
+
+        /**
+         * host key -> digest of the host
+         */
+        final Map<String, String> digests;
+
+        public Version(JSONArray hosts) {
+            digests = new HashMap<>(hosts.size() * 2);
+            for (Object host : hosts) {
+                JSONObject hostObj = (JSONObject) host;
+                digests.put(getHostKey(hostObj),
+                    Md5Utils.getMD5(hostObj.toJSONString().getBytes(StandardCharsets.UTF_8)));
+            }
+
+            StringBuilder sb = new StringBuilder(digests.size() * 32);
+            for (String digest : new TreeMap<>(digests).values()) {
+                sb.append(digest);
+            }
+            checksum = Md5Utils.getMD5(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static class History {
+
+        /**
+         * oldest first
+         */
+        private final LinkedList<Version> versions = new LinkedList<>();
+
+        private volatile long lastAccessTime = System.currentTimeMillis();
+
+        /**
+         * @return the base version if still known, may be the current one
+         */
+        synchronized Version record(Version current, int maxSize, String baseChecksum) {
+            lastAccessTime = System.currentTimeMillis();
+
+            if (versions.isEmpty() || !versions.getLast().checksum.equals(current.checksum)) {
+                versions.addLast(current);
+                while (versions.size() > maxSize) {
+                    versions.removeFirst();
+                }
+            }
+
+            if (baseChecksum == null || baseChecksum.isEmpty()) {
+                return null;
+            }
+            for (Iterator<Version> iterator = versions.descendingIterator(); iterator.hasNext(); ) {
+                Version version = iterator.next();
+                if (version.checksum.equals(baseChecksum)) {
+                    return version;
+                }
+            }
+            return null;
+        }
+    }
+}
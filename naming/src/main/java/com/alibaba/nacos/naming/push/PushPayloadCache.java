@@ -0,0 +1,108 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.push;
+
+import com.alibaba.nacos.naming.monitor.MetricsMonitor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of encoded push payloads shared by all subscribers of a service.
+ * <p>
+ * Payloads are grouped per service and keyed by everything the payload depends on (clusters, agent type,
+ * service checksum, instances held by the subscriber, ...), so each version of a service is serialized and compressed once no matter how many
+ * subscribers receive it. A service's payloads are dropped whenever the service changes.
+ *
+ * @author nacos
+ */
+public class PushPayloadCache {
+
+    public static class Payload {
+
+        final byte[] bytes;
+
+        final Map<String, Object> data;
+
+        final long lastRefTime;
+
+        /**
+         * checksum of the instances the subscribers hold once they applied the payload, null if not tracked
+         */
+        final String hostsChecksum;
+
+        Payload(byte[] bytes, Map<String, Object> data, long lastRefTime) {
+            this(bytes, data, lastRefTime, null);
+        }
+
+        Payload(byte[] bytes, Map<String, Object> data, long lastRefTime, String hostsChecksum) {
+            this.bytes = bytes;
+            this.data = data;
+            this.lastRefTime = lastRefTime;
+            this.hostsChecksum = hostsChecksum;
+        }
+    }
+
+    public interface PayloadBuilder {
+
+        /**
+         * Build the payload on cache miss
+         *
+         * @return payload, null if nothing should be pushed
+         * @throws Exception
+         */
+        Payload build() throws Exception;
+    }
+
+    /**
+     * serviceKey -> (payloadKey -> payload)
+     */
+    private final ConcurrentMap<String, ConcurrentMap<String, Payload>> payloads = new ConcurrentHashMap<>();
+
+    /**
+     * Get the payload of the current service version, building it on miss.
+     * <p>
+     * A payload built concurrently with {@link #invalidate(String)} is put into the detached map of the old version,
+     * so it can never be served after the invalidation.
+     */
+    public Payload get(String serviceKey, String payloadKey, PayloadBuilder builder) throws Exception {
+        ConcurrentMap<String, Payload> servicePayloads = payloads.computeIfAbsent(serviceKey,
+            key -> new ConcurrentHashMap<>(4));
+        Payload payload = servicePayloads.get(payloadKey);
+        if (payload != null) {
+            MetricsMonitor.getPushCacheHitCounter().increment();
+            return payload;
+        }
+        MetricsMonitor.getPushCacheMissCounter().increment();
+        payload = builder.build();
+        if (payload != null) {
+            Payload old = servicePayloads.putIfAbsent(payloadKey, payload);
+            if (old != null) {
+                return old;
+            }
+        }
+        return payload;
+    }
+
+    public void invalidate(String serviceKey) {
+        payloads.remove(serviceKey);
+    }
+
+    public int size() {
+        return payloads.size();
+    }
+}
@@ -20,7 +20,9 @@ import com.alibaba.nacos.api.naming.utils.NamingUtils;
 import com.alibaba.nacos.naming.core.Service;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
+import com.alibaba.nacos.naming.monitor.MetricsMonitor;
 import com.alibaba.nacos.naming.pojo.Subscriber;
+import com.alibaba.nacos.naming.selector.NoneSelector;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -35,9 +37,11 @@ import org.springframework.stereotype.Component;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.*;
@@ -54,10 +58,20 @@ public class PushService implements ApplicationContextAware, ApplicationListener
     @Autowired
     private SwitchDomain switchDomain;
 
+    @Autowired
+    private InstanceListCache instanceListCache;
+
     private ApplicationContext applicationContext;
 
     private static final long ACK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10L);
 
+    private static final long ACK_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(500L);
+
+    /**
+     * max packets sent in a row before the receiver thread reads the acks again
+     */
+    private static final int SEND_BATCH_SIZE = 256;
+
     private static final int MAX_RETRY_TIMES = 1;
 
     private static final ConcurrentMap<String, Receiver.AckEntry> ackMap
@@ -66,8 +80,6 @@ public class PushService implements ApplicationContextAware, ApplicationListener
     private static final ConcurrentMap<String, ConcurrentMap<String, PushClient>> clientMap
         = new ConcurrentHashMap<String, ConcurrentMap<String, PushClient>>();
 
-    private static final ConcurrentHashMap<String, Long> udpSendTimeMap = new ConcurrentHashMap<String, Long>();
-
     public static volatile ConcurrentHashMap<String, Long> pushCostMap = new ConcurrentHashMap<String, Long>();
 
     private static int totalPush = 0;
@@ -76,9 +88,27 @@ public class PushService implements ApplicationContextAware, ApplicationListener
 
     private static final ConcurrentHashMap<String, Long> lastPushMillisMap = new ConcurrentHashMap<>();
 
-    private static DatagramSocket udpSocket;
+    private static DatagramChannel udpChannel;
+
+    private static Selector selector;
+
+    /**
+     * packets waiting to be sent by the receiver thread, which owns the channel and the ack timeout ring
+     */
+    private static final Queue<Receiver.AckEntry> sendQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * serviceKey -> nano time of the first change not pushed yet, changes of a service are merged while pending
+     */
+    private static final ConcurrentMap<String, Long> pendingChanges = new ConcurrentHashMap<>();
+
+    /**
+     * services with a push task queued or running, a service is fanned out by one task at a time
+     */
+    private static final Set<String> inFlightPushes = ConcurrentHashMap.newKeySet();
+
+    private static final PushPayloadCache payloadCache = new PushPayloadCache();
 
-    private static final Map<String, Future> futureMap = new ConcurrentHashMap<>();
     private static final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
@@ -96,9 +126,26 @@ public class PushService implements ApplicationContextAware, ApplicationListener
         return t;
     });
 
+    /**
+     * Fan-outs run concurrently on at most PUSH_CONCURRENCY threads, the service changed earliest goes first
+     */
+    private static final int PUSH_CONCURRENCY = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final ThreadPoolExecutor pushExecutor = new ThreadPoolExecutor(PUSH_CONCURRENCY, PUSH_CONCURRENCY,
+        0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), runnable -> {
+        Thread t = new Thread(runnable);
+        t.setDaemon(true);
+        t.setName("com.alibaba.nacos.naming.push.fanOut");
+        return t;
+    });
+
     static {
         try {
-            udpSocket = new DatagramSocket();
+            udpChannel = DatagramChannel.open();
+            udpChannel.configureBlocking(false);
+            udpChannel.bind(null);
+            selector = Selector.open();
+            udpChannel.register(selector, SelectionKey.OP_READ);
 
             Receiver receiver = new Receiver();
 
@@ -118,8 +165,8 @@ public class PushService implements ApplicationContextAware, ApplicationListener
                 }
             }, 0, 20, TimeUnit.SECONDS);
 
-        } catch (SocketException e) {
-            log.error("[NACOS-PUSH] failed to init push service");
+        } catch (IOException e) {
+            log.error("[NACOS-PUSH] failed to init push service", e);
         }
     }
 
@@ -131,19 +178,62 @@ public class PushService implements ApplicationContextAware, ApplicationListener
     @Override
     public void onApplicationEvent(ServiceChangeEvent event) {
         Service service = event.getService();
-        String serviceName = service.getName();
-        String namespaceId = service.getNamespaceId();
+        String serviceKey = UtilsAndCommons.assembleFullServiceName(service.getNamespaceId(), service.getName());
+
+        udpSenderScheduledExecutorService.schedule(() -> schedulePush(service, serviceKey),
+            switchDomain.getPushMergeWindowMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queue a push task for the pending changes of the service, unless one is queued or running: that task queues the
+     * next one when it finishes.
+     */
+    private void schedulePush(Service service, String serviceKey) {
+        Long changeNanos = pendingChanges.get(serviceKey);
+        if (changeNanos == null || !inFlightPushes.add(serviceKey)) {
+            return;
+        }
+        // must use execute, the priority queue only accepts PushTask
+        try {
+            pushExecutor.execute(new PushTask(service, serviceKey, changeNanos));
+        } catch (RejectedExecutionException e) {
+            inFlightPushes.remove(serviceKey);
+            throw e;
+        }
+        MetricsMonitor.getPushPendingMonitor().set(pendingChanges.size());
+        MetricsMonitor.getPushQueueDepthSummary().record(pushExecutor.getQueue().size());
+    }
 
-        Future future = udpSenderScheduledExecutorService.schedule(() -> {
+    private class PushTask implements Runnable, Comparable<PushTask> {
+
+        private final Service service;
+
+        private final String serviceKey;
+
+        private final long changeNanos;
+
+        PushTask(Service service, String serviceKey, long changeNanos) {
+            this.service = service;
+            this.serviceKey = serviceKey;
+            this.changeNanos = changeNanos;
+        }
+
+        @Override
+        public void run() {
+            // changes from now on are pushed by the next task
+            pendingChanges.remove(serviceKey);
+            MetricsMonitor.getPushPendingMonitor().set(pendingChanges.size());
+
+            String serviceName = service.getName();
             try {
                 log.info(serviceName + " is changed, add it to push queue.");
-                ConcurrentMap<String, PushClient> clients = clientMap.get(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName));
+                ConcurrentMap<String, PushClient> clients = clientMap.get(serviceKey);
                 if (MapUtils.isEmpty(clients)) {
                     return;
                 }
 
-                Map<String, Object> cache = new HashMap<>(16);
                 long lastRefTime = System.nanoTime();
+                List<Receiver.AckEntry> ackEntries = new ArrayList<>(clients.size());
                 for (PushClient pushClient : clients.values()) {
                     if (pushClient.zombie()) {
                         log.debug("client is zombie: " + pushClient.toString());
@@ -152,44 +242,42 @@ public class PushService implements ApplicationContextAware, ApplicationListener
                         continue;
                     }
 
-                    Receiver.AckEntry ackEntry;
+                    Receiver.AckEntry ackEntry = null;
                     log.debug("push serviceName: {} to client: {}", serviceName, pushClient.toString());
-                    String key = getPushCacheKey(serviceName, pushClient.getIp(), pushClient.getAgent());
-                    byte[] compressData = null;
-                    Map<String, Object> data = null;
-                    if (switchDomain.getDefaultPushCacheMillis() >= 20000 && cache.containsKey(key)) {
-                        org.javatuples.Pair pair = (org.javatuples.Pair) cache.get(key);
-                        compressData = (byte[]) (pair.getValue0());
-                        data = (Map<String, Object>) pair.getValue1();
-
-                        log.debug("[PUSH-CACHE] cache hit: {}:{}", serviceName, pushClient.getAddrStr());
-                    }
-
-                    if (compressData != null) {
-                        ackEntry = prepareAckEntry(pushClient, compressData, data, lastRefTime);
-                    } else {
-                        ackEntry = prepareAckEntry(pushClient, prepareHostsData(pushClient), lastRefTime);
-                        if (ackEntry != null) {
-                            cache.put(key, new org.javatuples.Pair<>(ackEntry.origin.getData(), ackEntry.data));
+                    // each version of the payload is serialized and compressed once and shared by all subscribers
+                    PushPayloadCache.Payload payload = payloadCache.get(serviceKey,
+                        getPayloadKey(service, pushClient), () -> preparePayload(pushClient, lastRefTime));
+                    if (payload != null) {
+                        if (payload.hostsChecksum != null) {
+                            pushClient.setHostsChecksum(payload.hostsChecksum);
                         }
+                        ackEntry = prepareAckEntry(pushClient, payload.bytes, payload.data, payload.lastRefTime);
                     }
 
                     log.info("serviceName: {} changed, schedule push for: {}, agent: {}, key: {}",
                         pushClient.getServiceName(), pushClient.getAddrStr(), pushClient.getAgent(), (ackEntry == null ? null : ackEntry.key));
 
-                    udpPush(ackEntry);
+                    if (ackEntry == null) {
+                        log.error("[NACOS-PUSH] ackEntry is null.");
+                    } else {
+                        ackEntries.add(ackEntry);
+                    }
                 }
+                udpPush(ackEntries);
+                MetricsMonitor.getPushLatencyTimer().record(System.nanoTime() - changeNanos, TimeUnit.NANOSECONDS);
             } catch (Exception e) {
                 log.error("[NACOS-PUSH] failed to push serviceName: {} to client, error: {}", serviceName, e);
-
             } finally {
-                futureMap.remove(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName));
+                inFlightPushes.remove(serviceKey);
+                // changes made during this fan-out were not queued, push them now
+                schedulePush(service, serviceKey);
             }
+        }
 
-        }, 1000, TimeUnit.MILLISECONDS);
-
-        futureMap.put(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName), future);
-
+        @Override
+        public int compareTo(PushTask o) {
+            return Long.compare(changeNanos, o.changeNanos);
+        }
     }
 
     public int getTotalPush() {
@@ -200,7 +288,7 @@ public class PushService implements ApplicationContextAware, ApplicationListener
         PushService.totalPush = totalPush;
     }
 
-    public void addClient(String namespaceId,
+    public PushClient addClient(String namespaceId,
                           String serviceName,
                           String clusters,
                           String agent,
@@ -217,10 +305,13 @@ public class PushService implements ApplicationContextAware, ApplicationListener
             dataSource,
             tenant,
             app);
-        addClient(client);
+        return addClient(client);
     }
 
-    public void addClient(PushClient client) {
+    /**
+     * @return the client stored, may be a previous instance of the same client
+     */
+    public PushClient addClient(PushClient client) {
         // client is stored by key 'serviceName' because notify event is driven by serviceName change
         String serviceKey = UtilsAndCommons.assembleFullServiceName(client.getNamespaceId(), client.getServiceName());
         ConcurrentMap<String, PushClient> clients =
@@ -233,12 +324,15 @@ public class PushService implements ApplicationContextAware, ApplicationListener
         PushClient oldClient = clients.get(client.toString());
         if (oldClient != null) {
             oldClient.refresh();
+            return oldClient;
         } else {
             PushClient res = clients.putIfAbsent(client.toString(), client);
             if (res != null) {
                 log.warn("client: {} already associated with key {}", res.getAddrStr(), res.toString());
+                return res;
             }
             log.debug("client: {} added for serviceName: {}", client.getAddrStr(), client.getServiceName());
+            return client;
         }
     }
 
@@ -291,6 +385,9 @@ public class PushService implements ApplicationContextAware, ApplicationListener
                     clientConcurrentMap.remove(entry1.getKey());
                 }
             }
+            if (clientConcurrentMap.isEmpty()) {
+                payloadCache.invalidate(entry.getKey());
+            }
 
             size += clientConcurrentMap.size();
         }
@@ -327,13 +424,37 @@ public class PushService implements ApplicationContextAware, ApplicationListener
         return serviceName + UtilsAndCommons.CACHE_KEY_SPLITER + agent;
     }
 
+    /**
+     * Key of the push payload within a service, made of everything the payload of
+     * {@link com.alibaba.nacos.naming.controllers.InstanceController} depends on. healthyOnly is always false for pushes.
+     */
+    private String getPayloadKey(Service service, PushClient client) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(client.getClusters())
+            .append(UtilsAndCommons.CACHE_KEY_SPLITER).append(client.getAgentType())
+            .append(UtilsAndCommons.CACHE_KEY_SPLITER).append(service.getChecksum())
+            .append(UtilsAndCommons.CACHE_KEY_SPLITER).append(switchDomain.getPushCacheMillis(service.getName()))
+            // subscribers holding the same version get the same changed instances
+            .append(UtilsAndCommons.CACHE_KEY_SPLITER).append(client.getHostsChecksum());
+        // the selector filters instances by client ip
+        if (service.getSelector() != null && !(service.getSelector() instanceof NoneSelector)) {
+            sb.append(UtilsAndCommons.CACHE_KEY_SPLITER).append(client.getIp());
+        }
+        return sb.toString();
+    }
+
     /**
      * 服务变更时间
      * @param service
      */
     public void serviceChanged(Service service) {
+        // health and metadata changes do not always change the checksum, so drop the payloads on every change
+        String serviceKey = UtilsAndCommons.assembleFullServiceName(service.getNamespaceId(), service.getName());
+        payloadCache.invalidate(serviceKey);
+        instanceListCache.invalidate(serviceKey);
+
         // merge some change events to reduce the push frequency:
-        if (futureMap.containsKey(UtilsAndCommons.assembleFullServiceName(service.getNamespaceId(), service.getName()))) {
+        if (pendingChanges.putIfAbsent(serviceKey, System.nanoTime()) != null) {
             return;
         }
 
@@ -383,11 +504,16 @@ public class PushService implements ApplicationContextAware, ApplicationListener
         private String serviceName;
         private String clusters;
         private final String agent;
+        private final String agentType;
         private String tenant;
         private String app;
         private final InetSocketAddress socketAddr;
         private final DataSource dataSource;
         private Map<String, String[]> params;
+        /**
+         * checksum of the instances the client is known to hold, null if it can not apply changed instances
+         */
+        private volatile String hostsChecksum;
 
         public Map<String, String[]> getParams() {
             return params;
@@ -411,6 +537,11 @@ public class PushService implements ApplicationContextAware, ApplicationListener
             this.serviceName = serviceName;
             this.clusters = clusters;
             this.agent = agent;
+            ClientInfo clientInfo = new ClientInfo(agent);
+            // payloads differ only between java clients since 1.0.0 and the others
+            this.agentType = clientInfo.type == ClientInfo.ClientType.JAVA
+                && clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0
+                ? clientInfo.type.name() : ClientInfo.ClientType.UNKNOWN.name();
             this.socketAddr = socketAddr;
             this.dataSource = dataSource;
             this.tenant = tenant;
@@ -439,6 +570,18 @@ public class PushService implements ApplicationContextAware, ApplicationListener
             return agent;
         }
 
+        public String getAgentType() {
+            return agentType;
+        }
+
+        public String getHostsChecksum() {
+            return hostsChecksum;
+        }
+
+        public void setHostsChecksum(String hostsChecksum) {
+            this.hostsChecksum = hostsChecksum;
+        }
+
         public String getAddrStr() {
             return socketAddr.getAddress().getHostAddress() + ":" + socketAddr.getPort();
         }
@@ -535,38 +678,20 @@ public class PushService implements ApplicationContextAware, ApplicationListener
         return cmd;
     }
 
-    private static Receiver.AckEntry prepareAckEntry(PushClient client, Map<String, Object> data, long lastRefTime) {
+    private static PushPayloadCache.Payload preparePayload(PushClient client, long lastRefTime) throws Exception {
+        Map<String, Object> data = prepareHostsData(client);
         if (MapUtils.isEmpty(data)) {
             log.error("[NACOS-PUSH] pushing empty data for client is not allowed: {}", client);
             return null;
         }
 
-        data.put("lastRefTime", lastRefTime);
-
         // we apply lastRefTime as sequence num for further ack
-        String key = getACKKey(client.getSocketAddr().getAddress().getHostAddress(),
-            client.getSocketAddr().getPort(),
-            lastRefTime);
+        data.put("lastRefTime", lastRefTime);
 
         String dataStr = JSON.toJSONString(data);
-
-        try {
-            byte[] dataBytes = dataStr.getBytes(StandardCharsets.UTF_8);
-            dataBytes = compressIfNecessary(dataBytes);
-
-            DatagramPacket packet = new DatagramPacket(dataBytes, dataBytes.length, client.socketAddr);
-
-            // we must store the key be fore send, otherwise there will be a chance the
-            // ack returns before we put in
-            Receiver.AckEntry ackEntry = new Receiver.AckEntry(key, packet);
-            ackEntry.data = data;
-
-            return ackEntry;
-        } catch (Exception e) {
-            log.error("[NACOS-PUSH] failed to prepare data: {} to client: {}, error: {}",
-                data, client.getSocketAddr(), e);
-            return null;
-        }
+        byte[] dataBytes = compressIfNecessary(dataStr.getBytes(StandardCharsets.UTF_8));
+        // the data source moved the client to the pushed version
+        return new PushPayloadCache.Payload(dataBytes, data, lastRefTime, client.getHostsChecksum());
     }
 
     /**
@@ -574,81 +699,132 @@ public class PushService implements ApplicationContextAware, ApplicationListener
      * @param ackEntry
      * @return
      */
-    private static Receiver.AckEntry udpPush(Receiver.AckEntry ackEntry) {
-        if (ackEntry == null) {
-            log.error("[NACOS-PUSH] ackEntry is null.");
-            return null;
-        }
-
-        if (ackEntry.getRetryTimes() > MAX_RETRY_TIMES) {
-            log.warn("max re-push times reached, retry times {}, key: {}", ackEntry.retryTimes, ackEntry.key);
-            ackMap.remove(ackEntry.key);
-            udpSendTimeMap.remove(ackEntry.key);
-            failedPush += 1;
-            return ackEntry;
-        }
-
-        try {
-            if (!ackMap.containsKey(ackEntry.key)) {
-                totalPush++;
-            }
-            ackMap.put(ackEntry.key, ackEntry);
-            udpSendTimeMap.put(ackEntry.key, System.currentTimeMillis());
-
-            //服务端发送UDP包给客户端(探针)
-            log.info("send udp packet: " + ackEntry.key);
-            udpSocket.send(ackEntry.origin);
-            ackEntry.increaseRetryTime();
-            executorService.schedule(new Retransmitter(ackEntry), TimeUnit.NANOSECONDS.toMillis(ACK_TIMEOUT_NANOS), TimeUnit.MILLISECONDS);
-            return ackEntry;
-        } catch (Exception e) {
-            log.error("[NACOS-PUSH] failed to push data: {} to client: {}, error: {}", ackEntry.data, ackEntry.origin.getAddress().getHostAddress(), e);
-            ackMap.remove(ackEntry.key);
-            udpSendTimeMap.remove(ackEntry.key);
-            failedPush += 1;
-            return null;
+    /**
+     * Hand the packets to the receiver thread, which sends them in batches through the non-blocking channel
+     */
+    private static void udpPush(List<Receiver.AckEntry> ackEntries) {
+        if (ackEntries.isEmpty()) {
+            return;
         }
+        sendQueue.addAll(ackEntries);
+        selector.wakeup();
     }
 
     private static String getACKKey(String host, int port, long lastRefTime) {
         return StringUtils.strip(host) + "," + port + "," + lastRefTime;
     }
 
-    private static class Retransmitter implements Runnable {
-        Receiver.AckEntry ackEntry;
+    public static class Receiver implements Runnable {
 
-        public Retransmitter(Receiver.AckEntry ackEntry) {
-            this.ackEntry = ackEntry;
-        }
+        private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(1024 * 64);
+
+        private final AckTimeoutRing<AckEntry> ackRing = new AckTimeoutRing<>(
+            (int) (ACK_TIMEOUT_NANOS / ACK_TICK_NANOS), 1024);
 
         @Override
         public void run() {
-            if (ackMap.containsKey(ackEntry.key)) {
+            SelectionKey key = udpChannel.keyFor(selector);
+            long nextTick = System.nanoTime() + ACK_TICK_NANOS;
+            while (true) {
+                try {
+                    selector.select(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(nextTick - System.nanoTime())));
+                    selector.selectedKeys().clear();
+
+                    receiveAcks();
+
+                    boolean drained = sendBatch();
+                    // wait for the socket buffer when it is full, otherwise only for acks
+                    key.interestOps(drained ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+
+                    while (System.nanoTime() - nextTick >= 0) {
+                        ackRing.tick(this::ackTimeout);
+                        nextTick += ACK_TICK_NANOS;
+                    }
+                } catch (Throwable e) {
+                    log.error("[NACOS-PUSH] error while sending data or receiving ack data", e);
+                }
+            }
+        }
+
+        /**
+         * @return true if all queued packets are sent
+         */
+        private boolean sendBatch() {
+            for (int i = 0; i < SEND_BATCH_SIZE; i++) {
+                AckEntry ackEntry = sendQueue.peek();
+                if (ackEntry == null) {
+                    return true;
+                }
+                if (!send(ackEntry)) {
+                    return false;
+                }
+                sendQueue.poll();
+            }
+            return sendQueue.isEmpty();
+        }
+
+        /**
+         * @return false if the socket buffer is full and the packet should be sent later
+         */
+        private boolean send(AckEntry ackEntry) {
+            if (ackEntry.getRetryTimes() > MAX_RETRY_TIMES) {
+                log.warn("max re-push times reached, retry times {}, key: {}", ackEntry.retryTimes, ackEntry.key);
+                ackMap.remove(ackEntry.key);
+                failedPush += 1;
+                return true;
+            }
+
+            try {
+                if (!ackMap.containsKey(ackEntry.key)) {
+                    totalPush++;
+                }
+                ackMap.put(ackEntry.key, ackEntry);
+                ackEntry.sendTime = System.currentTimeMillis();
+
+                DatagramPacket packet = ackEntry.origin;
+                ByteBuffer data = ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength());
+                if (udpChannel.send(data, packet.getSocketAddress()) == 0) {
+                    return false;
+                }
+
+                log.debug("send udp packet: {}", ackEntry.key);
+                ackEntry.increaseRetryTime();
+                ackRing.add(ackEntry);
+            } catch (Exception e) {
+                log.error("[NACOS-PUSH] failed to push data: {} to client: {}, error: {}", ackEntry.data, ackEntry.origin.getAddress().getHostAddress(), e);
+                ackMap.remove(ackEntry.key);
+                failedPush += 1;
+            }
+            return true;
+        }
+
+        private void ackTimeout(AckEntry ackEntry) {
+            if (ackMap.get(ackEntry.key) == ackEntry) {
                 log.info("retry to push data, key: " + ackEntry.key);
-                udpPush(ackEntry);
+                sendQueue.offer(ackEntry);
             }
         }
-    }
 
-    public static class Receiver implements Runnable {
-        @Override
-        public void run() {
+        private void receiveAcks() throws IOException {
             while (true) {
-                byte[] buffer = new byte[1024 * 64];
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                receiveBuffer.clear();
+                InetSocketAddress socketAddress = (InetSocketAddress) udpChannel.receive(receiveBuffer);
+                if (socketAddress == null) {
+                    return;
+                }
+                receiveBuffer.flip();
+                byte[] bytes = new byte[receiveBuffer.remaining()];
+                receiveBuffer.get(bytes);
 
                 try {
-                    udpSocket.receive(packet);
-
-                    String json = new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8).trim();
+                    String json = new String(bytes, StandardCharsets.UTF_8).trim();
                     AckPacket ackPacket = JSON.parseObject(json, AckPacket.class);
 
-                    InetSocketAddress socketAddress = (InetSocketAddress) packet.getSocketAddress();
                     String ip = socketAddress.getAddress().getHostAddress();
                     int port = socketAddress.getPort();
 
                     if (System.nanoTime() - ackPacket.lastRefTime > ACK_TIMEOUT_NANOS) {
-                        log.warn("ack takes too long from {} ack json: {}", packet.getSocketAddress(), json);
+                        log.warn("ack takes too long from {} ack json: {}", socketAddress, json);
                     }
 
                     String ackKey = getACKKey(ip, port, ackPacket.lastRefTime);
@@ -658,15 +834,12 @@ public class PushService implements ApplicationContextAware, ApplicationListener
                             + ", ack json: " + json);
                     }
 
-                    long pushCost = System.currentTimeMillis() - udpSendTimeMap.get(ackKey);
+                    long pushCost = System.currentTimeMillis() - ackEntry.sendTime;
 
                     log.info("received ack: {} from: {}:{}, cost: {} ms, unacked: {}, total push: {}",
                         json, ip, port, pushCost, ackMap.size(), totalPush);
 
                     pushCostMap.put(ackKey, pushCost);
-
-                    udpSendTimeMap.remove(ackKey);
-
                 } catch (Throwable e) {
                     log.error("[NACOS-PUSH] error while receiving ack data", e);
                 }
@@ -692,6 +865,7 @@ public class PushService implements ApplicationContextAware, ApplicationListener
             public DatagramPacket origin;
             private final AtomicInteger retryTimes = new AtomicInteger(0);
             public Map<String, Object> data;
+            private volatile long sendTime;
         }
 
         public static class AckPacket {
@@ -0,0 +1,198 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.selector;
+
+import com.alibaba.nacos.api.cmdb.pojo.PreservedEntityTypes;
+import com.alibaba.nacos.cmdb.service.CmdbReader;
+import com.alibaba.nacos.naming.core.Instance;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of a provider list by the values of the labels of a {@link LabelSelector}.
+ * <p>
+ * For every label the providers are grouped by label value, as bit sets over the positions in the provider list, so a
+ * selection is one map lookup per label and an intersection of the bit sets. The index is built for one provider list
+ * and one version of the CMDB entities; the label values of the provider ips are carried over to the index of the next
+ * provider list as long as the entities have not changed, so only new ips are looked up in CMDB. Nothing is reused if
+ * the CMDB reader does not track the versions of its entities.
+ *
+ * @author nacos
+ */
+class LabelIndex {
+
+    private final String[] labelNames;
+
+    private final List<Instance> providers;
+
+    private final long entityVersion;
+
+    /**
+     * provider ip -> values of the labels, in the order of labelNames
+     */
+    private final Map<String, String[]> ipLabels;
+
+    /**
+     * label position -> (label value -> positions of the providers having it)
+     */
+    private final List<Map<String, BitSet>> valueIndex;
+
+    private LabelIndex(String[] labelNames, List<Instance> providers, long entityVersion,
+                       Map<String, String[]> ipLabels, List<Map<String, BitSet>> valueIndex) {
+        this.labelNames = labelNames;
+        this.providers = providers;
+        this.entityVersion = entityVersion;
+        this.ipLabels = ipLabels;
+        this.valueIndex = valueIndex;
+    }
+
+    /**
+     * Build the index of a provider list.
+     *
+     * @param labelNames labels of the selector
+     * @param providers  providers to index
+     * @param previous   index of the previous provider list, null if none
+     * @param cmdbReader reader of the labels
+     * @return index of the providers
+     */
+    static LabelIndex build(String[] labelNames, List<Instance> providers, LabelIndex previous,
+                            CmdbReader cmdbReader) {
+        long entityVersion = cmdbReader.getEntityVersion();
+        Map<String, String[]> knownLabels = previous != null && previous.entityVersion == entityVersion
+            && entityVersion != CmdbReader.UNKNOWN_ENTITY_VERSION && previous.sameLabels(labelNames)
+            ? previous.ipLabels : null;
+
+        Map<String, String[]> ipLabels = new HashMap<>(providers.size() * 2);
+        List<Map<String, BitSet>> valueIndex = new ArrayList<>(labelNames.length);
+        for (int i = 0; i < labelNames.length; i++) {
+            valueIndex.add(new HashMap<>(16));
+        }
+
+        for (int position = 0; position < providers.size(); position++) {
+            String ip = providers.get(position).getIp();
+            String[] values = ipLabels.get(ip);
+            if (values == null) {
+                values = knownLabels == null ? null : knownLabels.get(ip);
+                if (values == null) {
+                    values = queryLabels(ip, labelNames, cmdbReader);
+                }
+                ipLabels.put(ip, values);
+            }
+
+            for (int i = 0; i < labelNames.length; i++) {
+                if (values[i] != null) {
+                    valueIndex.get(i).computeIfAbsent(values[i], value -> new BitSet(providers.size())).set(position);
+                }
+            }
+        }
+        return new LabelIndex(labelNames, new ArrayList<>(providers), entityVersion, ipLabels, valueIndex);
+    }
+
+    static String[] queryLabels(String ip, String[] labelNames, CmdbReader cmdbReader) {
+        String[] values = new String[labelNames.length];
+        for (int i = 0; i < labelNames.length; i++) {
+            values[i] = cmdbReader.queryLabel(ip, PreservedEntityTypes.ip.name(), labelNames[i]);
+        }
+        return values;
+    }
+
+    /**
+     * @return whether the index is built for the providers, the labels and the current entities
+     */
+    boolean isValid(String[] labelNames, List<Instance> providers, CmdbReader cmdbReader) {
+        if (entityVersion == CmdbReader.UNKNOWN_ENTITY_VERSION || entityVersion != cmdbReader.getEntityVersion()
+            || !sameLabels(labelNames)) {
+            return false;
+        }
+        if (this.providers.size() != providers.size()) {
+            return false;
+        }
+        // the lists of the same instances are built for every query, the instances are replaced when they change:
+        for (int i = 0; i < providers.size(); i++) {
+            if (this.providers.get(i) != providers.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shape of a provider list, the sequence of the clusters of the providers, as a provider list is built cluster by
+     * cluster in the order of the queried clusters.
+     *
+     * @param providers providers to index
+     * @return key of the index of the providers
+     */
+    static String shapeOf(List<Instance> providers) {
+        StringBuilder shape = new StringBuilder();
+        String lastCluster = null;
+        for (Instance provider : providers) {
+            String cluster = provider.getClusterName();
+            if (lastCluster == null || !lastCluster.equals(cluster)) {
+                shape.append(cluster).append(',');
+                lastCluster = cluster;
+            }
+        }
+        return shape.toString();
+    }
+
+    private boolean sameLabels(String[] labelNames) {
+        return this.labelNames == labelNames;
+    }
+
+    /**
+     * Select the providers having the same values as the consumer, for the labels the consumer has.
+     *
+     * @param consumerLabels values of the labels of the consumer, in the order of the label names
+     * @param providers      providers the index is valid for
+     * @return the matched providers, all the providers if none matches
+     */
+    List<Instance> select(String[] consumerLabels, List<Instance> providers) {
+        BitSet matched = null;
+        for (int i = 0; i < labelNames.length; i++) {
+            if (StringUtils.isBlank(consumerLabels[i])) {
+                continue;
+            }
+            BitSet positions = valueIndex.get(i).get(consumerLabels[i]);
+            if (positions == null) {
+                return providers;
+            }
+            if (matched == null) {
+                matched = (BitSet) positions.clone();
+            } else {
+                matched.and(positions);
+            }
+            if (matched.isEmpty()) {
+                return providers;
+            }
+        }
+
+        if (matched == null) {
+            return providers;
+        }
+
+        List<Instance> instances = new ArrayList<>(matched.cardinality());
+        for (int position = matched.nextSetBit(0); position >= 0; position = matched.nextSetBit(position + 1)) {
+            instances.add(providers.get(position));
+        }
+        return instances;
+    }
+}
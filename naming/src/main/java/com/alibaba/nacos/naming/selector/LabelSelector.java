@@ -16,7 +16,6 @@
 package com.alibaba.nacos.naming.selector;
 
 
-import com.alibaba.nacos.api.cmdb.pojo.PreservedEntityTypes;
 import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.selector.ExpressionSelector;
 import com.alibaba.nacos.api.selector.SelectorType;
@@ -29,6 +28,8 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A selector to implement a so called same-label-prior rule for service discovery.
@@ -64,6 +65,22 @@ public class LabelSelector extends ExpressionSelector implements Selector {
      */
     private Set<String> labels;
 
+    /**
+     * the labels in a fixed order, reset when the labels are replaced
+     */
+    private volatile String[] labelNames;
+
+    /**
+     * shape of the provider list -> index of the last providers of that shape, each service has its own selector, so
+     * the queries of different clusters of a service keep their own indexes
+     */
+    private final ConcurrentMap<String, LabelIndex> labelIndexes = new ConcurrentHashMap<>(4);
+
+    /**
+     * stop indexing new provider list shapes of a service beyond this
+     */
+    private static final int MAX_LABEL_INDEXES = 16;
+
     private static final Set<String> SUPPORTED_INNER_CONNCETORS = new HashSet<>();
 
     private static final Set<String> SUPPORTED_OUTER_CONNCETORS = new HashSet<>();
@@ -87,6 +104,8 @@ public class LabelSelector extends ExpressionSelector implements Selector {
 
     public void setLabels(Set<String> labels) {
         this.labels = labels;
+        this.labelNames = null;
+        this.labelIndexes.clear();
     }
 
     public LabelSelector() {
@@ -104,36 +123,39 @@ public class LabelSelector extends ExpressionSelector implements Selector {
 
     @Override
     public List<Instance> select(String consumer, List<Instance> providers) {
+        return select(consumer, providers, getCmdbReader());
+    }
+
+    /**
+     * Select through the label index of the providers, which is rebuilt when the providers or the CMDB entities change.
+     * Provider lists of different shapes, i.e. of different queried clusters, are indexed separately.
+     */
+    List<Instance> select(String consumer, List<Instance> providers, CmdbReader cmdbReader) {
 
         if (labels.isEmpty()) {
             return providers;
         }
 
-        List<Instance> instanceList = new ArrayList<>();
-        for (Instance instance : providers) {
-
-            boolean matched = true;
-            for (String labelName : getLabels()) {
-
-                String consumerLabelValue = getCmdbReader().queryLabel(consumer, PreservedEntityTypes.ip.name(), labelName);
-
-                if (StringUtils.isNotBlank(consumerLabelValue) &&
-                        !StringUtils.equals(consumerLabelValue,
-                            getCmdbReader().queryLabel(instance.getIp(), PreservedEntityTypes.ip.name(), labelName))) {
-                    matched = false;
-                    break;
-                }
-            }
-            if (matched) {
-                instanceList.add(instance);
+        String[] names = getLabelNames();
+        String shape = LabelIndex.shapeOf(providers);
+        LabelIndex index = labelIndexes.get(shape);
+        if (index == null || !index.isValid(names, providers, cmdbReader)) {
+            index = LabelIndex.build(names, providers, index, cmdbReader);
+            if (labelIndexes.containsKey(shape) || labelIndexes.size() < MAX_LABEL_INDEXES) {
+                labelIndexes.put(shape, index);
             }
         }
 
-        if (instanceList.isEmpty()) {
-            return providers;
-        }
+        return index.select(LabelIndex.queryLabels(consumer, names, cmdbReader), providers);
+    }
 
-        return instanceList;
+    private String[] getLabelNames() {
+        String[] names = labelNames;
+        if (names == null) {
+            names = labels.toArray(new String[0]);
+            labelNames = names;
+        }
+        return names;
     }
 
     /**
@@ -46,6 +46,19 @@ public class NamingResourceParser implements ResourceParser {
         }
         serviceName = NamingUtils.getServiceName(serviceName);
 
+        return buildName(namespaceId, groupName, serviceName);
+    }
+
+    /**
+     * Build the resource name of a service, or of all the services of a namespace if the service name is blank
+     *
+     * @param namespaceId namespace of the service
+     * @param groupName   group of the service
+     * @param serviceName name of the service without the group
+     * @return resource name
+     */
+    public static String buildName(String namespaceId, String groupName, String serviceName) {
+
         StringBuilder sb = new StringBuilder();
 
         if (StringUtils.isNotBlank(namespaceId)) {
@@ -0,0 +1,139 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @author nacos
+ */
+public class BinarySerializerTest {
+
+    private static final int SERVICE_COUNT = 1000;
+
+    private static final int INSTANCE_COUNT = 10;
+
+    private final BinarySerializer binarySerializer = new BinarySerializer();
+
+    private final FastJsonSerializer jsonSerializer = new FastJsonSerializer();
+
+    @Test
+    public void testSerialize() {
+        Map<String, Datum> datumMap = datumMap(SERVICE_COUNT, INSTANCE_COUNT);
+        ((Instances) datumMap.get(key(0)).value).getInstanceList().get(0).setMetadata(null);
+
+        byte[] data = binarySerializer.serialize(datumMap);
+        Assert.assertTrue(BinarySerializer.isBinary(data));
+        Assert.assertFalse(BinarySerializer.isBinary(jsonSerializer.serialize(datumMap)));
+
+        Map<String, Datum<Instances>> result = binarySerializer.deserializeMap(data, Instances.class);
+        Assert.assertEquals(datumMap.keySet(), result.keySet());
+        for (Map.Entry<String, Datum<Instances>> entry : result.entrySet()) {
+            Datum<Instances> expected = datumMap.get(entry.getKey());
+            Datum<Instances> actual = entry.getValue();
+            Assert.assertEquals(expected.key, actual.key);
+            Assert.assertEquals(expected.timestamp.get(), actual.timestamp.get());
+            Assert.assertEquals(expected.value.getChecksum(), actual.value.getChecksum());
+
+            List<Instance> expectedInstances = expected.value.getInstanceList();
+            List<Instance> actualInstances = actual.value.getInstanceList();
+            Assert.assertEquals(expectedInstances.size(), actualInstances.size());
+            for (int i = 0; i < expectedInstances.size(); i++) {
+                Instance expectedInstance = expectedInstances.get(i);
+                Instance actualInstance = actualInstances.get(i);
+                Assert.assertEquals(expectedInstance.toJSON(), actualInstance.toJSON());
+                Assert.assertEquals(expectedInstance.isHealthy(), actualInstance.isHealthy());
+                Assert.assertEquals(expectedInstance.isMarked(), actualInstance.isMarked());
+                Assert.assertEquals(expectedInstance.getLastBeat(), actualInstance.getLastBeat());
+                Assert.assertEquals(expectedInstance.getTenant(), actualInstance.getTenant());
+                Assert.assertEquals(expectedInstance.getMetadata(), actualInstance.getMetadata());
+            }
+        }
+    }
+
+    @Test
+    public void testMalformed() {
+        byte[] data = binarySerializer.serialize(datumMap(1, INSTANCE_COUNT));
+        Assert.assertNull(binarySerializer.deserializeMap(Arrays.copyOf(data, data.length / 2), Instances.class));
+    }
+
+    @Test
+    public void testSerializeDatum() {
+        Datum<Instances> datum = datumMap(1, INSTANCE_COUNT).get(key(0));
+        byte[] data = binarySerializer.serialize(datum);
+
+        Datum<Instances> result = binarySerializer.deserialize(data, new TypeReference<Datum<Instances>>() {
+        });
+        Assert.assertEquals(datum.key, result.key);
+        Assert.assertEquals(datum.timestamp.get(), result.timestamp.get());
+        Assert.assertEquals(datum.value.getChecksum(), result.value.getChecksum());
+        Assert.assertEquals(datum.key, binarySerializer.deserialize(data, Datum.class).key);
+
+        // a datum is not a map of datum
+        Assert.assertNull(binarySerializer.deserializeMap(data, Instances.class));
+    }
+
+    /**
+     * A full sync of 1000 services of 10 instances each is smaller in binary than in FastJSON
+     */
+    @Test
+    public void testSmallerThanJson() {
+        Map<String, Datum> datumMap = datumMap(SERVICE_COUNT, INSTANCE_COUNT);
+        Assert.assertTrue(binarySerializer.serialize(datumMap).length < jsonSerializer.serialize(datumMap).length);
+    }
+
+    private static Map<String, Datum> datumMap(int serviceCount, int instanceCount) {
+        Map<String, Datum> datumMap = new HashMap<>(serviceCount * 2);
+        for (int i = 0; i < serviceCount; i++) {
+            List<Instance> instanceList = new ArrayList<>(instanceCount);
+            for (int j = 0; j < instanceCount; j++) {
+                Instance instance = new Instance("10.0." + i % 256 + "." + j, 8080 + j, "DEFAULT");
+                instance.setServiceName("DEFAULT_GROUP@@service-" + i);
+                instance.setInstanceId(instance.getIp() + "#" + instance.getPort() + "#DEFAULT#" + instance.getServiceName());
+                instance.setWeight(1.5D);
+                instance.setHealthy(j % 3 != 0);
+                instance.setMarked(j % 5 == 0);
+                instance.setTenant("public");
+                instance.setLastBeat(1000000L + j);
+                Map<String, String> metadata = new HashMap<>(4);
+                metadata.put("version", "1.0." + j);
+                metadata.put("zone", "zone-" + j % 3);
+                instance.setMetadata(metadata);
+                instanceList.add(instance);
+            }
+            Instances instances = new Instances();
+            instances.setInstanceList(instanceList);
+
+            Datum<Instances> datum = new Datum<>();
+            datum.key = key(i);
+            datum.value = instances;
+            datum.timestamp.set(i);
+            datumMap.put(datum.key, datum);
+        }
+        return datumMap;
+    }
+
+    private static String key(int i) {
+        return "com.alibaba.nacos.naming.iplist.ephemeral.public##DEFAULT_GROUP@@service-" + i;
+    }
+}
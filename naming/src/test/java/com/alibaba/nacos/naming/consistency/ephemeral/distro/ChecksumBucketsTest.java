@@ -0,0 +1,104 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.fastjson.JSON;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @author nacos
+ */
+public class ChecksumBucketsTest {
+
+    private static final int BUCKET_COUNT = 1024;
+
+    private static final int KEY_COUNT = 100000;
+
+    @Test
+    public void testMismatch() {
+        Map<String, String> keyChecksums = keyChecksums(KEY_COUNT);
+        ChecksumBuckets local = buckets(keyChecksums);
+
+        // independent of the order of the keys
+        List<String> keys = new ArrayList<>(keyChecksums.keySet());
+        Collections.shuffle(keys);
+        ChecksumBuckets remote = new ChecksumBuckets(BUCKET_COUNT);
+        for (String key : keys) {
+            remote.add(key, keyChecksums.get(key));
+        }
+        Assert.assertTrue(local.mismatch(remote.getDigests()).isEmpty());
+
+        String changedKey = key(1);
+        String removedKey = key(2);
+        String addedKey = key(KEY_COUNT);
+        keyChecksums.put(changedKey, "changed");
+        keyChecksums.remove(removedKey);
+        keyChecksums.put(addedKey, "added");
+
+        Set<Integer> expected = new TreeSet<>();
+        expected.add(ChecksumBuckets.bucketOf(changedKey, BUCKET_COUNT));
+        expected.add(ChecksumBuckets.bucketOf(removedKey, BUCKET_COUNT));
+        expected.add(ChecksumBuckets.bucketOf(addedKey, BUCKET_COUNT));
+        Assert.assertEquals(new ArrayList<>(expected), local.mismatch(buckets(keyChecksums).getDigests()));
+    }
+
+    @Test
+    public void testEmptyBuckets() {
+        ChecksumBuckets local = new ChecksumBuckets(BUCKET_COUNT);
+        local.add(key(1), "1");
+        int bucket = ChecksumBuckets.bucketOf(key(1), BUCKET_COUNT);
+
+        Assert.assertEquals(Collections.singletonList(bucket),
+            local.mismatch(new ChecksumBuckets(BUCKET_COUNT).getDigests()));
+        Assert.assertEquals(Collections.singletonList(bucket),
+            new ChecksumBuckets(BUCKET_COUNT).mismatch(local.getDigests()));
+    }
+
+    /**
+     * Steady-state sync payload of 100k keys: at most one digest per bucket instead of one checksum per key
+     */
+    @Test
+    public void testSyncPayloadSize() {
+        Map<String, String> keyChecksums = keyChecksums(KEY_COUNT);
+        Map<Integer, Long> digests = buckets(keyChecksums).getDigests();
+
+        Assert.assertTrue(digests.size() <= BUCKET_COUNT);
+        Assert.assertTrue(JSON.toJSONBytes(digests).length * 10 < JSON.toJSONBytes(keyChecksums).length);
+    }
+
+    private static ChecksumBuckets buckets(Map<String, String> keyChecksums) {
+        ChecksumBuckets buckets = new ChecksumBuckets(BUCKET_COUNT);
+        for (Map.Entry<String, String> entry : keyChecksums.entrySet()) {
+            buckets.add(entry.getKey(), entry.getValue());
+        }
+        return buckets;
+    }
+
+    private static Map<String, String> keyChecksums(int count) {
+        Map<String, String> keyChecksums = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            keyChecksums.put(key(i), Integer.toHexString(("checksum" + i).hashCode()));
+        }
+        return keyChecksums;
+    }
+
+    private static String key(int i) {
+        return "com.alibaba.nacos.naming.iplist.ephemeral.public##DEFAULT_GROUP@@service-" + i;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.nacos.naming.misc.GlobalConfig;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author nacos
+ */
+public class SyncPipelineTest {
+
+    private static final String SERVER = "1.1.1.1:8848";
+
+    private static final long RETRY_DELAY = 200L;
+
+    private GlobalConfig globalConfig;
+
+    private final List<List<String>> sentBatches = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void before() {
+        globalConfig = new GlobalConfig();
+        ReflectionTestUtils.setField(globalConfig, "batchSyncKeyCount", 2);
+        ReflectionTestUtils.setField(globalConfig, "syncMaxInFlightBatches", 1);
+        ReflectionTestUtils.setField(globalConfig, "syncRetryDelay", RETRY_DELAY);
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        SyncPipeline pipeline = new SyncPipeline(SERVER, globalConfig, (keys, targetServer) -> {
+            await(latch);
+            sentBatches.add(keys);
+            return true;
+        });
+
+        pipeline.add(Arrays.asList("a", "b", "c"));
+        waitUntil(() -> pipeline.getInFlightBatches() == 1 && pipeline.getPendingSize() == 1);
+
+        // a is sent again as it changed after being taken, c is kept once:
+        pipeline.add(Arrays.asList("c", "a", "d"));
+        pipeline.add(Arrays.asList("c", "d"));
+        Assert.assertEquals(3, pipeline.getPendingSize());
+        Assert.assertEquals(1, pipeline.getInFlightBatches());
+        Assert.assertTrue(pipeline.getLagMillis() >= 0);
+
+        latch.countDown();
+        waitUntil(() -> sentBatches.size() == 3);
+        Assert.assertEquals(Arrays.asList("a", "b"), sentBatches.get(0));
+        Assert.assertEquals(Arrays.asList("c", "a"), sentBatches.get(1));
+        Assert.assertEquals(Collections.singletonList("d"), sentBatches.get(2));
+        waitUntil(() -> pipeline.getInFlightBatches() == 0);
+        Assert.assertEquals(0, pipeline.getPendingSize());
+        Assert.assertEquals(0L, pipeline.getLagMillis());
+    }
+
+    @Test
+    public void testInFlightKeyHeldBack() throws Exception {
+        ReflectionTestUtils.setField(globalConfig, "syncMaxInFlightBatches", 2);
+        CountDownLatch latch = new CountDownLatch(1);
+        SyncPipeline pipeline = new SyncPipeline(SERVER, globalConfig, (keys, targetServer) -> {
+            if (keys.contains("a")) {
+                await(latch);
+            }
+            sentBatches.add(keys);
+            return true;
+        });
+
+        pipeline.add(Arrays.asList("a", "b"));
+        waitUntil(() -> pipeline.getInFlightBatches() == 1 && pipeline.getPendingSize() == 0);
+
+        // a is in flight, only c goes out in the second batch:
+        pipeline.add(Arrays.asList("a", "c"));
+        waitUntil(() -> sentBatches.size() == 1);
+        Assert.assertEquals(Collections.singletonList("c"), sentBatches.get(0));
+        Assert.assertEquals(1, pipeline.getPendingSize());
+
+        latch.countDown();
+        waitUntil(() -> sentBatches.size() == 3);
+        Assert.assertEquals(Arrays.asList("a", "b"), sentBatches.get(1));
+        Assert.assertEquals(Collections.singletonList("a"), sentBatches.get(2));
+        waitUntil(() -> pipeline.getInFlightBatches() == 0);
+        Assert.assertEquals(0, pipeline.getPendingSize());
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        List<Long> sendTimes = new CopyOnWriteArrayList<>();
+        SyncPipeline pipeline = new SyncPipeline(SERVER, globalConfig, (keys, targetServer) -> {
+            sendTimes.add(System.currentTimeMillis());
+            sentBatches.add(keys);
+            return calls.incrementAndGet() > 1;
+        });
+
+        pipeline.add(Collections.singletonList("a"));
+        waitUntil(() -> calls.get() == 1 && pipeline.getInFlightBatches() == 0);
+
+        // changes during the failure do not pile up:
+        pipeline.add(Arrays.asList("a", "b"));
+        pipeline.add(Collections.singletonList("a"));
+        Assert.assertEquals(2, pipeline.getPendingSize());
+
+        waitUntil(() -> sentBatches.size() == 2);
+        Assert.assertEquals(Arrays.asList("a", "b"), sentBatches.get(1));
+        Assert.assertTrue(sendTimes.get(1) - sendTimes.get(0) >= RETRY_DELAY);
+        waitUntil(() -> pipeline.getInFlightBatches() == 0);
+        Assert.assertEquals(0, pipeline.getPendingSize());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        SyncPipeline pipeline = new SyncPipeline(SERVER, globalConfig, (keys, targetServer) -> {
+            await(latch);
+            sentBatches.add(keys);
+            return true;
+        });
+
+        pipeline.add(Arrays.asList("a", "b", "c", "d"));
+        pipeline.clear();
+        Assert.assertEquals(0, pipeline.getPendingSize());
+        latch.countDown();
+        waitUntil(() -> pipeline.getInFlightBatches() == 0);
+        Assert.assertEquals(1, sentBatches.size());
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        SyncPipeline pipeline = new SyncPipeline(SERVER, globalConfig, (keys, targetServer) -> {
+            await(latch);
+            sentBatches.add(keys);
+            return false;
+        });
+
+        pipeline.add(Arrays.asList("a", "b", "c", "d"));
+        waitUntil(() -> pipeline.getInFlightBatches() == 1);
+        pipeline.stop();
+        pipeline.add(Collections.singletonList("e"));
+        Assert.assertEquals(0, pipeline.getPendingSize());
+
+        // the failed batch in flight is not retried:
+        latch.countDown();
+        waitUntil(() -> pipeline.getInFlightBatches() == 0);
+        Assert.assertEquals(0, pipeline.getPendingSize());
+        Thread.sleep(RETRY_DELAY * 2);
+        Assert.assertEquals(1, sentBatches.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (!condition.check()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("condition not met in time");
+            }
+            Thread.sleep(10L);
+        }
+    }
+
+    private interface Condition {
+        boolean check();
+    }
+}
@@ -19,12 +19,19 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.api.naming.NamingResponseCode;
+import com.alibaba.nacos.core.auth.AccessException;
+import com.alibaba.nacos.core.auth.AuthConfigs;
+import com.alibaba.nacos.core.auth.AuthManager;
+import com.alibaba.nacos.core.auth.Permission;
 import com.alibaba.nacos.naming.BaseTest;
 import com.alibaba.nacos.naming.consistency.persistent.raft.RaftPeerSet;
 import com.alibaba.nacos.naming.core.Cluster;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.healthcheck.RsInfo;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
+import com.alibaba.nacos.naming.push.InstanceListCache;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,6 +39,7 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockServletContext;
 import org.springframework.test.context.ContextConfiguration;
@@ -42,7 +50,9 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -59,6 +69,15 @@ public class InstanceControllerTest extends BaseTest {
     @Mock
     private RaftPeerSet peerSet;
 
+    @Spy
+    private InstanceListCache instanceListCache;
+
+    @Mock
+    private AuthConfigs authConfigs;
+
+    @Mock
+    private AuthManager authManager;
+
     private MockMvc mockmvc;
 
     @Before
@@ -164,4 +183,64 @@ public class InstanceControllerTest extends BaseTest {
         JSONArray hosts = result.getJSONArray("hosts");
         Assert.assertEquals(hosts.size(), 0);
     }
+
+    @Test
+    public void batchBeat() throws Exception {
+        JSONArray beats = batchBeat(false);
+        Assert.assertEquals(NamingResponseCode.OK, beats.getJSONObject(0).getIntValue("code"));
+        Assert.assertNotEquals(NamingResponseCode.OK, beats.getJSONObject(1).getIntValue("code"));
+    }
+
+    @Test
+    public void batchBeatAuthorizedPerBeat() throws Exception {
+        Mockito.when(authConfigs.isAuthEnabled()).thenReturn(true);
+        Mockito.doThrow(new AccessException("denied")).when(authManager).auth(
+            Mockito.argThat((Permission permission) -> permission.getResource().endsWith("naming/other")),
+            Mockito.any());
+
+        JSONArray beats = batchBeat(true);
+        Assert.assertEquals(NamingResponseCode.OK, beats.getJSONObject(0).getIntValue("code"));
+        Assert.assertEquals(HttpURLConnection.HTTP_FORBIDDEN, beats.getJSONObject(1).getIntValue("code"));
+    }
+
+    private JSONArray batchBeat(boolean deniedBeat) throws Exception {
+
+        String serviceName = Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER + TEST_SERVICE_NAME;
+        Service service = new Service();
+        service.setName(serviceName);
+
+        Cluster cluster = new Cluster(UtilsAndCommons.DEFAULT_CLUSTER_NAME, service);
+        service.addCluster(cluster);
+
+        Instance instance = new Instance("1.1.1.1", 9999);
+        instance.setEphemeral(true);
+        service.updateIPs(new ArrayList<>(Arrays.asList(instance)), true);
+
+        Mockito.when(distroMapper.responsible(serviceName)).thenReturn(true);
+        Mockito.when(serviceManager.getService(Constants.DEFAULT_NAMESPACE_ID, serviceName)).thenReturn(service);
+        Mockito.when(serviceManager.getInstance(Constants.DEFAULT_NAMESPACE_ID, serviceName,
+            UtilsAndCommons.DEFAULT_CLUSTER_NAME, "1.1.1.1", 9999)).thenReturn(instance);
+
+        RsInfo beat = new RsInfo();
+        beat.setServiceName(TEST_SERVICE_NAME);
+        beat.setIp("1.1.1.1");
+        beat.setPort(9999);
+        // a beat without service, or of a service the client may not write:
+        RsInfo otherBeat = new RsInfo();
+        otherBeat.setIp("1.1.1.2");
+        otherBeat.setPort(9999);
+        if (deniedBeat) {
+            otherBeat.setServiceName("other");
+        }
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.put(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/beat/batch")
+                .param("beats", JSON.toJSONString(Arrays.asList(beat, otherBeat)));
+        JSONObject result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+
+        JSONArray beats = result.getJSONArray("beats");
+        Assert.assertEquals(2, beats.size());
+        Assert.assertTrue(result.getLongValue("clientBeatInterval") > 0);
+        return beats;
+    }
 }
@@ -16,11 +16,14 @@
 package com.alibaba.nacos.naming.core;
 
 import com.alibaba.nacos.api.naming.pojo.AbstractHealthChecker;
+import com.alibaba.nacos.naming.healthcheck.ClientBeatProcessor;
+import com.alibaba.nacos.naming.healthcheck.RsInfo;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -93,6 +96,61 @@ public class ClusterTest {
         Assert.assertEquals(2345, ips.get(1).getPort());
     }
 
+    @Test
+    public void getInstance() {
+        Instance instance1 = new Instance("1.1.1.1", 1234);
+        Instance instance2 = new Instance("1.1.1.1", 2345);
+        List<Instance> list = new ArrayList<>();
+        list.add(instance1);
+        list.add(instance2);
+        cluster.updateIPs(list, true);
+
+        Assert.assertSame(instance2, cluster.getInstance("1.1.1.1", 2345, true));
+        Assert.assertSame(instance1, cluster.getInstance("1.1.1.1", 1234));
+        Assert.assertNull(cluster.getInstance("1.1.1.1", 1234, false));
+        Assert.assertNull(cluster.getInstance("1.1.1.2", 1234, true));
+
+        cluster.updateIPs(Collections.singletonList(instance2), true);
+        Assert.assertNull(cluster.getInstance("1.1.1.1", 1234, true));
+        Assert.assertSame(instance2, cluster.getInstance("1.1.1.1", 2345, true));
+    }
+
+    /**
+     * Every beat of a cluster of 10k instances reaches its instance through the address index
+     */
+    @Test
+    public void testClientBeat() {
+        int size = 10000;
+        Service service = new Service("nacos.service.beat");
+        Cluster beatCluster = new Cluster("nacos-cluster-1", service);
+        service.getClusterMap().put(beatCluster.getName(), beatCluster);
+
+        List<Instance> instances = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Instance instance = new Instance("10.0." + i / 256 + "." + i % 256, 8080, beatCluster.getName());
+            instance.setLastBeat(0L);
+            instances.add(instance);
+        }
+        beatCluster.updateIPs(instances, true);
+
+        ClientBeatProcessor processor = new ClientBeatProcessor();
+        processor.setService(service);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            RsInfo beat = new RsInfo();
+            beat.setIp(instances.get(i).getIp());
+            beat.setPort(8080);
+            beat.setCluster(beatCluster.getName());
+            processor.setRsInfo(beat);
+            processor.run();
+        }
+
+        Assert.assertEquals(size, beatCluster.allIPs(true).size());
+        for (Instance instance : beatCluster.allIPs(true)) {
+            Assert.assertTrue(instance.getLastBeat() >= start);
+        }
+    }
+
     @Test
     public void testValidate() {
         Service service = new Service("nacos.service.2");
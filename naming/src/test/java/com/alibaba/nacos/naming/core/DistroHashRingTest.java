@@ -0,0 +1,126 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @author nacos
+ */
+public class DistroHashRingTest {
+
+    private static final int SERVER_COUNT = 10;
+
+    private static final int SERVICE_COUNT = 100000;
+
+    private static final int VIRTUAL_NODES = 128;
+
+    @Test
+    public void testSameRing() {
+        Map<String, Integer> weights = weights(SERVER_COUNT);
+        Map<String, Integer> reversed = new TreeMap<>(Comparator.reverseOrder());
+        reversed.putAll(weights);
+
+        DistroHashRing ring = new DistroHashRing(weights, VIRTUAL_NODES);
+        DistroHashRing other = new DistroHashRing(reversed, VIRTUAL_NODES);
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals(ring.get(service(i)), other.get(service(i)));
+        }
+        Assert.assertNull(new DistroHashRing(new HashMap<>(), VIRTUAL_NODES).get(service(0)));
+    }
+
+    @Test
+    public void testWeight() {
+        Map<String, Integer> weights = weights(SERVER_COUNT);
+        weights.put(server(0), 2);
+        DistroHashRing ring = new DistroHashRing(weights, VIRTUAL_NODES);
+
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < SERVICE_COUNT; i++) {
+            counts.merge(ring.get(service(i)), 1, Integer::sum);
+        }
+        double share = (double) SERVICE_COUNT / (SERVER_COUNT + 1);
+        Assert.assertEquals(2 * share, counts.get(server(0)), 2 * share * 0.25);
+        Assert.assertEquals(share, counts.get(server(1)), share * 0.25);
+    }
+
+    /**
+     * About 1/N of the services move when a server leaves or joins, most of them with hash modulo
+     */
+    @Test
+    public void testMembershipChange() {
+        Map<String, Integer> weights = weights(SERVER_COUNT);
+        DistroHashRing ring = new DistroHashRing(weights, VIRTUAL_NODES);
+
+        Map<String, Integer> left = new HashMap<>(weights);
+        left.remove(server(3));
+        DistroHashRing leftRing = new DistroHashRing(left, VIRTUAL_NODES);
+
+        Map<String, Integer> joined = new HashMap<>(weights);
+        joined.put(server(SERVER_COUNT), 1);
+        DistroHashRing joinedRing = new DistroHashRing(joined, VIRTUAL_NODES);
+
+        int leftMoved = 0, joinedMoved = 0, leftModuloMoved = 0, joinedModuloMoved = 0;
+        for (int i = 0; i < SERVICE_COUNT; i++) {
+            String service = service(i);
+            String owner = ring.get(service);
+
+            if (!owner.equals(leftRing.get(service))) {
+                Assert.assertEquals(server(3), owner);
+                leftMoved++;
+            }
+            String newOwner = joinedRing.get(service);
+            if (!owner.equals(newOwner)) {
+                Assert.assertEquals(server(SERVER_COUNT), newOwner);
+                joinedMoved++;
+            }
+
+            int hash = Math.abs(service.hashCode() % Integer.MAX_VALUE);
+            if (hash % SERVER_COUNT != hash % (SERVER_COUNT - 1)) {
+                leftModuloMoved++;
+            }
+            if (hash % SERVER_COUNT != hash % (SERVER_COUNT + 1)) {
+                joinedModuloMoved++;
+            }
+        }
+        double leftShare = (double) SERVICE_COUNT / SERVER_COUNT;
+        Assert.assertEquals(leftShare, leftMoved, leftShare * 0.25);
+        double joinedShare = (double) SERVICE_COUNT / (SERVER_COUNT + 1);
+        Assert.assertEquals(joinedShare, joinedMoved, joinedShare * 0.25);
+
+        Assert.assertTrue(leftModuloMoved > leftMoved * 5);
+        Assert.assertTrue(joinedModuloMoved > joinedMoved * 5);
+    }
+
+    private static Map<String, Integer> weights(int serverCount) {
+        Map<String, Integer> weights = new HashMap<>(serverCount * 2);
+        for (int i = 0; i < serverCount; i++) {
+            weights.put(server(i), 1);
+        }
+        return weights;
+    }
+
+    private static String server(int i) {
+        return "192.168.0." + (i + 1) + ":8848";
+    }
+
+    private static String service(int i) {
+        return "DEFAULT_GROUP@@service-" + i;
+    }
+}
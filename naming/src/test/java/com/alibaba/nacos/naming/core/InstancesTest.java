@@ -0,0 +1,81 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import com.alibaba.fastjson.JSON;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author nacos
+ */
+public class InstancesTest {
+
+    private static final int COUNT = 10000;
+
+    @Test
+    public void testChecksum() {
+        Instances instances = instances(COUNT);
+        String checksum = instances.getChecksum();
+
+        // independent of order and of health
+        List<Instance> shuffled = instances(COUNT).getInstanceList();
+        Collections.shuffle(shuffled);
+        shuffled.get(0).setHealthy(false);
+        Instances other = new Instances();
+        other.setInstanceList(shuffled);
+        Assert.assertEquals(checksum, other.getChecksum());
+
+        // the same after a round trip to another server
+        Instances received = JSON.parseObject(JSON.toJSONString(instances), Instances.class);
+        Assert.assertEquals(checksum, received.getChecksum());
+
+        List<Instance> changed = instances(COUNT).getInstanceList();
+        changed.get(COUNT / 2).getMetadata().put("version", "2");
+        other.setInstanceList(changed);
+        Assert.assertNotEquals(checksum, other.getChecksum());
+    }
+
+    @Test
+    public void testChecksumCached() {
+        Instances instances = instances(COUNT);
+        String checksum = instances.getChecksum();
+        instances.getInstanceList().get(0).setWeight(2.0D);
+        Assert.assertSame(checksum, instances.getChecksum());
+    }
+
+    private static Instances instances(int count) {
+        List<Instance> instanceList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Instance instance = new Instance("10." + (i >> 16) + "." + ((i >> 8) & 0xff) + "." + (i & 0xff),
+                8080, "DEFAULT");
+            Map<String, String> metadata = new HashMap<>(4);
+            metadata.put("version", "1");
+            metadata.put("zone", "zone-" + (i % 3));
+            instance.setMetadata(metadata);
+            instanceList.add(instance);
+        }
+        Instances instances = new Instances();
+        instances.setInstanceList(instanceList);
+        return instances;
+    }
+}
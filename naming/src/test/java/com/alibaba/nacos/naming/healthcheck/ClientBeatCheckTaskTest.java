@@ -1,10 +1,13 @@
 package com.alibaba.nacos.naming.healthcheck;
 
 import com.alibaba.nacos.api.naming.PreservedMetadataKeys;
+import com.alibaba.nacos.naming.boot.SpringContext;
+import com.alibaba.nacos.naming.core.Cluster;
 import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
 import com.alibaba.nacos.naming.misc.GlobalConfig;
+import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.push.PushService;
 import org.junit.Assert;
 import org.junit.Before;
@@ -15,9 +18,11 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationContext;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +44,10 @@ public class ClientBeatCheckTaskTest {
     private GlobalConfig globalConfig;
     @Mock
     private PushService pushService;
+    @Mock
+    private SwitchDomain switchDomain;
+    @Mock
+    private ApplicationContext context;
 
 
     @Before
@@ -47,6 +56,7 @@ public class ClientBeatCheckTaskTest {
         Mockito.doReturn(distroMapperSpy).when(clientBeatCheckTask).getDistroMapper();
         Mockito.doReturn(globalConfig).when(clientBeatCheckTask).getGlobalConfig();
         Mockito.doReturn(pushService).when(clientBeatCheckTask).getPushService();
+        new SpringContext().setApplicationContext(context);
     }
 
     @Test
@@ -64,7 +74,7 @@ public class ClientBeatCheckTaskTest {
 
         Mockito.doReturn("test").when(serviceSpy).getName();
         Mockito.doReturn(true).when(distroMapperSpy).responsible(Mockito.anyString());
-        clientBeatCheckTask.run();
+        clientBeatCheckTask.check(instance);
         Assert.assertTrue(instance.isHealthy());
     }
 
@@ -84,7 +94,7 @@ public class ClientBeatCheckTaskTest {
 
         Mockito.when(serviceSpy.allIPs(true)).thenReturn(instances);
 
-        clientBeatCheckTask.run();
+        clientBeatCheckTask.check(instance);
         Assert.assertFalse(instance.isHealthy());
     }
 
@@ -103,7 +113,7 @@ public class ClientBeatCheckTaskTest {
         Mockito.doReturn(true).when(globalConfig).isExpireInstance();
         Mockito.when(serviceSpy.allIPs(true)).thenReturn(instances);
 
-        clientBeatCheckTask.run();
+        clientBeatCheckTask.check(instance);
     }
 
     @Test
@@ -122,6 +132,55 @@ public class ClientBeatCheckTaskTest {
         Mockito.doReturn(true).when(globalConfig).isExpireInstance();
         Mockito.when(serviceSpy.allIPs(true)).thenReturn(instances);
 
-        clientBeatCheckTask.run();
+        clientBeatCheckTask.check(instance);
+    }
+
+    @Test
+    public void testBeatDeadline() throws Exception {
+        Mockito.doReturn(switchDomain).when(clientBeatCheckTask).getSwitchDomain();
+        Mockito.doReturn(true).when(switchDomain).isHealthCheckEnabled();
+        Mockito.doReturn("test").when(serviceSpy).getName();
+        Mockito.doReturn(true).when(distroMapperSpy).responsible(Mockito.anyString());
+
+        Instance instance = new Instance("1.1.1.1", 8080, "DEFAULT");
+        instance.setHealthy(true);
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(PreservedMetadataKeys.HEART_BEAT_TIMEOUT, "300");
+        instance.setMetadata(metadata);
+
+        Cluster cluster = new Cluster("DEFAULT", serviceSpy);
+        cluster.updateIPs(Collections.singletonList(instance), true);
+        Map<String, Cluster> clusterMap = new HashMap<>();
+        clusterMap.put("DEFAULT", cluster);
+        Mockito.doReturn(clusterMap).when(serviceSpy).getClusterMap();
+        Mockito.when(serviceSpy.allIPs(true)).thenReturn(Collections.singletonList(instance));
+
+        clientBeatCheckTask.start();
+        Assert.assertEquals(1, clientBeatCheckTask.getDeadlineCount());
+
+        // keeps beating:
+        for (int i = 0; i < 10; i++) {
+            instance.setLastBeat(System.currentTimeMillis());
+            Thread.sleep(100L);
+        }
+        Assert.assertTrue(instance.isHealthy());
+
+        // stops beating:
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (instance.isHealthy() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+        Assert.assertFalse(instance.isHealthy());
+        Assert.assertEquals(1, clientBeatCheckTask.getDeadlineCount());
+
+        // the deadline of a removed instance is dropped when it fires:
+        cluster.updateIPs(new ArrayList<>(), true);
+        deadline = System.currentTimeMillis() + 5000L;
+        while (clientBeatCheckTask.getDeadlineCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+        Assert.assertEquals(0, clientBeatCheckTask.getDeadlineCount());
+
+        clientBeatCheckTask.stop();
     }
 }
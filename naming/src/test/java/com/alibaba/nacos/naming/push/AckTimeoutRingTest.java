@@ -0,0 +1,80 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.push;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author nacos
+ */
+public class AckTimeoutRingTest {
+
+    @Test
+    public void testExpireAfterTimeoutTicks() {
+        AckTimeoutRing<Integer> ring = new AckTimeoutRing<>(3, 4);
+        List<Integer> expired = new ArrayList<>();
+
+        ring.add(1);
+        ring.tick(expired::add);
+        ring.add(2);
+        ring.tick(expired::add);
+        Assert.assertTrue(expired.isEmpty());
+
+        ring.tick(expired::add);
+        Assert.assertEquals(1, expired.size());
+        Assert.assertEquals(1, (int) expired.get(0));
+        Assert.assertEquals(1, ring.size());
+
+        ring.tick(expired::add);
+        Assert.assertEquals(2, expired.size());
+        Assert.assertEquals(0, ring.size());
+    }
+
+    @Test
+    public void testReAddWhileExpiring() {
+        AckTimeoutRing<Integer> ring = new AckTimeoutRing<>(2, 4);
+        List<Integer> expired = new ArrayList<>();
+        ring.add(1);
+        ring.tick(expired::add);
+        // a retried entry is tracked again for a full timeout
+        ring.tick(e -> {
+            expired.add(e);
+            ring.add(e);
+        });
+        Assert.assertEquals(1, ring.size());
+        ring.tick(expired::add);
+        Assert.assertEquals(1, expired.size());
+        ring.tick(expired::add);
+        Assert.assertEquals(2, expired.size());
+    }
+
+    @Test
+    public void testManyEntries() {
+        AckTimeoutRing<Integer> ring = new AckTimeoutRing<>(20, 1024);
+        for (int i = 0; i < 50000; i++) {
+            ring.add(i);
+        }
+        int[] count = new int[1];
+        for (int i = 0; i < 20; i++) {
+            ring.tick(e -> count[0]++);
+        }
+        Assert.assertEquals(50000, count[0]);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.push;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.selector.NoneSelector;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author nacos
+ */
+public class InstanceListCacheTest {
+
+    private static final String SERVICE_KEY = "public##DEFAULT_GROUP@@test.1";
+
+    private static final String LIST_KEY = "DEFAULT@@false@@true";
+
+    private InstanceListCache cache;
+
+    private Service service;
+
+    private AtomicInteger builds;
+
+    @Before
+    public void before() {
+        cache = new InstanceListCache();
+        service = Mockito.mock(Service.class);
+        Mockito.when(service.getChecksum()).thenReturn("checksum-1");
+        builds = new AtomicInteger();
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        InstanceListCache.Entry entry = get();
+        Assert.assertSame(entry, get());
+        Assert.assertSame(entry, get());
+        Assert.assertEquals(1, builds.get());
+
+        cache.get(SERVICE_KEY, "other", service, this::build);
+        Assert.assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testChecksumChanged() throws Exception {
+        InstanceListCache.Entry entry = get();
+        Mockito.when(service.getChecksum()).thenReturn("checksum-2");
+        Assert.assertNotSame(entry, get());
+        Assert.assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testSelectorChanged() throws Exception {
+        InstanceListCache.Entry entry = get();
+        Mockito.when(service.getSelector()).thenReturn(new NoneSelector());
+        Assert.assertNotSame(entry, get());
+        Assert.assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        InstanceListCache.Entry entry = get();
+        cache.invalidate(SERVICE_KEY);
+        Assert.assertNotSame(entry, get());
+        Assert.assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testInvalidatedWhileBuilding() throws Exception {
+        InstanceListCache.Entry stale = cache.get(SERVICE_KEY, LIST_KEY, service, () -> {
+            InstanceListCache.Entry built = build();
+            cache.invalidate(SERVICE_KEY);
+            return built;
+        });
+        Assert.assertNotSame(stale, get());
+        Assert.assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        get();
+        cache.expire(System.currentTimeMillis() - 60000L);
+        Assert.assertEquals(1, cache.size());
+        cache.expire(System.currentTimeMillis() + 1L);
+        Assert.assertEquals(0, cache.size());
+    }
+
+    private InstanceListCache.Entry get() throws Exception {
+        return cache.get(SERVICE_KEY, LIST_KEY, service, this::build);
+    }
+
+    private InstanceListCache.Entry build() {
+        builds.incrementAndGet();
+        return new InstanceListCache.Entry(service.getChecksum(), service.getSelector(), false, new JSONArray(), false);
+    }
+}
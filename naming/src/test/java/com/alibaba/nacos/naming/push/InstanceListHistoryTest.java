@@ -0,0 +1,112 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.push;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.nacos.naming.misc.SwitchDomain;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * @author nacos
+ */
+public class InstanceListHistoryTest {
+
+    private static final String KEY = "public##DEFAULT_GROUP@@test.1@@DEFAULT@@false@@true";
+
+    private InstanceListHistory history;
+
+    private SwitchDomain switchDomain;
+
+    @Before
+    public void before() {
+        history = new InstanceListHistory();
+        switchDomain = new SwitchDomain();
+        switchDomain.setInstanceDeltaHistorySize(2);
+        ReflectionTestUtils.setField(history, "switchDomain", switchDomain);
+    }
+
+    @Test
+    public void testDelta() {
+        JSONArray v1 = hosts(100, true);
+        InstanceListHistory.Delta full = history.diff(KEY, v1, "0");
+        Assert.assertFalse(full.isDelta());
+
+        // unchanged
+        InstanceListHistory.Delta same = history.diff(KEY, hosts(100, true), full.checksum);
+        Assert.assertTrue(same.isDelta());
+        Assert.assertEquals(full.checksum, same.checksum);
+        Assert.assertTrue(same.changedHosts.isEmpty());
+        Assert.assertTrue(same.removedHosts.isEmpty());
+
+        // one instance unhealthy, one removed, one added
+        JSONArray v2 = hosts(100, true);
+        ((JSONObject) v2.get(0)).put("healthy", false);
+        v2.remove(1);
+        v2.add(host(100, true));
+        InstanceListHistory.Delta delta = history.diff(KEY, v2, full.checksum);
+        Assert.assertTrue(delta.isDelta());
+        Assert.assertNotEquals(full.checksum, delta.checksum);
+        Assert.assertEquals(full.checksum, delta.baseChecksum);
+        Assert.assertEquals(2, delta.changedHosts.size());
+        Assert.assertEquals(1, delta.removedHosts.size());
+        Assert.assertEquals("1.1.1.1:1:DEFAULT", delta.removedHosts.get(0));
+    }
+
+    @Test
+    public void testHistoryGap() {
+        InstanceListHistory.Delta v1 = history.diff(KEY, hosts(10, true), "");
+        history.diff(KEY, hosts(11, true), v1.checksum);
+        history.diff(KEY, hosts(12, true), v1.checksum);
+        // v1 dropped from a history of 2 versions
+        Assert.assertFalse(history.diff(KEY, hosts(12, true), v1.checksum).isDelta());
+    }
+
+    @Test
+    public void testLargeDelta() {
+        InstanceListHistory.Delta v1 = history.diff(KEY, hosts(10, true), "");
+        Assert.assertFalse(history.diff(KEY, hosts(10, false), v1.checksum).isDelta());
+    }
+
+    @Test
+    public void testExpire() {
+        history.diff(KEY, hosts(10, true), "");
+        history.expire(System.currentTimeMillis() - 1000);
+        Assert.assertEquals(1, history.size());
+        history.expire(System.currentTimeMillis() + 1);
+        Assert.assertEquals(0, history.size());
+    }
+
+    private static JSONArray hosts(int count, boolean healthy) {
+        JSONArray hosts = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            hosts.add(host(i, healthy));
+        }
+        return hosts;
+    }
+
+    private static JSONObject host(int i, boolean healthy) {
+        JSONObject host = new JSONObject();
+        host.put("ip", "1.1.1." + i);
+        host.put("port", i);
+        host.put("healthy", healthy);
+        host.put("clusterName", "DEFAULT");
+        return host;
+    }
+}
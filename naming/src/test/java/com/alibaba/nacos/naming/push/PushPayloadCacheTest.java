@@ -0,0 +1,75 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.push;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author nacos
+ */
+public class PushPayloadCacheTest {
+
+    @Test
+    public void testSharedPayload() throws Exception {
+        PushPayloadCache cache = new PushPayloadCache();
+        AtomicInteger builds = new AtomicInteger();
+        PushPayloadCache.PayloadBuilder builder = () -> {
+            builds.incrementAndGet();
+            return new PushPayloadCache.Payload(new byte[] {1}, new HashMap<>(), System.nanoTime());
+        };
+
+        PushPayloadCache.Payload payload = cache.get("public##test.1", "DEFAULT@@JAVA", builder);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(payload, cache.get("public##test.1", "DEFAULT@@JAVA", builder));
+        }
+        Assert.assertEquals(1, builds.get());
+
+        Assert.assertNotSame(payload, cache.get("public##test.1", "DEFAULT@@UNKNOWN", builder));
+        Assert.assertEquals(2, builds.get());
+
+        cache.invalidate("public##test.1");
+        Assert.assertNotSame(payload, cache.get("public##test.1", "DEFAULT@@JAVA", builder));
+        Assert.assertEquals(3, builds.get());
+    }
+
+    @Test
+    public void testBuildDuringInvalidate() throws Exception {
+        PushPayloadCache cache = new PushPayloadCache();
+        PushPayloadCache.Payload stale = cache.get("public##test.1", "DEFAULT", () -> {
+            // the service changes while the old version is being built
+            cache.invalidate("public##test.1");
+            return new PushPayloadCache.Payload(new byte[] {1}, new HashMap<>(), 1L);
+        });
+        Assert.assertNotNull(stale);
+
+        PushPayloadCache.Payload fresh = cache.get("public##test.1", "DEFAULT",
+            () -> new PushPayloadCache.Payload(new byte[] {2}, new HashMap<>(), 2L));
+        Assert.assertNotSame(stale, fresh);
+        Assert.assertEquals(2L, fresh.lastRefTime);
+    }
+
+    @Test
+    public void testEmptyPayloadNotCached() throws Exception {
+        PushPayloadCache cache = new PushPayloadCache();
+        Assert.assertNull(cache.get("public##test.1", "DEFAULT", () -> null));
+        Assert.assertNotNull(cache.get("public##test.1", "DEFAULT",
+            () -> new PushPayloadCache.Payload(new byte[] {1}, new HashMap<>(), 1L)));
+    }
+}
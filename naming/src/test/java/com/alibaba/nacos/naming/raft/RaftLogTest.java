@@ -0,0 +1,246 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.raft;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.consistency.persistent.raft.RaftLog;
+import com.alibaba.nacos.naming.consistency.persistent.raft.RaftStore;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author nacos
+ */
+public class RaftLogTest {
+
+    private static final String NAMESPACE = "public";
+
+    private static final int WRITE_COUNT = 2000;
+
+    private static final int WRITE_THREADS = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReplay() throws Exception {
+        File dir = folder.newFolder();
+        RaftLog raftLog = new RaftLog(dir, 128);
+        raftLog.open((key, value) -> Assert.fail());
+        for (int i = 0; i < 10; i++) {
+            raftLog.sync(raftLog.append("key-" + i % 4, bytes("value-" + i)));
+        }
+        raftLog.sync(raftLog.append("key-0", null));
+        raftLog.close();
+        Assert.assertTrue(segments(dir).length > 1);
+
+        Map<String, String> replayed = replay(dir);
+        Assert.assertEquals(3, replayed.size());
+        Assert.assertEquals("value-9", replayed.get("key-1"));
+        Assert.assertEquals("value-6", replayed.get("key-2"));
+        Assert.assertEquals("value-7", replayed.get("key-3"));
+    }
+
+    @Test
+    public void testTornRecord() throws Exception {
+        File dir = folder.newFolder();
+        RaftLog raftLog = new RaftLog(dir, 1024 * 1024);
+        raftLog.open((key, value) -> {
+        });
+        raftLog.sync(raftLog.append("key-0", bytes("value-0")));
+        raftLog.sync(raftLog.append("key-1", bytes("value-1")));
+        raftLog.close();
+
+        File segment = segments(dir)[0];
+        long length = segment.length();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(length - 3);
+        }
+
+        Map<String, String> replayed = new HashMap<>();
+        raftLog = new RaftLog(dir, 1024 * 1024);
+        raftLog.open((key, value) -> replayed.put(key, new String(value, StandardCharsets.UTF_8)));
+        Assert.assertEquals(Collections.singletonMap("key-0", "value-0"), replayed);
+        Assert.assertEquals(length / 2, segment.length());
+
+        // appended after the truncated record:
+        raftLog.sync(raftLog.append("key-2", bytes("value-2")));
+        raftLog.close();
+        Assert.assertEquals("value-2", replay(dir).get("key-2"));
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        File dir = folder.newFolder();
+        RaftLog raftLog = new RaftLog(dir, 64);
+        raftLog.open((key, value) -> {
+        });
+        for (int i = 0; i < 20; i++) {
+            raftLog.sync(raftLog.append("key-" + i % 2, bytes("value-" + i)));
+        }
+
+        long segmentId = raftLog.roll();
+        try (RaftLog.SnapshotWriter writer = raftLog.snapshot(segmentId)) {
+            writer.put("key-0", bytes("value-18"));
+            writer.put("key-1", bytes("value-19"));
+            writer.commit();
+        }
+        Assert.assertEquals(1, segments(dir).length);
+        Assert.assertEquals(0L, raftLog.getLogBytes());
+
+        raftLog.sync(raftLog.append("key-1", null));
+        raftLog.close();
+
+        Assert.assertEquals(Collections.singletonMap("key-0", "value-18"), replay(dir));
+    }
+
+    @Test
+    public void testRecoverAndMigrate() throws Exception {
+        File baseDir = folder.newFolder();
+        String key = KeyBuilder.buildInstanceListKey(NAMESPACE, "DEFAULT_GROUP@@service-0", false);
+        File legacyFile = new File(baseDir, "data" + File.separator + NAMESPACE + File.separator + key.replace(':', '#'));
+        Assert.assertTrue(legacyFile.getParentFile().mkdirs());
+        try (FileOutputStream out = new FileOutputStream(legacyFile)) {
+            out.write(JSON.toJSONString(datum(key, 1)).getBytes(StandardCharsets.UTF_8));
+        }
+
+        RaftStore raftStore = new RaftStore(baseDir.getAbsolutePath());
+        Assert.assertEquals(1L, raftStore.load(key).timestamp.get());
+        Assert.assertFalse(new File(baseDir, "data").exists());
+        Assert.assertTrue(new File(baseDir, "data.migrated").isDirectory());
+
+        String other = KeyBuilder.buildInstanceListKey(NAMESPACE, "DEFAULT_GROUP@@service-1", false);
+        raftStore.write(datum(key, 2));
+        raftStore.write(datum(other, 1));
+        raftStore.delete(datum(other, 1));
+
+        raftStore = new RaftStore(baseDir.getAbsolutePath());
+        Datum result = raftStore.load(key);
+        Assert.assertEquals(2L, result.timestamp.get());
+        Assert.assertEquals(datum(key, 2).value.toString(), result.value.toString());
+        Assert.assertNull(raftStore.load(other));
+    }
+
+    /**
+     * A datum changed in place after it was written is snapshotted as written, as the log replays it
+     */
+    @Test
+    public void testSnapshotAsWritten() throws Exception {
+        File baseDir = folder.newFolder();
+        String key = KeyBuilder.buildInstanceListKey(NAMESPACE, "DEFAULT_GROUP@@service-0", false);
+        RaftStore raftStore = new RaftStore(baseDir.getAbsolutePath());
+        Datum<Instances> datum = datum(key, 1);
+        raftStore.write(datum);
+        String written = datum.value.toString();
+
+        datum.timestamp.set(2);
+        datum.value.getInstanceList().get(0).setHealthy(false);
+        datum.value.getInstanceList().add(new Instance("1.1.1.2", 8080, "DEFAULT"));
+        raftStore.snapshot();
+
+        Datum result = new RaftStore(baseDir.getAbsolutePath()).load(key);
+        Assert.assertEquals(1L, result.timestamp.get());
+        Assert.assertEquals(written, result.value.toString());
+    }
+
+    /**
+     * Concurrent writers sharing fsyncs, every synced write is replayed
+     */
+    @Test
+    public void testConcurrentSync() throws Exception {
+        File dir = folder.newFolder();
+        RaftLog raftLog = new RaftLog(dir, 64 * 1024 * 1024);
+        raftLog.open((key, value) -> {
+        });
+        String value = JSON.toJSONString(datum("key", 1));
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITE_THREADS);
+        CountDownLatch latch = new CountDownLatch(WRITE_COUNT);
+        AtomicLong failures = new AtomicLong();
+        for (int i = 0; i < WRITE_COUNT; i++) {
+            String key = "key-" + i;
+            executor.execute(() -> {
+                try {
+                    raftLog.sync(raftLog.append(key, bytes(value)));
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.MINUTES));
+        executor.shutdown();
+        raftLog.close();
+        Assert.assertEquals(0L, failures.get());
+
+        Map<String, String> replayed = replay(dir);
+        Assert.assertEquals(WRITE_COUNT, replayed.size());
+        for (int i = 0; i < WRITE_COUNT; i++) {
+            Assert.assertEquals(value, replayed.get("key-" + i));
+        }
+    }
+
+    private static Map<String, String> replay(File dir) throws Exception {
+        Map<String, String> replayed = new HashMap<>();
+        RaftLog raftLog = new RaftLog(dir, 1024 * 1024);
+        raftLog.open((key, value) -> {
+            if (value == null) {
+                replayed.remove(key);
+            } else {
+                replayed.put(key, new String(value, StandardCharsets.UTF_8));
+            }
+        });
+        raftLog.close();
+        return replayed;
+    }
+
+    private static File[] segments(File dir) {
+        File[] files = dir.listFiles((file, name) -> name.endsWith(".log"));
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Datum<Instances> datum(String key, long timestamp) {
+        Datum<Instances> datum = new Datum<>();
+        datum.key = key;
+        datum.timestamp.set(timestamp);
+        datum.value = new Instances();
+        datum.value.getInstanceList().add(new Instance("1.1.1." + timestamp, 8080, "DEFAULT"));
+        return datum;
+    }
+}
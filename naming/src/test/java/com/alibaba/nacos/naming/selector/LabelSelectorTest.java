@@ -1,18 +1,27 @@
 package com.alibaba.nacos.naming.selector;
 
+import com.alibaba.nacos.api.cmdb.pojo.Entity;
+import com.alibaba.nacos.api.cmdb.pojo.PreservedEntityTypes;
 import com.alibaba.nacos.api.exception.NacosException;
+import com.alibaba.nacos.cmdb.service.CmdbReader;
+import com.alibaba.nacos.naming.core.Instance;
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
 import org.junit.Test;
 
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 /**
  * @author Xs.Tao
  */
 public class LabelSelectorTest {
 
+    private static final int PROVIDER_COUNT = 5000;
+
+    private static final String[] LABELS = {"site", "zone", "rack"};
+
+    private static final int[] LABEL_VALUES = {2, 4, 16};
+
     private String expression = "CONSUMER.label.A=PROVIDER.label.A &CONSUMER.label.B=PROVIDER.label.B";
 
     @Test
@@ -27,4 +36,178 @@ public class LabelSelectorTest {
         Assert.assertEquals("B",labs[1]);
     }
 
+    @Test
+    public void testSelect() {
+        MockCmdbReader cmdbReader = new MockCmdbReader(PROVIDER_COUNT);
+        List<Instance> providers = providers(PROVIDER_COUNT);
+        LabelSelector selector = selector();
+
+        for (int i = 0; i < 200; i++) {
+            String consumer = ip(i * 37);
+            Assert.assertEquals(legacySelect(selector, consumer, providers, cmdbReader),
+                selector.select(consumer, new ArrayList<>(providers), cmdbReader));
+        }
+        // unknown consumer, or no provider sharing its labels:
+        Assert.assertEquals(providers, selector.select("192.168.0.1", providers, cmdbReader));
+        cmdbReader.labels.put("192.168.0.1", Collections.singletonMap("site", "none"));
+        cmdbReader.version++;
+        Assert.assertEquals(providers, selector.select("192.168.0.1", providers, cmdbReader));
+
+        // instances replaced:
+        providers.set(0, new Instance(ip(0), 8080, "DEFAULT"));
+        Assert.assertEquals(legacySelect(selector, ip(0), providers, cmdbReader),
+            selector.select(ip(0), providers, cmdbReader));
+
+        // labels of a provider changed in CMDB:
+        String consumer = ip(1);
+        Assert.assertFalse(selector.select(consumer, providers, cmdbReader).contains(providers.get(2)));
+        cmdbReader.labels.put(ip(2), cmdbReader.labels.get(consumer));
+        cmdbReader.version++;
+        Assert.assertTrue(selector.select(consumer, providers, cmdbReader).contains(providers.get(2)));
+        Assert.assertEquals(legacySelect(selector, consumer, providers, cmdbReader),
+            selector.select(consumer, providers, cmdbReader));
+    }
+
+    /**
+     * Queries of different clusters keep their own indexes, only the consumer labels are looked up once they are built
+     */
+    @Test
+    public void testIndexPerClusterList() {
+        MockCmdbReader cmdbReader = new MockCmdbReader(PROVIDER_COUNT);
+        LabelSelector selector = selector();
+        List<Instance> clusterA = new ArrayList<>();
+        List<Instance> clusterB = new ArrayList<>();
+        for (int i = 0; i < PROVIDER_COUNT; i++) {
+            (i % 2 == 0 ? clusterA : clusterB).add(new Instance(ip(i), 8080, i % 2 == 0 ? "A" : "B"));
+        }
+        List<Instance> clusterAB = new ArrayList<>(clusterA);
+        clusterAB.addAll(clusterB);
+
+        for (int i = 0; i < 20; i++) {
+            String consumer = ip(i * 37);
+            for (List<Instance> providers : Arrays.asList(clusterA, clusterB, clusterAB)) {
+                Assert.assertEquals(legacySelect(selector, consumer, providers, cmdbReader),
+                    selector.select(consumer, new ArrayList<>(providers), cmdbReader));
+            }
+        }
+
+        long queries = cmdbReader.queries;
+        for (int i = 0; i < 20; i++) {
+            selector.select(ip(i), new ArrayList<>(clusterA), cmdbReader);
+            selector.select(ip(i), new ArrayList<>(clusterB), cmdbReader);
+            selector.select(ip(i), new ArrayList<>(clusterAB), cmdbReader);
+        }
+        Assert.assertEquals(20 * 3 * LABELS.length, cmdbReader.queries - queries);
+    }
+
+    /**
+     * Nothing is reused from a CMDB reader not tracking its versions, changed labels are selected at once
+     */
+    @Test
+    public void testUnknownEntityVersion() {
+        MockCmdbReader cmdbReader = new MockCmdbReader(PROVIDER_COUNT);
+        cmdbReader.version = CmdbReader.UNKNOWN_ENTITY_VERSION;
+        List<Instance> providers = providers(PROVIDER_COUNT);
+        LabelSelector selector = selector();
+
+        String consumer = ip(1);
+        Assert.assertFalse(selector.select(consumer, providers, cmdbReader).contains(providers.get(2)));
+        cmdbReader.labels.put(ip(2), cmdbReader.labels.get(consumer));
+        Assert.assertTrue(selector.select(consumer, providers, cmdbReader).contains(providers.get(2)));
+        Assert.assertEquals(legacySelect(selector, consumer, providers, cmdbReader),
+            selector.select(consumer, providers, cmdbReader));
+    }
+
+    /**
+     * The selection before the label index, one CMDB lookup per provider and label
+     */
+    private static List<Instance> legacySelect(LabelSelector selector, String consumer, List<Instance> providers,
+                                               CmdbReader cmdbReader) {
+        List<Instance> instanceList = new ArrayList<>();
+        for (Instance instance : providers) {
+            boolean matched = true;
+            for (String labelName : selector.getLabels()) {
+                String consumerLabelValue = cmdbReader.queryLabel(consumer, PreservedEntityTypes.ip.name(), labelName);
+                if (StringUtils.isNotBlank(consumerLabelValue) && !StringUtils.equals(consumerLabelValue,
+                    cmdbReader.queryLabel(instance.getIp(), PreservedEntityTypes.ip.name(), labelName))) {
+                    matched = false;
+                    break;
+                }
+            }
+            if (matched) {
+                instanceList.add(instance);
+            }
+        }
+        return instanceList.isEmpty() ? providers : instanceList;
+    }
+
+    private static LabelSelector selector() {
+        LabelSelector selector = new LabelSelector();
+        selector.setLabels(new HashSet<>(Arrays.asList(LABELS)));
+        return selector;
+    }
+
+    private static List<Instance> providers(int count) {
+        List<Instance> providers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            providers.add(new Instance(ip(i), 8080, "DEFAULT"));
+        }
+        return providers;
+    }
+
+    private static String ip(int i) {
+        return "10.0." + (i / 250) + "." + (i % 250 + 1);
+    }
+
+    private static class MockCmdbReader implements CmdbReader {
+
+        private final Map<String, Map<String, String>> labels = new HashMap<>();
+
+        private long version;
+
+        private long queries;
+
+        MockCmdbReader(int count) {
+            Random random = new Random(0);
+            for (int i = 0; i < count; i++) {
+                Map<String, String> values = new HashMap<>();
+                for (int j = 0; j < LABELS.length; j++) {
+                    values.put(LABELS[j], LABELS[j] + "-" + random.nextInt(LABEL_VALUES[j]));
+                }
+                labels.put(ip(i), values);
+            }
+        }
+
+        @Override
+        public Entity queryEntity(String entityName, String entityType) {
+            if (!labels.containsKey(entityName)) {
+                return null;
+            }
+            Entity entity = new Entity();
+            entity.setType(entityType);
+            entity.setName(entityName);
+            entity.setLabels(labels.get(entityName));
+            return entity;
+        }
+
+        @Override
+        public String queryLabel(String entityName, String entityType, String labelName) {
+            queries++;
+            Entity entity = queryEntity(entityName, entityType);
+            if (entity == null) {
+                return null;
+            }
+            return entity.getLabels().get(labelName);
+        }
+
+        @Override
+        public List<Entity> queryEntitiesByLabel(String labelName, String labelValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getEntityVersion() {
+            return version;
+        }
+    }
 }